@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Sammenligner to JMH-resultater (JSON fra mvn -Pjmh verify) benchmark for benchmark.
+# Kræver jq.
+#
+#   scripts/jmh-compare.sh <før.json> <efter.json> [tærskel i procent, standard 10]
+#
+# Typisk brug:
+#   mvn -B -Pjmh -DskipTests verify -Djmh.result=target/jmh-$(git rev-parse --short HEAD).json
+#   (skift commit og kør igen)
+#   scripts/jmh-compare.sh target/jmh-abc123.json target/jmh-def456.json
+#
+# Benchmarks måles som gennemsnitstid pr. kald, så en højere score er langsommere.
+# Scriptet afslutter med kode 1, hvis et benchmark er blevet mere end tærsklen langsommere.
+set -euo pipefail
+
+if [[ $# -lt 2 ]]; then
+  echo "Brug: $0 <før.json> <efter.json> [tærskel-procent]" >&2
+  exit 2
+fi
+BEFORE="$1"
+AFTER="$2"
+THRESHOLD="${3:-10}"
+
+command -v jq >/dev/null || { echo "jq blev ikke fundet på PATH." >&2; exit 1; }
+
+# Én linje pr. benchmark og parameterkombination: nøgle<TAB>score<TAB>enhed
+scores() {
+  jq -r '.[] | [
+      (.benchmark | sub("^com\\.wzn\\.dronepizza\\.benchmark\\."; ""))
+        + ((.params // {}) | to_entries | map("\(.key)=\(.value)") | if length > 0 then " [" + join(",") + "]" else "" end),
+      .primaryMetric.score,
+      .primaryMetric.scoreUnit
+    ] | @tsv' "$1" | sort
+}
+
+join -t $'\t' <(scores "${BEFORE}") <(scores "${AFTER}") | awk -F'\t' -v threshold="${THRESHOLD}" '
+  BEGIN { regressions = 0; printf "%-70s %14s %14s %9s\n", "benchmark", "før", "efter", "ændring" }
+  {
+    change = ($2 > 0) ? ($4 - $2) / $2 * 100 : 0
+    flag = ""
+    if (change > threshold) { flag = "  LANGSOMMERE"; regressions++ }
+    else if (change < -threshold) { flag = "  hurtigere" }
+    printf "%-70s %10.2f %-3s %10.2f %-3s %+8.1f%%%s\n", $1, $2, $3, $4, $5, change, flag
+  }
+  END {
+    if (regressions > 0) { printf "\n%d benchmark(s) er mere end %s%% langsommere.\n", regressions, threshold; exit 1 }
+  }'
@@ -0,0 +1,74 @@
+#!/usr/bin/env bash
+# Sammenligner trådpulje-mode (standard) med profilen "virtual" under samme belastning.
+# Kræver Java 21 og load-værktøjet "hey" (https://github.com/rakyll/hey).
+#
+#   scripts/load-compare.sh [ekstra app-argumenter ...]
+#
+# Med H2 in-memory er alle queries CPU-bundne, så forskellen er lille. Den interessante sammenligning
+# er mod en rigtig database over netværket, fx:
+#   scripts/load-compare.sh --spring.datasource.url=jdbc:mysql://db:3306/dronepizza?useCursorFetch=true \
+#       --spring.datasource.username=... --spring.datasource.password=...
+#
+# Miljøvariabler: PORT (8080), CONCURRENCY (400), DURATION (30s), DB_POOL_SIZE (20).
+set -euo pipefail
+
+PORT="${PORT:-8080}"
+CONCURRENCY="${CONCURRENCY:-400}"
+DURATION="${DURATION:-30s}"
+DB_POOL_SIZE="${DB_POOL_SIZE:-20}"
+BASE="http://localhost:${PORT}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+RESULTS="${ROOT}/target/load-compare"
+
+command -v hey >/dev/null || { echo "hey blev ikke fundet på PATH." >&2; exit 1; }
+
+echo "Bygger med -Pjava21 ..."
+mvn -B -q -f "${ROOT}/pom.xml" -Pjava21 -DskipTests package
+JAR="$(ls "${ROOT}"/target/DronePizza-*.jar | grep -v original | head -1)"
+mkdir -p "${RESULTS}"
+
+APP_PID=""
+stop_app() {
+  if [[ -n "${APP_PID}" ]]; then
+    kill "${APP_PID}" 2>/dev/null || true
+    wait "${APP_PID}" 2>/dev/null || true
+    APP_PID=""
+  fi
+}
+trap stop_app EXIT
+
+run_mode() {
+  local mode="$1" profile="$2"
+  shift 2
+  echo
+  echo "=== ${mode} ==="
+  # Samme puljestørrelse i begge modes, så kun trådmodellen er forskellig
+  java -jar "${JAR}" --server.port="${PORT}" --spring.profiles.active="${profile}" \
+      --spring.datasource.hikari.maximum-pool-size="${DB_POOL_SIZE}" \
+      --spring.jpa.show-sql=false "$@" > "${RESULTS}/${mode}-app.log" 2>&1 &
+  APP_PID=$!
+
+  for _ in $(seq 1 60); do
+    curl -sf "${BASE}/actuator/health" >/dev/null && break
+    sleep 1
+  done
+
+  # Data nok til, at listerne koster noget: 200 droner og 2.000 bestillinger
+  curl -sf -X POST "${BASE}/drones/add?count=200" >/dev/null
+  local orders
+  orders="[$(for i in $(seq 1 2000); do printf '{"pizzaId":1,"address":"Nørrebrogade %d"},' $((i % 50 + 1)); done | sed 's/,$//')]"
+  curl -sf -X POST -H "Content-Type: application/json" -d "${orders}" "${BASE}/deliveries/batch" >/dev/null
+
+  for path in "/deliveries?limit=100" "/deliveries/queue" "/drones"; do
+    echo "--- GET ${path}"
+    hey -z "${DURATION}" -c "${CONCURRENCY}" "${BASE}${path}" > "${RESULTS}/${mode}-$(echo "${path}" | tr -c 'a-z0-9' '_').txt"
+    grep -E "Requests/sec|50%|99%|\[[0-9]{3}\]" "${RESULTS}/${mode}-$(echo "${path}" | tr -c 'a-z0-9' '_').txt"
+  done
+  stop_app
+}
+
+run_mode platform default "$@"
+run_mode virtual virtual "$@"
+
+echo
+echo "Fulde resultater ligger i ${RESULTS}"
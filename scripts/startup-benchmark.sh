@@ -0,0 +1,67 @@
+#!/usr/bin/env bash
+# Måler tiden fra JVM-start til første vellykkede svar på GET /pizzas, før og efter faststart.
+# Kræver curl og et build med mvn -B -Pfaststart -DskipTests verify.
+#
+#   scripts/startup-benchmark.sh [kørsler pr. tilstand, standard 5]
+#
+# Tilstande:
+#   standard   java -jar target/DronePizza-0.0.1-SNAPSHOT.jar (AOT-koden ignoreres uden spring.aot.enabled)
+#   faststart  den udpakkede jar med AppCDS-arkivet, spring.aot.enabled og profilen "faststart"
+#
+# Medianen pr. tilstand skrives til stdout og target/startup-benchmark/results.txt; hver kørsels log ligger ved siden af.
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT="${PORT:-18080}"
+JAR="target/DronePizza-0.0.1-SNAPSHOT.jar"
+FASTSTART_DIR="target/faststart"
+OUT="target/startup-benchmark"
+
+command -v curl >/dev/null || { echo "curl blev ikke fundet på PATH." >&2; exit 1; }
+if [[ ! -f "${JAR}" || ! -f "${FASTSTART_DIR}/application.jsa" ]]; then
+  echo "Byg først med: mvn -B -Pfaststart -DskipTests verify" >&2
+  exit 1
+fi
+mkdir -p "${OUT}"
+
+# Starter appen med de givne JVM-argumenter og udskriver antal millisekunder til første svar
+time_to_first_request() {
+  local log="$1"; shift
+  local start pid elapsed
+  start=$(date +%s%N)
+  java "$@" --server.port="${PORT}" >"${log}" 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null "http://localhost:${PORT}/pizzas"; do
+    if ! kill -0 "${pid}" 2>/dev/null; then
+      echo "Appen stoppede under opstart, se ${log}" >&2
+      exit 1
+    fi
+    sleep 0.01
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  kill "${pid}"
+  wait "${pid}" 2>/dev/null || true
+  echo "${elapsed}"
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+: >"${OUT}/results.txt"
+for mode in standard faststart; do
+  times=()
+  for ((i = 1; i <= RUNS; i++)); do
+    if [[ "${mode}" == standard ]]; then
+      t=$(time_to_first_request "${OUT}/${mode}-${i}.log" -jar "${JAR}")
+    else
+      t=$(time_to_first_request "${OUT}/${mode}-${i}.log" \
+        -XX:SharedArchiveFile="${FASTSTART_DIR}/application.jsa" -Dspring.aot.enabled=true \
+        -jar "${FASTSTART_DIR}/DronePizza-0.0.1-SNAPSHOT.jar" --spring.profiles.active=faststart)
+    fi
+    echo "${mode} kørsel ${i}: ${t} ms" >&2
+    times+=("${t}")
+  done
+  m=$(printf '%s\n' "${times[@]}" | median)
+  printf '%-10s median %6d ms over %d kørsler\n' "${mode}" "${m}" "${RUNS}" | tee -a "${OUT}/results.txt"
+done
@@ -0,0 +1,91 @@
+package com.wzn.dronepizza.benchmark;
+
+import com.wzn.dronepizza.DronePizzaApplication;
+import com.wzn.dronepizza.dto.DeliveryOrder;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.service.DeliveryBatchService;
+import com.wzn.dronepizza.service.DroneService;
+import com.wzn.dronepizza.service.impl.DeliveryBatchServiceImpl;
+import com.wzn.dronepizza.service.impl.DroneServiceImpl;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starter applikationen uden webserver mod sin egen in-memory H2-database og fylder den med testdata.
+ * Hvert benchmark-trial får en ny database, så målingerne ikke påvirker hinanden.
+ */
+final class BenchmarkSupport {
+
+    // Adresser fra gazetteer'en, så leveringerne bliver geokodet som i produktion
+    private static final String[] STREETS = {"Nørrebrogade", "Østerbrogade", "Vesterbrogade", "Amagerbrogade"};
+    private static final String[] POSTCODES = {"2200 København N", "2100 København Ø", "1620 København V", "2300 København S"};
+
+    private BenchmarkSupport() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(DronePizzaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID(),
+                        "spring.jpa.show-sql=false",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "dronepizza.dispatch.enabled=false",
+                        "dronepizza.drone-index.reconcile-interval-ms=3600000")
+                .run();
+    }
+
+    /**
+     * Opretter stationer spredt over København, så stationsopslaget har noget at vælge imellem.
+     */
+    static void seedStations(ConfigurableApplicationContext context, int count) {
+        int side = (int) Math.ceil(Math.sqrt(count));
+        List<Station> stations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stations.add(new Station(55.60 + 0.15 * (i / side) / side, 12.45 + 0.20 * (i % side) / side));
+        }
+        context.getBean(StationRepository.class).saveAll(stations);
+    }
+
+    static Pizza seedPizza(ConfigurableApplicationContext context) {
+        return context.getBean(PizzaRepository.class).save(new Pizza("Benchmark", 75));
+    }
+
+    /**
+     * Opretter droner i bidder af højst MAX_BULK_CREATE, fordelt på stationerne.
+     */
+    static void seedDrones(ConfigurableApplicationContext context, int count) {
+        DroneService droneService = context.getBean(DroneService.class);
+        for (int created = 0; created < count; created += DroneServiceImpl.MAX_BULK_CREATE) {
+            droneService.createDrones(Math.min(DroneServiceImpl.MAX_BULK_CREATE, count - created));
+        }
+    }
+
+    /**
+     * Lægger count leveringer uden drone i køen via batch-endpointets service.
+     */
+    static void seedBacklog(ConfigurableApplicationContext context, Pizza pizza, int count) {
+        DeliveryBatchService batchService = context.getBean(DeliveryBatchService.class);
+        for (int created = 0; created < count; created += DeliveryBatchServiceImpl.MAX_ORDERS) {
+            int size = Math.min(DeliveryBatchServiceImpl.MAX_ORDERS, count - created);
+            List<DeliveryOrder> orders = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                orders.add(new DeliveryOrder(pizza.getId(), address(created + i)));
+            }
+            batchService.createDeliveries(orders);
+        }
+    }
+
+    static String address(int i) {
+        return STREETS[i % STREETS.length] + " " + (i % 150 + 1) + ", " + POSTCODES[i % POSTCODES.length];
+    }
+}
@@ -0,0 +1,48 @@
+package com.wzn.dronepizza.benchmark;
+
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.service.DroneService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Måler DroneService.createDrone: opslag af belastningen pr. station, valg af stationen med færrest droner og insert.
+ * Flåden vokser med én drone pr. kald, hvilket er ubetydeligt i forhold til fleetSize.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateDroneBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int fleetSize;
+
+    @Param({"10", "1000"})
+    public int stationCount;
+
+    private ConfigurableApplicationContext context;
+    private DroneService droneService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkSupport.start();
+        BenchmarkSupport.seedStations(context, stationCount);
+        BenchmarkSupport.seedDrones(context, fleetSize);
+        droneService = context.getBean(DroneService.class);
+    }
+
+    @Benchmark
+    public Drone createDrone() {
+        return droneService.createDrone(new Drone());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
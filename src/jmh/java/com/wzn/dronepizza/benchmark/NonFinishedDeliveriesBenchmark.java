@@ -0,0 +1,61 @@
+package com.wzn.dronepizza.benchmark;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.service.DeliveryService;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Måler opslag af ikke-afsluttede leveringer i læsemodellen, som GET /deliveries og GET /deliveries/queue bruger:
+ * første og sidste side (keyset-paginering) og hele køen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NonFinishedDeliveriesBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int backlog;
+
+    private ConfigurableApplicationContext context;
+    private DeliveryService deliveryService;
+    private long lastPageAfterId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkSupport.start();
+        BenchmarkSupport.seedStations(context, 10);
+        BenchmarkSupport.seedDrones(context, 10);
+        BenchmarkSupport.seedBacklog(context, BenchmarkSupport.seedPizza(context), backlog);
+        deliveryService = context.getBean(DeliveryService.class);
+        List<DeliveryView> open = context.getBean(OpenDeliveryReadModel.class).page(0, backlog);
+        lastPageAfterId = open.get(Math.max(0, open.size() - 100)).id() - 1;
+    }
+
+    @Benchmark
+    public List<DeliveryView> firstPage() {
+        return deliveryService.getNonFinishedDeliveries(0, 100);
+    }
+
+    @Benchmark
+    public List<DeliveryView> lastPage() {
+        return deliveryService.getNonFinishedDeliveries(lastPageAfterId, 100);
+    }
+
+    @Benchmark
+    public List<DeliveryView> queue() {
+        return deliveryService.getAllDeliveriesWithoutDrone();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
@@ -0,0 +1,69 @@
+package com.wzn.dronepizza.benchmark;
+
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.service.DeliveryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Måler DeliveryService.scheduleDelivery: valg af en ledig drone nær adressen og de betingede opdateringer.
+ * Før hvert kald oprettes en ny bestilling, og efter kaldet afsluttes den, så flåden og køen har samme størrelse
+ * gennem hele målingen. Kun selve tildelingen måles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScheduleDeliveryBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int fleetSize;
+
+    @Param({"10", "1000"})
+    public int stationCount;
+
+    @Param({"10", "1000", "100000"})
+    public int backlog;
+
+    private ConfigurableApplicationContext context;
+    private DeliveryService deliveryService;
+    private Long pizzaId;
+    private Long deliveryId;
+    private int orders;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkSupport.start();
+        BenchmarkSupport.seedStations(context, stationCount);
+        Pizza pizza = BenchmarkSupport.seedPizza(context);
+        BenchmarkSupport.seedDrones(context, fleetSize);
+        BenchmarkSupport.seedBacklog(context, pizza, backlog);
+        pizzaId = pizza.getId();
+        deliveryService = context.getBean(DeliveryService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void placeOrder() {
+        deliveryId = deliveryService.createDelivery(pizzaId, BenchmarkSupport.address(orders++)).getId();
+    }
+
+    @Benchmark
+    public Delivery scheduleDelivery() {
+        return deliveryService.scheduleDelivery(deliveryId);
+    }
+
+    @TearDown(Level.Invocation)
+    public void finishDelivery() {
+        deliveryService.finishDelivery(deliveryId);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+}
@@ -3,8 +3,10 @@ package com.wzn.dronepizza;
 import com.wzn.dronepizza.entity.Station;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class DronePizzaApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,76 @@
+package com.wzn.dronepizza.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wzn.dronepizza.dto.ApiResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Begrænser antallet af samtidige requests.
+ * Med virtuelle tråde sætter Tomcats trådpulje ikke længere et loft, så uden denne grænse ville
+ * tusindvis af requests stå i kø hos Hikari og ramme connection-timeout med 500.
+ * Requests, der ikke får en plads inden for queue-timeout, afvises med 503.
+ * Slås til med dronepizza.web.max-concurrent-requests (fx i profilen "virtual").
+ */
+@Component
+@ConditionalOnProperty(name = "dronepizza.web.max-concurrent-requests")
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long queueTimeoutMs;
+    private final byte[] busyResponse;
+
+    public ConcurrencyLimitFilter(@Value("${dronepizza.web.max-concurrent-requests}") int maxConcurrentRequests,
+                                  @Value("${dronepizza.web.queue-timeout-ms:1000}") long queueTimeoutMs,
+                                  ObjectMapper objectMapper) throws IOException {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("dronepizza.web.max-concurrent-requests skal være større end 0.");
+        }
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.busyResponse = objectMapper.writeValueAsBytes(ApiResponse.error("Serveren er optaget. Prøv igen."));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(busyResponse);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Ledige pladser lige nu; bruges af tests.
+     */
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+}
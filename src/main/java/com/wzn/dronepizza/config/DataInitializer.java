@@ -6,67 +6,119 @@ import com.wzn.dronepizza.repository.DeliveryRepository;
 import com.wzn.dronepizza.repository.DroneRepository;
 import com.wzn.dronepizza.repository.PizzaRepository;
 import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.scheduler.OverdueDeliveryDetector;
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.TaskExecutor;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Indlæser nogle få eksempeldata ved opstart, hvis databasen er tom. Med profilen "seed" bruges SyntheticDataSeeder i stedet.
+ * Med dronepizza.data-initializer.async=true (profilen "faststart") sker det i baggrunden, så opstarten ikke venter på det.
+ */
 @Configuration
+@Profile("!seed")
 public class DataInitializer {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
+    /**
+     * Pizzaerne på menuen; bruges også af SyntheticDataSeeder.
+     */
+    static List<Pizza> menu() {
+        return List.of(
+                new Pizza("Margherita", 65),
+                new Pizza("Pepperoni", 75),
+                new Pizza("Hawaii", 80),
+                new Pizza("Vegetariana", 70),
+                new Pizza("Meat Lovers", 90));
+    }
+
     @Bean
     CommandLineRunner initData( // cmdLineRunner gør det muligt at udføre kode efter app er startet, via dens 'run' metode
             StationRepository stationRepo,
             PizzaRepository pizzaRepo,
             DroneRepository droneRepo,
-            DeliveryRepository deliveryRepo
+            DeliveryRepository deliveryRepo,
+            DroneAvailabilityIndex droneAvailabilityIndex,
+            OpenDeliveryReadModel openDeliveries,
+            OverdueDeliveryDetector overdueDetector,
+            @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+            @Value("${dronepizza.data-initializer.async:false}") boolean async
     ) {
         return args -> {
+            // Kun i en tom database, fx ikke når en ny instans starter mod en MySQL med data
+            if (stationRepo.count() > 0) {
+                log.info("Databasen indeholder allerede data; eksempeldata springes over.");
+                return;
+            }
+            if (async) {
+                // Drone-indekset, læsemodellen og deadlines for forsinkede leveringer (ApplicationReadyEvent)
+                // kan være varmet op, før dataene er inde, så de genopbygges bagefter
+                taskExecutor.execute(() -> {
+                    insertSampleData(stationRepo, pizzaRepo, droneRepo, deliveryRepo);
+                    droneAvailabilityIndex.rebuild();
+                    openDeliveries.rebuild();
+                    overdueDetector.warmUp();
+                });
+            } else {
+                insertSampleData(stationRepo, pizzaRepo, droneRepo, deliveryRepo);
+            }
+        };
+    }
 
-            // 1)  stationer
-            Station station1 = new Station(55.41, 12.34);       // "Centrum"
-            Station station2 = new Station(55.42, 12.33);       // Lidt nordvest
-            Station station3 = new Station(55.40, 12.36);       // Lidt sydøst
-            stationRepo.saveAll(List.of(station1, station2, station3));
+    private static void insertSampleData(StationRepository stationRepo,
+                                         PizzaRepository pizzaRepo,
+                                         DroneRepository droneRepo,
+                                         DeliveryRepository deliveryRepo) {
 
-            // 2)  pizzaer
-            Pizza pizza1 = new Pizza("Margherita", 65);
-            Pizza pizza2 = new Pizza("Pepperoni", 75);
-            Pizza pizza3 = new Pizza("Hawaii", 80);
-            Pizza pizza4 = new Pizza("Vegetariana", 70);
-            Pizza pizza5 = new Pizza("Meat Lovers", 90);
-            pizzaRepo.saveAll(List.of(pizza1, pizza2, pizza3, pizza4, pizza5));
+        // 1)  stationer
+        Station station1 = new Station(55.41, 12.34);       // "Centrum"
+        Station station2 = new Station(55.42, 12.33);       // Lidt nordvest
+        Station station3 = new Station(55.40, 12.36);       // Lidt sydøst
+        stationRepo.saveAll(List.of(station1, station2, station3));
 
-            // 3)  Droner
-            Drone drone1 = new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, station1);
-            Drone drone2 = new Drone(UUID.randomUUID(), DroneStatus.UDE_AF_DRIFT, station2);
-            Drone drone3 = new Drone(UUID.randomUUID(), DroneStatus.UDFASET, station3);
-            droneRepo.saveAll(List.of(drone1, drone2, drone3));
+        // 2)  pizzaer
+        List<Pizza> pizzas = pizzaRepo.saveAll(menu());
+        Pizza pizza1 = pizzas.get(0);
+        Pizza pizza2 = pizzas.get(1);
 
-            // 4)  eksempler på Leveringer
-            Delivery delivery1 = new Delivery(
-                    "Nørrebrogade 10, 2200 København N",
-                    LocalDateTime.now().plusMinutes(30),
-                    pizza1
-            );
-            // Delivery starter uden drone og uden actualDeliveryTime
-            deliveryRepo.save(delivery1);
+        // 3)  Droner
+        Drone drone1 = new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, station1);
+        Drone drone2 = new Drone(UUID.randomUUID(), DroneStatus.UDE_AF_DRIFT, station2);
+        Drone drone3 = new Drone(UUID.randomUUID(), DroneStatus.UDFASET, station3);
+        droneRepo.saveAll(List.of(drone1, drone2, drone3));
 
-            // Eksempel på en levering der får tildelt en drone og bliver leveret
-            Delivery delivery2 = new Delivery(
-                    "Østerbrogade 20, 2100 København Ø",
-                    LocalDateTime.now().plusMinutes(30),
-                    pizza2
-            );
-            delivery2.setDrone(drone1);
-            delivery2.setActualDeliveryTime(LocalDateTime.now().plusHours(2));
-            deliveryRepo.save(delivery2);
+        // 4)  eksempler på Leveringer
+        Delivery delivery1 = new Delivery(
+                "Nørrebrogade 10, 2200 København N",
+                LocalDateTime.now().plusMinutes(30),
+                pizza1
+        );
+        // Delivery starter uden drone og uden actualDeliveryTime
+        deliveryRepo.save(delivery1);
 
+        // Eksempel på en levering der får tildelt en drone og bliver leveret
+        Delivery delivery2 = new Delivery(
+                "Østerbrogade 20, 2100 København Ø",
+                LocalDateTime.now().plusMinutes(30),
+                pizza2
+        );
+        delivery2.setDrone(drone1);
+        delivery2.setActualDeliveryTime(LocalDateTime.now().plusHours(2));
+        deliveryRepo.save(delivery2);
 
-            System.out.println("Testdata er indlæst i databasen!");
-        };
+        log.info("Eksempeldata er indlæst i databasen.");
     }
 }
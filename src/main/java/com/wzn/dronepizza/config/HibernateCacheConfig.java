@@ -0,0 +1,30 @@
+package com.wzn.dronepizza.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.UUID;
+
+/**
+ * Giver Hibernates second-level cache sin egen JCache CacheManager med regionerne fra hibernate-cache.conf.
+ * Caffeine deler ellers én CacheManager pr. URI i hele JVM'en, så to kontekster (fx i tests mod hver sin database)
+ * ville se hinandens cachede entities, og den første, der lukkes, ville lukke cachen for den anden.
+ * Hibernate lukker CacheManageren, når EntityManagerFactory lukkes.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    @Bean
+    HibernatePropertiesCustomizer hibernateCacheManagerCustomizer() {
+        // Fragmentet gør URI'en unik; Caffeine læser kun ressourcen før det
+        URI uri = URI.create("classpath:hibernate-cache.conf#" + UUID.randomUUID());
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(uri, HibernateCacheConfig.class.getClassLoader());
+        return properties -> properties.put("hibernate.javax.cache.cache_manager", cacheManager);
+    }
+}
@@ -0,0 +1,135 @@
+package com.wzn.dronepizza.config;
+
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Flytter id-sekvenserne (delivery_seq, drone_seq, pizza_seq, station_seq) forbi det største id i deres tabel
+ * efter hver Flyway-migrering, dvs. ved hver opstart før Hibernate starter.
+ * Rækker indsat uden om sekvensen (auto_increment fra før sekvenserne, en ældre instans under en udrulning
+ * eller manuel SQL) ville ellers få Hibernate til at uddele id'er, der allerede findes.
+ * Hibernate tager id'erne i blokke af ALLOCATION_SIZE (pooled optimizer), og sekvensens værdi er blokkens øverste id,
+ * så næste værdi skal være mindst max(id) + ALLOCATION_SIZE. Sekvenser flyttes kun fremad.
+ * MySQL har ingen sekvenser, så Hibernate bruger en tabel med én række (next_val) pr. sekvens; H2 har rigtige sekvenser.
+ */
+@Component
+public class IdSequenceAligner implements Callback {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    // Skal svare til allocationSize i @SequenceGenerator på entiteterne
+    static final int ALLOCATION_SIZE = 50;
+
+    record IdSequence(String table, String sequence) {
+    }
+
+    static final List<IdSequence> SEQUENCES = List.of(
+            new IdSequence("delivery", "delivery_seq"),
+            new IdSequence("drone", "drone_seq"),
+            new IdSequence("pizza", "pizza_seq"),
+            new IdSequence("station", "station_seq"));
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.AFTER_MIGRATE;
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        try {
+            align(context.getConnection());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Kunne ikke flytte id-sekvenserne forbi eksisterende id'er.", e);
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "IdSequenceAligner";
+    }
+
+    /**
+     * Flytter hver sekvens, der er bagud, og returnerer antallet af flyttede sekvenser.
+     */
+    int align(Connection connection) throws SQLException {
+        int moved = 0;
+        for (IdSequence idSequence : SEQUENCES) {
+            long maxId = maxId(connection, idSequence.table());
+            if (maxId == 0) {
+                continue;
+            }
+            long target = maxId + ALLOCATION_SIZE;
+            boolean changed = isTable(connection, idSequence.sequence())
+                    ? alignTable(connection, idSequence.sequence(), target)
+                    : alignSequence(connection, idSequence.sequence(), target);
+            if (changed) {
+                log.info("{} flyttet til {} (største id i {} er {}).", idSequence.sequence(), target, idSequence.table(), maxId);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    private static long maxId(Connection connection, String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("select coalesce(max(id), 0) from " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private static boolean isTable(Connection connection, String name) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String stored = metaData.storesUpperCaseIdentifiers() ? name.toUpperCase() : name;
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), stored,
+                new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private static boolean alignTable(Connection connection, String table, long target) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                "update " + table + " set next_val = ? where next_val < ?")) {
+            update.setLong(1, target);
+            update.setLong(2, target);
+            return update.executeUpdate() > 0;
+        }
+    }
+
+    // H2: næste værdi står i information_schema.sequences.base_value
+    private static boolean alignSequence(Connection connection, String sequence, long target) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(
+                "select base_value from information_schema.sequences where lower(sequence_name) = ?")) {
+            query.setString(1, sequence);
+            try (ResultSet result = query.executeQuery()) {
+                if (!result.next()) {
+                    throw new IllegalStateException("Sekvensen " + sequence + " findes ikke.");
+                }
+                if (result.getLong(1) >= target) {
+                    return false;
+                }
+            }
+        }
+        try (Statement restart = connection.createStatement()) {
+            restart.execute("alter sequence " + sequence + " restart with " + target);
+        }
+        return true;
+    }
+}
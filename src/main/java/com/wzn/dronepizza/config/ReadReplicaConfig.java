@@ -0,0 +1,71 @@
+package com.wzn.dronepizza.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Læsereplika: slås til ved at sætte dronepizza.datasource.replica.url.
+ * Primæren bygges fra spring.datasource.* som hidtil (inkl. spring.datasource.hikari.*),
+ * replikaen får sin egen, read-only pulje, og resten af applikationen (JPA, Flyway, JdbcTemplate)
+ * bruger den routende datakilde. Uden replika-URL er der kun Spring Boots almindelige datakilde.
+ */
+@Configuration
+@ConditionalOnProperty(name = "dronepizza.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${dronepizza.datasource.replica.url}") String url,
+                                              @Value("${dronepizza.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${dronepizza.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                              @Value("${dronepizza.datasource.replica.pool-size:10}") int poolSize) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                        @Qualifier("replicaDataSource") DataSource replica,
+                                                        MeterRegistry meterRegistry) {
+        return new ReadWriteRoutingDataSource(primary, replica, meterRegistry);
+    }
+
+    /**
+     * Datakilden, resten af applikationen får. Forbindelsen hentes først ved første statement,
+     * så routingen kender transaktionens readOnly-flag.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,70 @@
+package com.wzn.dronepizza.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sender forbindelser i @Transactional(readOnly = true)-servicemetoder til læsereplikaen og alt andet til primæren.
+ * - Skal ligge bag en LazyConnectionDataSourceProxy, så forbindelsen først vælges ved første statement,
+ *   når transaktionens readOnly-flag er sat.
+ * - Spring Datas egne read-only transaktioner (findById, findAll, count, ... kaldt uden om en service-transaktion)
+ *   bliver på primæren, så en skrivning uden ydre transaktion altid kan læse det, den lige har skrevet.
+ * - Er replikaen bagud eller nede (se ReplicaLagMonitor), går alle læsninger til primæren.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    // Navnet på de transaktioner, Spring Data selv starter for CRUD-metoderne
+    private static final String REPOSITORY_TRANSACTION_PREFIX = SimpleJpaRepository.class.getName() + ".";
+
+    // Replikaen bruges først, når lag-målingen har godkendt den
+    private volatile boolean replicaAvailable;
+
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        this.primaryConnections = Counter.builder("dronepizza.datasource.connections")
+                .description("Forbindelser hentet pr. datakilde")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        this.replicaConnections = Counter.builder("dronepizza.datasource.connections")
+                .description("Forbindelser hentet pr. datakilde")
+                .tag("target", "replica")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Target target = routesToReplica() ? Target.REPLICA : Target.PRIMARY;
+        (target == Target.REPLICA ? replicaConnections : primaryConnections).increment();
+        return target;
+    }
+
+    private boolean routesToReplica() {
+        if (!replicaAvailable || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return false;
+        }
+        String transaction = TransactionSynchronizationManager.getCurrentTransactionName();
+        return transaction == null || !transaction.startsWith(REPOSITORY_TRANSACTION_PREFIX);
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    public void setReplicaAvailable(boolean replicaAvailable) {
+        this.replicaAvailable = replicaAvailable;
+    }
+}
@@ -0,0 +1,224 @@
+package com.wzn.dronepizza.config;
+
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Fylder en tom database med syntetiske data i produktionsstørrelse. Slås til med profilen "seed"
+ * i stedet for DataInitializers eksempeldata; mængder og fordeling styres med dronepizza.seed.* (se application-seed.properties).
+ * - Stationer og leveringsadresser spredes tilfældigt inden for en radius om et centrum.
+ * - Dronerne får en blanding af statusser, og en andel af dem i drift er på vej med en åben levering.
+ * - Historiske leveringer er afsluttet inden for de seneste history-days dage; resten af de åbne står i kø.
+ * Samme random-seed giver de samme data (tidspunkterne er relative til opstarten).
+ * Droner og leveringer indsættes med en StatelessSession i JDBC-batches og uden persistence context,
+ * så hukommelsesforbruget ikke vokser med antallet af rækker.
+ */
+@Component
+@Profile("seed")
+public class SyntheticDataSeeder implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataSeeder.class);
+
+    private static final double KM_PER_DEGREE = 111.32;
+
+    // Rækker pr. transaktion, så H2/MySQL ikke skal holde hele seedingen i én transaktion
+    private static final int COMMIT_INTERVAL = 50_000;
+
+    private final StationRepository stationRepository;
+    private final PizzaRepository pizzaRepository;
+    private final SessionFactory sessionFactory;
+
+    private final long randomSeed;
+    private final double centerLatitude;
+    private final double centerLongitude;
+    private final double radiusKm;
+    private final int stationCount;
+    private final int droneCount;
+    private final double disabledRatio;
+    private final double retiredRatio;
+    private final double busyRatio;
+    private final int historicalDeliveries;
+    private final int openDeliveries;
+    private final int historyDays;
+    private final int batchSize;
+
+    public SyntheticDataSeeder(StationRepository stationRepository,
+                               PizzaRepository pizzaRepository,
+                               EntityManagerFactory entityManagerFactory,
+                               @Value("${dronepizza.seed.random-seed:42}") long randomSeed,
+                               @Value("${dronepizza.seed.center-latitude:55.6761}") double centerLatitude,
+                               @Value("${dronepizza.seed.center-longitude:12.5683}") double centerLongitude,
+                               @Value("${dronepizza.seed.radius-km:10}") double radiusKm,
+                               @Value("${dronepizza.seed.stations:50}") int stationCount,
+                               @Value("${dronepizza.seed.drones:5000}") int droneCount,
+                               @Value("${dronepizza.seed.disabled-ratio:0.10}") double disabledRatio,
+                               @Value("${dronepizza.seed.retired-ratio:0.05}") double retiredRatio,
+                               @Value("${dronepizza.seed.busy-ratio:0.30}") double busyRatio,
+                               @Value("${dronepizza.seed.historical-deliveries:1000000}") int historicalDeliveries,
+                               @Value("${dronepizza.seed.open-deliveries:5000}") int openDeliveries,
+                               @Value("${dronepizza.seed.history-days:90}") int historyDays,
+                               @Value("${dronepizza.seed.batch-size:1000}") int batchSize) {
+        if (stationCount < 1 || droneCount < 0 || historicalDeliveries < 0 || openDeliveries < 0 || historyDays < 1
+                || batchSize < 1) {
+            throw new IllegalArgumentException("dronepizza.seed.*: mindst én station, én dags historik og batch-size over 0.");
+        }
+        if (disabledRatio < 0 || retiredRatio < 0 || disabledRatio + retiredRatio > 1 || busyRatio < 0 || busyRatio > 1) {
+            throw new IllegalArgumentException("dronepizza.seed.*-ratio skal være mellem 0 og 1.");
+        }
+        if (historicalDeliveries > 0 && droneCount == 0) {
+            throw new IllegalArgumentException("Historiske leveringer kræver mindst én drone.");
+        }
+        this.stationRepository = stationRepository;
+        this.pizzaRepository = pizzaRepository;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.randomSeed = randomSeed;
+        this.centerLatitude = centerLatitude;
+        this.centerLongitude = centerLongitude;
+        this.radiusKm = radiusKm;
+        this.stationCount = stationCount;
+        this.droneCount = droneCount;
+        this.disabledRatio = disabledRatio;
+        this.retiredRatio = retiredRatio;
+        this.busyRatio = busyRatio;
+        this.historicalDeliveries = historicalDeliveries;
+        this.openDeliveries = openDeliveries;
+        this.historyDays = historyDays;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (stationRepository.count() > 0) {
+            log.info("Databasen indeholder allerede data; syntetisk seeding springes over.");
+            return;
+        }
+        long start = System.nanoTime();
+        Random random = new Random(randomSeed);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Stationer og pizzaer er få og gemmes normalt, så entity-listenerne opdaterer stationsindeks og menu
+        List<Station> stations = new ArrayList<>(stationCount);
+        for (int i = 0; i < stationCount; i++) {
+            double[] point = randomPoint(random);
+            stations.add(new Station(point[0], point[1]));
+        }
+        stations = stationRepository.saveAll(stations);
+        List<Pizza> pizzas = pizzaRepository.saveAll(DataInitializer.menu());
+
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+
+            // Droner: status efter de konfigurerede andele; de første busy-ratio af dem i drift er på vej
+            List<Drone> drones = new ArrayList<>(droneCount);
+            List<Drone> inFlight = new ArrayList<>();
+            for (int i = 0; i < droneCount; i++) {
+                Drone drone = new Drone(new UUID(random.nextLong(), random.nextLong()), randomStatus(random),
+                        stations.get(random.nextInt(stations.size())));
+                drones.add(drone);
+            }
+            long inService = drones.stream().filter(drone -> drone.getStatus() == DroneStatus.I_DRIFT).count();
+            int busy = (int) Math.min(openDeliveries, Math.round(inService * busyRatio));
+            for (Drone drone : drones) {
+                if (inFlight.size() < busy && drone.getStatus() == DroneStatus.I_DRIFT) {
+                    drone.setBusy(true);
+                    inFlight.add(drone);
+                }
+            }
+            insertAll(session, droneCount, drones::get);
+
+            // Historikken indsættes i kronologisk rækkefølge (med tilfældig spredning inden for hvert tidsrum),
+            // så indekset på actualDeliveryTime mest vokser i enden i stedet for at blive splittet tilfældigt
+            long historySeconds = TimeUnit.DAYS.toSeconds(historyDays);
+            LocalDateTime historyStart = now.minusSeconds(historySeconds);
+            double secondsPerDelivery = (double) historySeconds / Math.max(1, historicalDeliveries);
+            insertAll(session, historicalDeliveries, i -> {
+                LocalDateTime ordered = historyStart.plusSeconds((long) ((i + random.nextDouble()) * secondsPerDelivery));
+                Delivery delivery = delivery(random, i, ordered, pizzas);
+                delivery.setDrone(drones.get(random.nextInt(drones.size())));
+                delivery.setActualDeliveryTime(ordered.plusMinutes(10 + random.nextInt(40)));
+                return delivery;
+            });
+
+            // Åbne leveringer er bestilt inden for den sidste time; de første har en drone, resten står i kø
+            insertAll(session, openDeliveries, i -> {
+                Delivery delivery = delivery(random, historicalDeliveries + i, now.minusSeconds(random.nextInt(3600)), pizzas);
+                if (i < inFlight.size()) {
+                    delivery.setDrone(inFlight.get(i));
+                }
+                return delivery;
+            });
+        }
+
+        log.info("Syntetiske data indlæst på {} ms: {} stationer, {} droner, {} historiske og {} åbne leveringer.",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                stationCount, droneCount, historicalDeliveries, openDeliveries);
+    }
+
+    /**
+     * Indsætter count rækker bygget af row og committer for hver COMMIT_INTERVAL rækker.
+     */
+    private static void insertAll(StatelessSession session, int count, IntFunction<Object> row) {
+        Transaction transaction = session.beginTransaction();
+        for (int i = 0; i < count; i++) {
+            session.insert(row.apply(i));
+            if ((i + 1) % COMMIT_INTERVAL == 0) {
+                transaction.commit();
+                transaction = session.beginTransaction();
+            }
+        }
+        transaction.commit();
+    }
+
+    private Delivery delivery(Random random, int number, LocalDateTime ordered, List<Pizza> pizzas) {
+        double[] point = randomPoint(random);
+        Delivery delivery = new Delivery("Seedvej " + (number + 1) + ", København", ordered.plusMinutes(30),
+                pizzas.get(random.nextInt(pizzas.size())));
+        delivery.setOrderedTime(ordered);
+        delivery.setLatitude(point[0]);
+        delivery.setLongitude(point[1]);
+        return delivery;
+    }
+
+    private DroneStatus randomStatus(Random random) {
+        double draw = random.nextDouble();
+        if (draw < retiredRatio) {
+            return DroneStatus.UDFASET;
+        }
+        return draw < retiredRatio + disabledRatio ? DroneStatus.UDE_AF_DRIFT : DroneStatus.I_DRIFT;
+    }
+
+    /**
+     * Tilfældigt punkt jævnt fordelt i cirklen med radius radiusKm om centrum, som {breddegrad, længdegrad}.
+     */
+    private double[] randomPoint(Random random) {
+        double distance = radiusKm * Math.sqrt(random.nextDouble());
+        double angle = 2 * Math.PI * random.nextDouble();
+        double latitude = centerLatitude + distance * Math.cos(angle) / KM_PER_DEGREE;
+        double longitude = centerLongitude
+                + distance * Math.sin(angle) / (KM_PER_DEGREE * Math.cos(Math.toRadians(centerLatitude)));
+        return new double[]{latitude, longitude};
+    }
+}
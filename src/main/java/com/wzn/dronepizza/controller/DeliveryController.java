@@ -1,44 +1,82 @@
 package com.wzn.dronepizza.controller;
 
-import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.dto.ApiResponse;
+import com.wzn.dronepizza.dto.DeliveryOrder;
+import com.wzn.dronepizza.dto.DeliveryOrderResult;
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.service.DeliveryBatchService;
+import com.wzn.dronepizza.service.DeliveryExportService;
 import com.wzn.dronepizza.service.DeliveryService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Controller for leveringer, der returnerer JSON-objekter
- * med "success", "message", og "data".
+ * med "success", "message", og "data" (se ApiResponse).
+ * Leveringer returneres som DeliveryView, ikke som entiteter.
  */
 @RestController
 @RequestMapping("/deliveries")
 public class DeliveryController {
 
+    // Newline-delimited JSON, én levering pr. linje
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final byte[] INVALID_EXPORT_RANGE =
+            "{\"success\":false,\"message\":\"from skal være før to.\"}".getBytes(StandardCharsets.UTF_8);
+
     private final DeliveryService deliveryService;
+    private final DeliveryExportService deliveryExportService;
+    private final DeliveryBatchService deliveryBatchService;
 
-    public DeliveryController(DeliveryService deliveryService) {
+    public DeliveryController(DeliveryService deliveryService, DeliveryExportService deliveryExportService,
+                              DeliveryBatchService deliveryBatchService) {
         this.deliveryService = deliveryService;
+        this.deliveryExportService = deliveryExportService;
+        this.deliveryBatchService = deliveryBatchService;
     }
 
     /**
-     * GET /deliveries
-     * Returnerer alle "ikke-færdige" leveringer.
+     * GET /deliveries?after=0&limit=100
+     * Returnerer "ikke-færdige" leveringer, ældste først, med keyset-paginering.
+     * "nextAfter" i svaret bruges som after til næste side (null når der ikke er flere).
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllNonFinishedDeliveries() {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<List<DeliveryView>>> getAllNonFinishedDeliveries(
+            @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
         try {
-            List<Delivery> list = deliveryService.getAllNonFinishedDeleveries();
-            response.put("success", true);
-            response.put("message", "Fetched all non-finished deliveries.");
-            response.put("data", list);
-            return ResponseEntity.ok(response);
+            List<DeliveryView> list = deliveryService.getNonFinishedDeliveries(after, limit);
+            Long nextAfter = list.size() == limit ? list.get(list.size() - 1).id() : null;
+            return ResponseEntity.ok(ApiResponse.page("Fetched all non-finished deliveries.", list, nextAfter));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /deliveries/{deliveryId}
+     * Returnerer en levering, også når den er afsluttet og flyttet til arkivet.
+     */
+    @GetMapping("/{deliveryId}")
+    public ResponseEntity<ApiResponse<DeliveryView>> getDelivery(@PathVariable Long deliveryId) {
+        try {
+            return ResponseEntity.ok(ApiResponse.ok("Delivery hentet.", deliveryService.getDelivery(deliveryId)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Error: " + e.getMessage()));
         }
     }
 
@@ -48,25 +86,37 @@ public class DeliveryController {
      * Request param: pizzaId, address
      */
     @PostMapping("/add")
-    public ResponseEntity<Map<String, Object>> createDelivery(
+    public ResponseEntity<ApiResponse<DeliveryView>> createDelivery(
             @RequestParam Long pizzaId,
             @RequestParam String address
     ) {
-        Map<String, Object> response = new HashMap<>();
         try {
-            Delivery delivery = deliveryService.createDelivery(pizzaId, address);
-            response.put("success", true);
-            response.put("message", "Delivery oprettet.");
-            response.put("data", delivery);
-            return ResponseEntity.ok(response);
+            DeliveryView delivery = DeliveryView.from(deliveryService.createDelivery(pizzaId, address));
+            return ResponseEntity.ok(ApiResponse.ok("Delivery oprettet.", delivery));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /deliveries/batch
+     * Tilføjer mange bestillinger på én gang.
+     * Body: [{"pizzaId": 1, "address": "..."}, ...]
+     * "data" indeholder ét resultat pr. bestilling; ugyldige bestillinger afvises enkeltvis.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<DeliveryOrderResult>>> createDeliveries(@RequestBody List<DeliveryOrder> orders) {
+        try {
+            List<DeliveryOrderResult> results = deliveryBatchService.createDeliveries(orders);
+            long created = results.stream().filter(DeliveryOrderResult::success).count();
+            return ResponseEntity.ok(ApiResponse.of(created == results.size(),
+                    created + " af " + results.size() + " leveringer oprettet.", results));
         } catch (IllegalArgumentException e) {
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Internal error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
         }
     }
 
@@ -75,18 +125,12 @@ public class DeliveryController {
      * Returnerer alle leveringer, der mangler en drone.
      */
     @GetMapping("/queue")
-    public ResponseEntity<Map<String, Object>> getAllDeliveriesWithoutDrone() {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<List<DeliveryView>>> getAllDeliveriesWithoutDrone() {
         try {
-            List<Delivery> list = deliveryService.getAllDeliveriesWithoutDrone();
-            response.put("success", true);
-            response.put("message", "Hentet alle deliveries uden droner.");
-            response.put("data", list);
-            return ResponseEntity.ok(response);
+            List<DeliveryView> list = deliveryService.getAllDeliveriesWithoutDrone();
+            return ResponseEntity.ok(ApiResponse.ok("Hentet alle deliveries uden droner.", list));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Error: " + e.getMessage()));
         }
     }
 
@@ -96,23 +140,15 @@ public class DeliveryController {
      * Request param: deliveryId, droneId
      */
     @PostMapping("/schedule")
-    public ResponseEntity<Map<String, Object>> scheduleDelivery(@RequestParam Long deliveryId) {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<DeliveryView>> scheduleDelivery(@RequestParam Long deliveryId) {
         try {
-            Delivery scheduled = deliveryService.scheduleDelivery(deliveryId);
-            response.put("success", true);
-            response.put("message", "Delivery scheduled successfully.");
-            response.put("data", scheduled);
-            return ResponseEntity.ok(response);
+            DeliveryView scheduled = DeliveryView.from(deliveryService.scheduleDelivery(deliveryId));
+            return ResponseEntity.ok(ApiResponse.ok("Delivery scheduled successfully.", scheduled));
         } catch (IllegalStateException | IllegalArgumentException e) {
             // Fx "Levering har allerede en drone", "Drone er ikke i drift", "Drone med id X ikke fundet", ...
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Internal error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
         }
     }
 
@@ -122,23 +158,38 @@ public class DeliveryController {
      * Request param: deliveryId
      */
     @PostMapping("/finish")
-    public ResponseEntity<Map<String, Object>> finishDelivery(@RequestParam Long deliveryId) {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<DeliveryView>> finishDelivery(@RequestParam Long deliveryId) {
         try {
-            Delivery finished = deliveryService.finishDelivery(deliveryId);
-            response.put("success", true);
-            response.put("message", "Delivery afleveret.");
-            response.put("data", finished);
-            return ResponseEntity.ok(response);
+            DeliveryView finished = DeliveryView.from(deliveryService.finishDelivery(deliveryId));
+            return ResponseEntity.ok(ApiResponse.ok("Delivery afleveret.", finished));
         } catch (IllegalStateException | IllegalArgumentException e) {
             // Fx "Kan ikke færdiggøre levering, da den ikke har en drone"
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Internal error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /deliveries/export?from=2025-01-01T00:00:00&to=2025-02-01T00:00:00
+     * Streamer hele leveringshistorikken (med pizza, drone og station) som NDJSON.
+     * from/to er valgfrie og filtrerer på forventet leveringstid (from inklusiv, to eksklusiv).
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportDeliveries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        // Svaret skal være en StreamingResponseBody, så fejlsvaret skrives direkte i samme format som de andre endpoints
+        if (from != null && to != null && !from.isBefore(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(INVALID_EXPORT_RANGE));
         }
+        StreamingResponseBody body = out -> deliveryExportService.exportDeliveries(from, to, out);
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .header("Content-Disposition", "attachment; filename=\"deliveries.ndjson\"")
+                .body(body);
     }
 }
@@ -1,14 +1,14 @@
 package com.wzn.dronepizza.controller;
 
+import com.wzn.dronepizza.dto.ApiResponse;
+import com.wzn.dronepizza.dto.DroneView;
 import com.wzn.dronepizza.entity.Drone;
 import com.wzn.dronepizza.service.DroneService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/drones")
@@ -25,41 +25,36 @@ public class DroneController {
      * Returnerer liste af alle droner.
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllDrones() {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<List<DroneView>>> getAllDrones() {
         try {
-            List<Drone> drones = droneService.getAllDrones();
-            response.put("success", true);
-            response.put("message", "Hentet alle droner fra databasen");
-            response.put("data", drones);
-            return ResponseEntity.ok(response);
+            List<DroneView> drones = droneService.getAllDrones();
+            return ResponseEntity.ok(ApiResponse.ok("Hentet alle droner fra databasen", drones));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Fejl ved hetning af droner: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Fejl ved hetning af droner: " + e.getMessage()));
         }
     }
 
     /**
-     * POST /drones/add
-     * Opretter en ny Drone og kobler den til stationen med færrest droner.
+     * POST /drones/add?count=1
+     * Opretter nye Droner og kobler dem til stationerne med færrest droner.
+     * Med count > 1 fordeles dronerne jævnt, og "data" er en liste.
      * Hvis ingen stationer, kastes fejl.
      */
     @PostMapping("/add")
-    public ResponseEntity<Map<String, Object>> createNewDrone() {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<?>> createNewDrone(@RequestParam(defaultValue = "1") int count) {
         try {
-            Drone drone = new Drone(); // blot et tomt Drone-objekt
-            Drone created = droneService.createDrone(drone);
-            response.put("success", true);
-            response.put("message", "Drone oprettet.");
-            response.put("data", created);
-            return ResponseEntity.ok(response);
+            if (count == 1) {
+                Drone drone = new Drone(); // blot et tomt Drone-objekt
+                Drone created = droneService.createDrone(drone);
+                return ResponseEntity.ok(ApiResponse.ok("Drone oprettet.", DroneView.from(created)));
+            }
+            List<DroneView> created = droneService.createDrones(count).stream().map(DroneView::from).toList();
+            return ResponseEntity.ok(ApiResponse.ok(created.size() + " droner oprettet.", created));
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Internal error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
         }
     }
 
@@ -68,22 +63,14 @@ public class DroneController {
      * Ændr en Drone til status "i drift".
      */
     @PostMapping("/enable")
-    public ResponseEntity<Map<String, Object>> enableDrone(@RequestParam long droneId) {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<DroneView>> enableDrone(@RequestParam long droneId) {
         try {
-            Drone updated = droneService.enableDrone(droneId);
-            response.put("success", true);
-            response.put("message", "Drone status: i drift.");
-            response.put("data", updated);
-            return ResponseEntity.ok(response);
+            DroneView updated = DroneView.from(droneService.enableDrone(droneId));
+            return ResponseEntity.ok(ApiResponse.ok("Drone status: i drift.", updated));
         } catch (IllegalArgumentException e) {
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Internal error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
         }
     }
 
@@ -92,22 +79,14 @@ public class DroneController {
      * Ændr en Drone til status "ude af drift".
      */
     @PostMapping("/disable")
-    public ResponseEntity<Map<String, Object>> disableDrone(@RequestParam long droneId) {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<DroneView>> disableDrone(@RequestParam long droneId) {
         try {
-            Drone updated = droneService.disableDrone(droneId);
-            response.put("success", true);
-            response.put("message", "Drone status: Ude af drift.");
-            response.put("data", updated);
-            return ResponseEntity.ok(response);
+            DroneView updated = DroneView.from(droneService.disableDrone(droneId));
+            return ResponseEntity.ok(ApiResponse.ok("Drone status: Ude af drift.", updated));
         } catch (IllegalArgumentException e) {
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Internal error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
         }
     }
 
@@ -116,22 +95,14 @@ public class DroneController {
      * Ændr en Drone til status "udfaset".
      */
     @PostMapping("/retire")
-    public ResponseEntity<Map<String, Object>> retireDrone(@RequestParam long droneId) {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<ApiResponse<DroneView>> retireDrone(@RequestParam long droneId) {
         try {
-            Drone updated = droneService.retireDrone(droneId);
-            response.put("success", true);
-            response.put("message", "Drone status: Udfaset.");
-            response.put("data", updated);
-            return ResponseEntity.ok(response);
+            DroneView updated = DroneView.from(droneService.retireDrone(droneId));
+            return ResponseEntity.ok(ApiResponse.ok("Drone status: Udfaset.", updated));
         } catch (IllegalArgumentException e) {
-            response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Internal error: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ApiResponse.error("Internal error: " + e.getMessage()));
         }
     }
 
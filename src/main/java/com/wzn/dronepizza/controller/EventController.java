@@ -0,0 +1,35 @@
+package com.wzn.dronepizza.controller;
+
+import com.wzn.dronepizza.event.SseEventHub;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/events")
+public class EventController {
+
+    private final SseEventHub sseEventHub;
+
+    public EventController(SseEventHub sseEventHub) {
+        this.sseEventHub = sseEventHub;
+    }
+
+    /**
+     * GET /events
+     * Server-Sent Events med ændringer af leveringer og droner (fx "delivery.created", "drone.disabled").
+     * Browserens EventSource sender selv Last-Event-ID ved genopkobling; lastEventId kan bruges i stedet for headeren.
+     * Id'et er "<epoch>-<nummer>"; er det fra en tidligere opstart, sendes "reset".
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(required = false) String lastEventId
+    ) {
+        return sseEventHub.subscribe(lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+}
@@ -1,45 +1,47 @@
 package com.wzn.dronepizza.controller;
 
-import com.wzn.dronepizza.entity.Pizza;
-import com.wzn.dronepizza.service.PizzaService;
+import com.wzn.dronepizza.dto.ApiResponse;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/pizzas")
 public class PizzaController {
 
-    private final PizzaService pizzaService;
+    private final PizzaMenuCache menuCache;
 
 
-    public PizzaController(PizzaService pizzaService) {
-        this.pizzaService = pizzaService;
+    public PizzaController(PizzaMenuCache menuCache) {
+        this.menuCache = menuCache;
     }
 
     /**
      * GET /pizzas
      * Returnerer liste af alle pizzaer.
+     * Menuen serveres fra cache med ETag; matcher If-None-Match, svares der 304 uden body.
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getAllPizzas() {
-        Map<String, Object> response = new HashMap<>();
+    public ResponseEntity<?> getAllPizzas(WebRequest request) {
         try {
-            List<Pizza> pizzas = pizzaService.getAllPizzas();
-            response.put("success", true);
-            response.put("message", "Hentet alle pizzaer fra databasen");
-            response.put("data", pizzas);
-            return ResponseEntity.ok(response);
+            PizzaMenu menu = menuCache.get();
+            if (request.checkNotModified(menu.etag())) {
+                // Status 304 og ETag er allerede sat på svaret
+                return null;
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(menu.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .body(menu.body());
         } catch (Exception e) {
-            response.put("success", false);
-            response.put("message", "Fejl ved hetning af pizzaer: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Fejl ved hetning af pizzaer: " + e.getMessage()));
         }
     }
 }
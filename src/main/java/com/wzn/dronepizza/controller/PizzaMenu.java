@@ -0,0 +1,7 @@
+package com.wzn.dronepizza.controller;
+
+/**
+ * Den færdigserialiserede menu (JSON-svaret fra GET /pizzas) og dens ETag.
+ */
+public record PizzaMenu(byte[] body, String etag) {
+}
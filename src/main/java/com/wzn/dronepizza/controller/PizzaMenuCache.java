@@ -0,0 +1,91 @@
+package com.wzn.dronepizza.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wzn.dronepizza.dto.ApiResponse;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.service.PizzaService;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holder svaret fra GET /pizzas som færdige JSON-bytes med ETag, så menuen hverken hentes eller serialiseres
+ * ved hvert kald. Bygges første gang efter en ændring; PizzaChangeListener invaliderer den.
+ */
+@Component
+public class PizzaMenuCache {
+
+    private final PizzaService pizzaService;
+    private final ObjectMapper objectMapper;
+
+    // Tælles op ved hver invalidering, så en menu bygget før en ændring ikke gemmes
+    private final AtomicLong generation = new AtomicLong();
+    private volatile PizzaMenu menu;
+    // Lås i stedet for synchronized, så en virtuel tråd ikke binder sin bæretråd, mens menuen hentes fra databasen
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    public PizzaMenuCache(PizzaService pizzaService, ObjectMapper objectMapper) {
+        this.pizzaService = pizzaService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returnerer den cachede menu; databasen spørges kun første gang efter en ændring.
+     */
+    public PizzaMenu get() {
+        PizzaMenu cached = menu;
+        if (cached != null) {
+            return cached;
+        }
+        buildLock.lock();
+        try {
+            if (menu != null) {
+                return menu;
+            }
+            long buildGeneration = generation.get();
+            PizzaMenu built = build(pizzaService.getAllPizzas());
+            if (generation.get() == buildGeneration) {
+                menu = built;
+            }
+            return built;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * Smider den cachede menu væk, så den bygges igen ved næste kald.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        menu = null;
+    }
+
+    private PizzaMenu build(List<Pizza> pizzas) {
+        ApiResponse<List<Pizza>> response = ApiResponse.ok("Hentet alle pizzaer fra databasen", pizzas);
+        try {
+            byte[] body = objectMapper.writeValueAsBytes(response);
+            return new PizzaMenu(body, etagOf(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Kunne ikke serialisere menuen.", e);
+        }
+    }
+
+    /**
+     * Stærk ETag ud fra SHA-256 af indholdet, så samme menu altid giver samme ETag.
+     */
+    private static String etagOf(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 er ikke tilgængelig.", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.wzn.dronepizza.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Fælles svarformat for alle endpoints: "success", "message" og "data".
+ * Felter, der er null, udelades i JSON (fx "data" ved fejl).
+ * @param nextAfter Bruges kun ved keyset-paginering; id der gives som after til næste side.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ApiResponse<T>(boolean success, String message, T data, Long nextAfter) {
+
+    public static <T> ApiResponse<T> ok(String message, T data) {
+        return new ApiResponse<>(true, message, data, null);
+    }
+
+    public static <T> ApiResponse<T> page(String message, T data, Long nextAfter) {
+        return new ApiResponse<>(true, message, data, nextAfter);
+    }
+
+    public static <T> ApiResponse<T> of(boolean success, String message, T data) {
+        return new ApiResponse<>(success, message, data, null);
+    }
+
+    public static <T> ApiResponse<T> error(String message) {
+        return new ApiResponse<>(false, message, null, null);
+    }
+}
@@ -0,0 +1,7 @@
+package com.wzn.dronepizza.dto;
+
+/**
+ * Én bestilling i en samlet ordre til POST /deliveries/batch.
+ */
+public record DeliveryOrder(Long pizzaId, String address) {
+}
@@ -0,0 +1,18 @@
+package com.wzn.dronepizza.dto;
+
+/**
+ * Resultatet for én bestilling i en samlet ordre.
+ * @param index Bestillingens plads i den indsendte liste.
+ * @param deliveryId Id på den oprettede levering, eller null hvis bestillingen blev afvist.
+ * @param message Årsagen, hvis bestillingen blev afvist.
+ */
+public record DeliveryOrderResult(int index, boolean success, Long deliveryId, String message) {
+
+    public static DeliveryOrderResult created(int index, Long deliveryId) {
+        return new DeliveryOrderResult(index, true, deliveryId, null);
+    }
+
+    public static DeliveryOrderResult rejected(int index, String message) {
+        return new DeliveryOrderResult(index, false, null, message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.wzn.dronepizza.dto;
+
+import com.wzn.dronepizza.entity.Delivery;
+
+import java.time.LocalDateTime;
+
+/**
+ * Levering som den returneres fra API'et: kun de kolonner, klienten bruger,
+ * og drone/pizza som id (+ pizzaens titel) i stedet for hele objektgrafen.
+ * Læses direkte fra databasen med en constructor-projektion i DeliveryRepository.
+ */
+public record DeliveryView(Long id,
+                           String address,
+                           Double latitude,
+                           Double longitude,
+                           LocalDateTime expectedDeliveryTime,
+                           LocalDateTime actualDeliveryTime,
+                           Long pizzaId,
+                           String pizzaTitle,
+                           Long droneId,
+                           LocalDateTime orderedTime) {
+
+    /**
+     * Bygger view'et ud fra en allerede indlæst levering (fx efter oprettelse eller tildeling).
+     */
+    public static DeliveryView from(Delivery delivery) {
+        return new DeliveryView(
+                delivery.getId(),
+                delivery.getAddress(),
+                delivery.getLatitude(),
+                delivery.getLongitude(),
+                delivery.getExpectedDeliveryTime(),
+                delivery.getActualDeliveryTime(),
+                delivery.getPizza() != null ? delivery.getPizza().getId() : null,
+                delivery.getPizza() != null ? delivery.getPizza().getTitle() : null,
+                delivery.getDrone() != null ? delivery.getDrone().getId() : null,
+                delivery.getOrderedTime());
+    }
+
+    public DeliveryView withDroneId(Long droneId) {
+        return new DeliveryView(id, address, latitude, longitude, expectedDeliveryTime, actualDeliveryTime,
+                pizzaId, pizzaTitle, droneId, orderedTime);
+    }
+}
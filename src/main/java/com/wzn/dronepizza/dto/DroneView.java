@@ -0,0 +1,22 @@
+package com.wzn.dronepizza.dto;
+
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+
+import java.util.UUID;
+
+/**
+ * Drone som den returneres fra API'et, med stationen som id.
+ * Læses direkte fra databasen med en constructor-projektion i DroneRepository.
+ */
+public record DroneView(Long id, UUID serialNumber, DroneStatus status, Long stationId, boolean busy) {
+
+    public static DroneView from(Drone drone) {
+        return new DroneView(
+                drone.getId(),
+                drone.getSerialNumber(),
+                drone.getStatus(),
+                drone.getStation() != null ? drone.getStation().getId() : null,
+                drone.isBusy());
+    }
+}
@@ -0,0 +1,91 @@
+package com.wzn.dronepizza.entity;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/**
+ * En afsluttet levering, der er flyttet ud af delivery-tabellen af arkiveringsjobbet.
+ * Har samme kolonner og id som den oprindelige levering, så den kan slås op på samme id.
+ * Rækkerne skrives kun med insert ... select (se ArchivedDeliveryRepository) og ændres aldrig.
+ */
+@Entity
+@Immutable
+@Table(name = "delivery_archive", indexes = {
+        // Eksporten filtrerer på forventet leveringstid
+        @Index(name = "idx_delivery_archive_expected_time", columnList = "expectedDeliveryTime")
+})
+public class ArchivedDelivery {
+
+    @Id
+    private Long id;
+
+    private String address;
+
+    private Double latitude;
+    private Double longitude;
+
+    private LocalDateTime orderedTime;
+    private LocalDateTime expectedDeliveryTime;
+    private LocalDateTime actualDeliveryTime;
+
+    @ManyToOne
+    private Drone drone;
+
+    @ManyToOne
+    private Pizza pizza;
+
+    // Leveringens sidste version i delivery-tabellen
+    private long version;
+
+    // Tidspunktet leveringen blev arkiveret
+    private LocalDateTime archivedTime;
+
+    public ArchivedDelivery() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public LocalDateTime getOrderedTime() {
+        return orderedTime;
+    }
+
+    public LocalDateTime getExpectedDeliveryTime() {
+        return expectedDeliveryTime;
+    }
+
+    public LocalDateTime getActualDeliveryTime() {
+        return actualDeliveryTime;
+    }
+
+    public Drone getDrone() {
+        return drone;
+    }
+
+    public Pizza getPizza() {
+        return pizza;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getArchivedTime() {
+        return archivedTime;
+    }
+}
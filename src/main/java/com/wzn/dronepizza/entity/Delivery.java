@@ -6,14 +6,29 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        // Understøtter "ikke afsluttet" (actualDeliveryTime is null) sorteret/pagineret på id
+        @Index(name = "idx_delivery_actual_time_id", columnList = "actualDeliveryTime, id"),
+        // Leveringskøen: uden drone og ikke afsluttet, sorteret på forventet leveringstid og id (dispatch-rækkefølgen)
+        @Index(name = "idx_delivery_queue", columnList = "drone_id, actualDeliveryTime, expectedDeliveryTime, id")
+})
 public class Delivery {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sekvens med pooled allokering (50 id'er pr. kald), så Hibernate kan batche inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "delivery_seq")
+    @SequenceGenerator(name = "delivery_seq", sequenceName = "delivery_seq", allocationSize = 50)
     private Long id;
 
     private String address;
 
+    // Leveringsadressens koordinater, hvis de er kendt
+    private Double latitude;
+    private Double longitude;
+
+    // Tidspunktet bestillingen blev oprettet; bruges til at måle tid til tildeling og levering
+    private LocalDateTime orderedTime;
+
     private LocalDateTime expectedDeliveryTime;
     private LocalDateTime actualDeliveryTime;
 
@@ -23,8 +38,13 @@ public class Delivery {
     @ManyToOne
     private Pizza pizza;
 
+    // Optimistisk låsning, så samtidige ændringer af samme levering ikke overskriver hinanden
+    @Version
+    private long version;
+
     public Delivery(String address, LocalDateTime expectedDeliveryTime, Pizza pizza) {
         this.address = address;
+        this.orderedTime = LocalDateTime.now();
         this.expectedDeliveryTime = expectedDeliveryTime;
         this.pizza = pizza;
     }
@@ -34,6 +54,7 @@ public class Delivery {
     }
     public Delivery(String address, LocalDateTime expectedDeliveryTime, LocalDateTime actualDeliveryTime, Drone drone, Pizza pizza) {
         this.address = address;
+        this.orderedTime = LocalDateTime.now();
         this.expectedDeliveryTime = expectedDeliveryTime;
         this.actualDeliveryTime = actualDeliveryTime;
         this.drone = drone;
@@ -56,6 +77,30 @@ public class Delivery {
         this.address = address;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public LocalDateTime getOrderedTime() {
+        return orderedTime;
+    }
+
+    public void setOrderedTime(LocalDateTime orderedTime) {
+        this.orderedTime = orderedTime;
+    }
+
     public LocalDateTime getExpectedDeliveryTime() {
         return expectedDeliveryTime;
     }
@@ -87,4 +132,12 @@ public class Delivery {
     public void setPizza(Pizza pizza) {
         this.pizza = pizza;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -6,10 +6,16 @@ import jakarta.persistence.*;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        // Droner pr. status med station og busy, så drone-indekset og optællingen læses fra indekset.
+        // Droner pr. station (findAllWithDroneCount) bruger fremmednøglens indeks på station_id.
+        @Index(name = "idx_drone_status_station", columnList = "status, station_id, busy")
+})
 public class Drone {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "drone_seq")
+    @SequenceGenerator(name = "drone_seq", sequenceName = "drone_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -21,6 +27,13 @@ public class Drone {
     @ManyToOne
     private Station station;
 
+    // Optaget (på vej med en levering) eller ledig; uafhængigt af status
+    private boolean busy;
+
+    // Optimistisk låsning; tælles op, når dronen tildeles en levering
+    @Version
+    private long version;
+
     public Drone(UUID serialNumber, DroneStatus status, Station station) {
         this.serialNumber = serialNumber;
         this.status = status;
@@ -66,4 +79,20 @@ public class Drone {
     public void setStation(Station station) {
         this.station = station;
     }
+
+    public boolean isBusy() {
+        return busy;
+    }
+
+    public void setBusy(boolean busy) {
+        this.busy = busy;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
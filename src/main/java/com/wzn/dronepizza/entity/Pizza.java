@@ -1,15 +1,25 @@
 package com.wzn.dronepizza.entity;
 
+import com.wzn.dronepizza.entity.listener.PizzaChangeListener;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "pizza")
+@EntityListeners(PizzaChangeListener.class)
 public class Pizza {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pizza_seq")
+    @SequenceGenerator(name = "pizza_seq", sequenceName = "pizza_seq", allocationSize = 50)
     private Long id;
 
     private String title;
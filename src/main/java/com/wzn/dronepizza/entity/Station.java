@@ -1,15 +1,25 @@
 package com.wzn.dronepizza.entity;
 
+import com.wzn.dronepizza.entity.listener.StationChangeListener;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "station")
+@EntityListeners(StationChangeListener.class)
 public class Station {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "station_seq")
+    @SequenceGenerator(name = "station_seq", sequenceName = "station_seq", allocationSize = 50)
     private Long id;
 
     private double latitude;
@@ -0,0 +1,45 @@
+package com.wzn.dronepizza.entity.listener;
+
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.controller.PizzaMenuCache;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA-listener, der invaliderer den cachede menu, når en pizza oprettes, ændres eller slettes.
+ * Menuen invalideres både med det samme og igen efter commit, så en menu bygget
+ * af en samtidig læsning før commit ikke bliver liggende.
+ */
+@Component
+public class PizzaChangeListener {
+
+    private final ObjectProvider<PizzaMenuCache> menuCache;
+
+    public PizzaChangeListener(ObjectProvider<PizzaMenuCache> menuCache) {
+        this.menuCache = menuCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Pizza pizza) {
+        invalidateMenu();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateMenu();
+                }
+            });
+        }
+    }
+
+    private void invalidateMenu() {
+        menuCache.ifAvailable(PizzaMenuCache::invalidate);
+    }
+}
@@ -0,0 +1,38 @@
+package com.wzn.dronepizza.entity.listener;
+
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.service.StationLocator;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import static com.wzn.dronepizza.service.TransactionHooks.afterCommit;
+
+/**
+ * JPA-listener, der holder stations-indekset opdateret, når en station oprettes, flyttes eller slettes.
+ * Indekset ændres først efter commit, så dispatch aldrig ser en station, der bliver rullet tilbage.
+ * StationLocator hentes først ved brug, da listeneren oprettes sammen med EntityManagerFactory.
+ */
+@Component
+public class StationChangeListener {
+
+    private final ObjectProvider<StationLocator> stationLocator;
+
+    public StationChangeListener(ObjectProvider<StationLocator> stationLocator) {
+        this.stationLocator = stationLocator;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Station station) {
+        afterCommit(() -> stationLocator.ifAvailable(locator -> locator.upsert(station)));
+    }
+
+    @PostRemove
+    public void onRemoved(Station station) {
+        Long stationId = station.getId();
+        afterCommit(() -> stationLocator.ifAvailable(locator -> locator.remove(stationId)));
+    }
+}
@@ -0,0 +1,414 @@
+package com.wzn.dronepizza.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fordeler StateChangeEvents til abonnenter på GET /events som Server-Sent Events.
+ * - Forbindelserne er asynkrone, så en abonnent ikke optager en tråd, mens den venter;
+ *   events skrives af en lille fast pulje af afsendertråde.
+ * - Hver abonnent har en begrænset kø; løber den fuld (langsom klient), lukkes forbindelsen,
+ *   og klienten kan genoptage med Last-Event-ID.
+ * - Et enkelt send må højst tage send-timeout-ms. En klient, der ikke læser, får ellers en afsendertråd til at hænge
+ *   i skrivningen, og med en fast pulje ville få sådanne klienter stoppe events til alle. Abonnenten lukkes,
+ *   tråden afbrydes, og puljen får en ekstra tråd, indtil den hængende skrivning er slut.
+ * - De seneste events gemmes i en ringbuffer, så en klient, der genopretter forbindelsen, får det, den missede.
+ *   Er det for gammelt (eller ukendt), sendes et "reset"-event, og klienten bør hente listen igen.
+ * - Id'er har formen "<epoch>-<nummer>", hvor epoch er tidspunktet for opstarten (ms). Numrene starter forfra ved
+ *   hver opstart; et id fra en tidligere opstart (eller en anden instans) giver derfor altid "reset".
+ */
+@Component
+public class SseEventHub {
+
+    public static final String RESET = "reset";
+
+    private static final Logger log = LoggerFactory.getLogger(SseEventHub.class);
+
+    // Markør i køen for en heartbeat-kommentar
+    private static final StoredEvent HEARTBEAT = new StoredEvent(0, null, null);
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final long sendTimeoutNanos;
+    private final long epoch;
+    private final StoredEvent[] ring;
+    private final ThreadPoolExecutor sender;
+
+    // Guardes af this: id-tildeling, ringbuffer og abonnenter ændres samlet, så replay og nye events ikke overlapper
+    private final Set<Subscriber> subscribers = new HashSet<>();
+    private long lastId;
+
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+
+    public SseEventHub(ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${dronepizza.events.buffer-size:256}") int bufferSize,
+                       @Value("${dronepizza.events.replay-size:1024}") int replaySize,
+                       @Value("${dronepizza.events.sender-threads:4}") int senderThreads,
+                       @Value("${dronepizza.events.timeout-ms:1800000}") long timeoutMs,
+                       @Value("${dronepizza.events.send-timeout-ms:5000}") long sendTimeoutMs) {
+        if (bufferSize <= 0 || replaySize <= 0 || senderThreads <= 0 || sendTimeoutMs <= 0) {
+            throw new IllegalArgumentException(
+                    "buffer-size, replay-size, sender-threads og send-timeout-ms skal være større end 0.");
+        }
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        this.ring = new StoredEvent[replaySize];
+        this.epoch = System.currentTimeMillis();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "sse-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("dronepizza.events.subscribers", this, SseEventHub::subscriberCount)
+                .description("Åbne forbindelser på /events")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("dronepizza.events.published")
+                .description("Events sendt til /events")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("dronepizza.events.dropped")
+                .description("Abonnenter lukket, fordi de ikke kunne følge med")
+                .register(meterRegistry);
+        Gauge.builder("dronepizza.events.stalled-sends", sender, executor -> executor.getCorePoolSize() - senderThreads)
+                .description("Afsendertråde, der hænger i en skrivning til en lukket abonnent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Åbner en ny forbindelse.
+     * @param lastEventId Sidste event, klienten har modtaget, eller null for kun nye events.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        subscribe(lastEventId, emitter);
+        return emitter;
+    }
+
+    void subscribe(String lastEventId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter, bufferSize);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+
+        synchronized (this) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Publicerer domæne-events, når transaktionen er committed (eller med det samme uden transaktion),
+     * så klienterne aldrig ser en ændring, der bliver rullet tilbage.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStateChange(StateChangeEvent event) {
+        try {
+            publish(event.type(), objectMapper.writeValueAsString(event.data()));
+        } catch (JsonProcessingException e) {
+            log.error("Kunne ikke serialisere event {}.", event.type(), e);
+        }
+    }
+
+    /**
+     * Sender en kommentar til alle abonnenter, så proxies holder forbindelsen åben, og døde forbindelser opdages.
+     */
+    @Scheduled(fixedDelayString = "${dronepizza.events.heartbeat-ms:15000}",
+            initialDelayString = "${dronepizza.events.heartbeat-ms:15000}")
+    public void heartbeat() {
+        Fanout fanout;
+        synchronized (this) {
+            fanout = enqueue(HEARTBEAT);
+        }
+        fanout.dispatch();
+    }
+
+    /**
+     * Lukker abonnenter, hvis igangværende send har taget mere end send-timeout-ms.
+     * Den hængende tråd afbrydes, og puljen får en tråd ekstra, så de andre abonnenter ikke venter på den.
+     */
+    @Scheduled(fixedDelayString = "${dronepizza.events.send-check-ms:1000}",
+            initialDelayString = "${dronepizza.events.send-check-ms:1000}")
+    public void dropStalledSubscribers() {
+        List<Subscriber> open;
+        synchronized (this) {
+            open = new ArrayList<>(subscribers);
+        }
+        long now = System.nanoTime();
+        for (Subscriber subscriber : open) {
+            if (subscriber.stall(now, sendTimeoutNanos) && remove(subscriber)) {
+                droppedCounter.increment();
+                resizeSender(1);
+                log.debug("Lukker abonnent på /events, hvis send har hængt i mere end {} ms.",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+            }
+        }
+    }
+
+    public synchronized int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<Subscriber> open;
+        synchronized (this) {
+            open = new ArrayList<>(subscribers);
+            subscribers.clear();
+        }
+        open.forEach(subscriber -> subscriber.emitter.complete());
+        sender.shutdownNow();
+    }
+
+    /**
+     * Giver eventet næste id, gemmer det i ringbufferen og lægger det i alle abonnenters køer.
+     * Sker under samme lås, så alle ser events i id-rækkefølge, og en ny abonnent hverken mister eller får dubletter.
+     */
+    long publish(String type, String json) {
+        StoredEvent event;
+        Fanout fanout;
+        synchronized (this) {
+            event = new StoredEvent(++lastId, type, json);
+            ring[(int) (event.id() % ring.length)] = event;
+            fanout = enqueue(event);
+        }
+        fanout.dispatch();
+        publishedCounter.increment();
+        return event.id();
+    }
+
+    /**
+     * Kaldes med låsen holdt; at skrive til forbindelserne sker bagefter, uden låsen.
+     */
+    private Fanout enqueue(StoredEvent event) {
+        List<Subscriber> ready = new ArrayList<>();
+        List<Subscriber> slow = new ArrayList<>();
+        for (Subscriber subscriber : subscribers) {
+            (subscriber.queue.offer(event) ? ready : slow).add(subscriber);
+        }
+        return new Fanout(ready, slow);
+    }
+
+    /**
+     * Lægger de events, klienten har misset, i dens kø. Kaldes med låsen holdt.
+     */
+    private void replay(Subscriber subscriber, String lastEventId) {
+        Long lastSeen = sequenceOf(lastEventId);
+        long oldest = Math.max(1, lastId - ring.length + 1);
+        if (lastSeen == null || lastSeen > lastId || lastSeen < oldest - 1 || lastId - lastSeen > bufferSize) {
+            subscriber.queue.offer(new StoredEvent(lastId, RESET, "{}"));
+            return;
+        }
+        for (long id = lastSeen + 1; id <= lastId; id++) {
+            subscriber.queue.offer(ring[(int) (id % ring.length)]);
+        }
+    }
+
+    /**
+     * Eventets id, som klienten ser det.
+     */
+    String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Nummeret i et id fra denne opstart, eller null, hvis id'et er fra en anden opstart eller ikke kan læses.
+     */
+    private Long sequenceOf(String eventId) {
+        int separator = eventId.indexOf('-');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            if (Long.parseLong(eventId.substring(0, separator)) != epoch) {
+                return null;
+            }
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.draining.set(false); // afsenderen er lukket ned
+            }
+        }
+    }
+
+    /**
+     * Skriver abonnentens kø til forbindelsen. Højst én afsender pr. abonnent ad gangen, så rækkefølgen holdes.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            StoredEvent event;
+            while (!subscriber.stalled && (event = subscriber.queue.poll()) != null) {
+                subscriber.sendStarted();
+                try {
+                    if (event == HEARTBEAT) {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(eventId(event.id()))
+                                .name(event.type())
+                                .data(event.json(), MediaType.APPLICATION_JSON));
+                    }
+                } finally {
+                    if (subscriber.sendFinished()) {
+                        // Den hængende skrivning er slut (eller afbrudt); tråden er tilbage, og den ekstra kan gå igen
+                        resizeSender(-1);
+                    }
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Klienten er væk, eller forbindelsen er allerede lukket
+            remove(subscriber);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+            if (subscriber.stalled) {
+                subscriber.emitter.complete();
+            }
+        }
+        if (subscriber.stalled) {
+            return;
+        }
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber); // et event kom ind, mens afsenderen var ved at stoppe
+        }
+    }
+
+    private void drop(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            droppedCounter.increment();
+            log.debug("Lukker langsom abonnent på /events.");
+            subscriber.emitter.complete();
+        }
+    }
+
+    private synchronized boolean remove(Subscriber subscriber) {
+        return subscribers.remove(subscriber);
+    }
+
+    /**
+     * Ændrer puljens størrelse med delta. Maksimum skal hele tiden være mindst kernestørrelsen,
+     * så den ene hæves først, og den anden sænkes først.
+     */
+    private void resizeSender(int delta) {
+        synchronized (sender) {
+            int size = sender.getCorePoolSize() + delta;
+            if (delta > 0) {
+                sender.setMaximumPoolSize(size);
+                sender.setCorePoolSize(size);
+            } else {
+                sender.setCorePoolSize(size);
+                sender.setMaximumPoolSize(size);
+            }
+        }
+    }
+
+    private record StoredEvent(long id, String type, String json) {
+    }
+
+    // Abonnenter, der fik eventet i køen, og abonnenter, hvis kø var fuld
+    private final class Fanout {
+        private final List<Subscriber> ready;
+        private final List<Subscriber> slow;
+
+        private Fanout(List<Subscriber> ready, List<Subscriber> slow) {
+            this.ready = ready;
+            this.slow = slow;
+        }
+
+        private void dispatch() {
+            slow.forEach(SseEventHub.this::drop);
+            ready.forEach(SseEventHub.this::schedule);
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<StoredEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        // Guardes af subscriber: tråden, der er i gang med et send, og hvornår det begyndte (0 = intet send)
+        private Thread sendingThread;
+        private long sendingSince;
+        private boolean interrupted;
+        private volatile boolean stalled;
+
+        private Subscriber(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private synchronized void sendStarted() {
+            sendingThread = Thread.currentThread();
+            sendingSince = System.nanoTime();
+        }
+
+        /**
+         * Returnerer true, hvis sendet blev afbrudt af stall.
+         */
+        private synchronized boolean sendFinished() {
+            sendingThread = null;
+            sendingSince = 0;
+            Thread.interrupted(); // en afbrydelse gjaldt kun dette send og må ikke følge tråden videre i puljen
+            boolean wasInterrupted = interrupted;
+            interrupted = false;
+            return wasInterrupted;
+        }
+
+        /**
+         * Markerer abonnenten som hængende og afbryder skrivningen, hvis sendet har taget mere end timeout.
+         * Returnerer true første gang.
+         */
+        private synchronized boolean stall(long now, long timeoutNanos) {
+            if (stalled || sendingThread == null || now - sendingSince <= timeoutNanos) {
+                return false;
+            }
+            stalled = true;
+            interrupted = true;
+            sendingThread.interrupt();
+            return true;
+        }
+    }
+}
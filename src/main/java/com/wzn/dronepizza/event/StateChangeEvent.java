@@ -0,0 +1,62 @@
+package com.wzn.dronepizza.event;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.dto.DroneView;
+
+import java.util.List;
+
+/**
+ * Domæne-event, der publiceres, når en levering eller drone skifter tilstand.
+ * Sendes til klienterne på GET /events, når transaktionen er committed.
+ * @param type Eventets navn, fx "delivery.created".
+ * @param data Leveringen eller dronen efter ændringen.
+ */
+public record StateChangeEvent(String type, Object data) {
+
+    public static final String DELIVERY_CREATED = "delivery.created";
+    public static final String DELIVERIES_CREATED = "deliveries.created";
+    public static final String DELIVERY_SCHEDULED = "delivery.scheduled";
+    public static final String DELIVERY_FINISHED = "delivery.finished";
+    public static final String DELIVERY_OVERDUE = "delivery.overdue";
+    public static final String DRONE_ENABLED = "drone.enabled";
+    public static final String DRONE_DISABLED = "drone.disabled";
+    public static final String DRONE_RETIRED = "drone.retired";
+
+    public static StateChangeEvent deliveryCreated(DeliveryView delivery) {
+        return new StateChangeEvent(DELIVERY_CREATED, delivery);
+    }
+
+    /**
+     * Mange leveringer oprettet på én gang (POST /deliveries/batch); data er listen af id'er.
+     */
+    public static StateChangeEvent deliveriesCreated(List<Long> deliveryIds) {
+        return new StateChangeEvent(DELIVERIES_CREATED, deliveryIds);
+    }
+
+    public static StateChangeEvent deliveryScheduled(DeliveryView delivery) {
+        return new StateChangeEvent(DELIVERY_SCHEDULED, delivery);
+    }
+
+    public static StateChangeEvent deliveryFinished(DeliveryView delivery) {
+        return new StateChangeEvent(DELIVERY_FINISHED, delivery);
+    }
+
+    /**
+     * Den forventede leveringstid er passeret, uden at leveringen er afsluttet.
+     */
+    public static StateChangeEvent deliveryOverdue(DeliveryView delivery) {
+        return new StateChangeEvent(DELIVERY_OVERDUE, delivery);
+    }
+
+    public static StateChangeEvent droneEnabled(DroneView drone) {
+        return new StateChangeEvent(DRONE_ENABLED, drone);
+    }
+
+    public static StateChangeEvent droneDisabled(DroneView drone) {
+        return new StateChangeEvent(DRONE_DISABLED, drone);
+    }
+
+    public static StateChangeEvent droneRetired(DroneView drone) {
+        return new StateChangeEvent(DRONE_RETIRED, drone);
+    }
+}
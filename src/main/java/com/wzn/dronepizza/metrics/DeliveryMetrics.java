@@ -0,0 +1,170 @@
+package com.wzn.dronepizza.metrics;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.DroneStatusCount;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forretningsmetrikker for leveringer og droner:
+ * - dronepizza.deliveries.queued: leveringer, der venter på en drone. Dispatcheren fodrer den efter hver runde.
+ * - dronepizza.drones{status}: droner pr. DroneStatus.
+ * - dronepizza.delivery.time.to.assign / time.to.deliver: histogrammer over tiden fra bestilling
+ *   til tildeling og til levering, målt på committede events.
+ * Gauges læses fra databasen, men højst én gang pr. refresh-interval, uanset hvor ofte der scrapes.
+ * Oprettes altid ved opstart, også med spring.main.lazy-initialization, så gauges findes fra første scrape.
+ */
+@Component
+@Lazy(false)
+public class DeliveryMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryMetrics.class);
+
+    private static final DroneStatus[] STATUSES = DroneStatus.values();
+
+    private final DeliveryRepository deliveryRepository;
+    private final DroneRepository droneRepository;
+    private final long refreshIntervalNanos;
+
+    private final Timer timeToAssign;
+    private final Timer timeToDeliver;
+
+    // Guardes af this
+    private long queued;
+    private long queuedAt;
+    private boolean queuedRefreshed;
+    private final long[] dronesByStatus = new long[STATUSES.length];
+    private long dronesAt;
+    private boolean dronesRefreshed;
+
+    public DeliveryMetrics(DeliveryRepository deliveryRepository,
+                           DroneRepository droneRepository,
+                           MeterRegistry meterRegistry,
+                           @Value("${dronepizza.metrics.gauge-refresh-ms:5000}") long refreshIntervalMs) {
+        this.deliveryRepository = deliveryRepository;
+        this.droneRepository = droneRepository;
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMs);
+
+        Gauge.builder("dronepizza.deliveries.queued", this, DeliveryMetrics::queued)
+                .description("Leveringer uden drone, der ikke er afsluttet")
+                .register(meterRegistry);
+        for (DroneStatus status : STATUSES) {
+            Gauge.builder("dronepizza.drones", this, metrics -> metrics.drones(status))
+                    .tag("status", status.name())
+                    .description("Droner pr. status")
+                    .register(meterRegistry);
+        }
+        this.timeToAssign = Timer.builder("dronepizza.delivery.time.to.assign")
+                .description("Tid fra bestilling til en drone er tildelt")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofSeconds(1))
+                .maximumExpectedValue(Duration.ofHours(3))
+                .register(meterRegistry);
+        this.timeToDeliver = Timer.builder("dronepizza.delivery.time.to.deliver")
+                .description("Tid fra bestilling til levering")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMinutes(1))
+                .maximumExpectedValue(Duration.ofHours(3))
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registrerer tiden fra bestilling, når en tildeling eller levering er committed.
+     * Leveringer fra før bestillingstiden blev gemt (orderedTime = null) springes over.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStateChange(StateChangeEvent event) {
+        if (!(event.data() instanceof DeliveryView delivery) || delivery.orderedTime() == null) {
+            return;
+        }
+        switch (event.type()) {
+            case StateChangeEvent.DELIVERY_SCHEDULED -> record(timeToAssign, delivery.orderedTime(), LocalDateTime.now());
+            case StateChangeEvent.DELIVERY_FINISHED -> record(timeToDeliver, delivery.orderedTime(), delivery.actualDeliveryTime());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Sætter køens længde til et tal, der lige er talt (fx af dispatcheren efter en runde),
+     * så næste scrape ikke spørger databasen igen inden for refresh-intervallet.
+     */
+    public synchronized void recordQueued(long count) {
+        queued = count;
+        queuedAt = System.nanoTime();
+        queuedRefreshed = true;
+    }
+
+    /**
+     * Køens længde; hentes fra databasen, hvis den er ældre end refresh-intervallet.
+     * Fejler det, beholdes det forrige tal, så en scrape aldrig fejler på grund af databasen.
+     */
+    synchronized double queued() {
+        long now = System.nanoTime();
+        if (isStale(queuedRefreshed, queuedAt, now)) {
+            try {
+                queued = deliveryRepository.countByDroneIsNullAndActualDeliveryTimeIsNull();
+            } catch (RuntimeException e) {
+                log.warn("Kunne ikke opdatere leveringskøens længde.", e);
+            }
+            queuedAt = now;
+            queuedRefreshed = true;
+        }
+        return queued;
+    }
+
+    synchronized double drones(DroneStatus status) {
+        refreshDronesIfStale();
+        return dronesByStatus[status.ordinal()];
+    }
+
+    private static void record(Timer timer, LocalDateTime from, LocalDateTime to) {
+        if (to != null) {
+            timer.record(Math.max(0, ChronoUnit.MILLIS.between(from, to)), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private boolean isStale(boolean refreshed, long refreshedAt, long now) {
+        return !refreshed || now - refreshedAt >= refreshIntervalNanos;
+    }
+
+    /**
+     * Henter antal droner pr. status med én query. Kaldes med låsen holdt.
+     * Fejler det, beholdes de forrige tal, så en scrape aldrig fejler på grund af databasen.
+     */
+    private void refreshDronesIfStale() {
+        long now = System.nanoTime();
+        if (!isStale(dronesRefreshed, dronesAt, now)) {
+            return;
+        }
+        try {
+            Arrays.fill(dronesByStatus, 0);
+            for (DroneStatusCount count : droneRepository.countByStatus()) {
+                if (count.getStatus() != null) {
+                    dronesByStatus[count.getStatus().ordinal()] = count.getDroneCount();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Kunne ikke opdatere dronemetrikker.", e);
+        }
+        dronesAt = now;
+        dronesRefreshed = true;
+    }
+}
@@ -0,0 +1,61 @@
+package com.wzn.dronepizza.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timere pr. (klasse, metode) med tagget outcome = success eller error.
+ * Timerne oprettes første gang en metode kaldes og genbruges derefter, så et kald kun koster
+ * to opslag i et map og ingen nye tags eller meter-opslag i registry'et.
+ */
+final class MethodTimers {
+
+    private static final int SUCCESS = 0;
+    private static final int ERROR = 1;
+
+    private final String metricName;
+    private final String ownerTag;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<Class<?>, Map<Method, Timer[]>> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param ownerTag Navnet på tagget med klassens navn, fx "class" eller "repository".
+     * @param meterRegistry Slås først op ved første kald, så post-processorerne ikke tvinger registry'et frem tidligt.
+     */
+    MethodTimers(String metricName, String ownerTag, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.metricName = metricName;
+        this.ownerTag = ownerTag;
+        this.meterRegistry = meterRegistry;
+    }
+
+    void record(Class<?> owner, Method method, boolean success, long durationNanos) {
+        Map<Method, Timer[]> byMethod = timers.get(owner);
+        if (byMethod == null) {
+            byMethod = timers.computeIfAbsent(owner, key -> new ConcurrentHashMap<>());
+        }
+        Timer[] pair = byMethod.get(method);
+        if (pair == null) {
+            pair = byMethod.computeIfAbsent(method, key -> register(owner, key));
+        }
+        pair[success ? SUCCESS : ERROR].record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer[] register(Class<?> owner, Method method) {
+        MeterRegistry registry = meterRegistry.getObject();
+        return new Timer[]{timer(registry, owner, method, "success"), timer(registry, owner, method, "error")};
+    }
+
+    private Timer timer(MeterRegistry registry, Class<?> owner, Method method, String outcome) {
+        return Timer.builder(metricName)
+                .tag(ownerTag, owner.getSimpleName())
+                .tag("method", method.getName())
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.wzn.dronepizza.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocation;
+import org.springframework.data.repository.core.support.RepositoryMethodInvocationListener.RepositoryMethodInvocationResult.State;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Måler alle kald til Spring Data-repositories som timeren dronepizza.repository.calls{repository, method, outcome}.
+ * Erstatter Spring Boots spring.data.repository.invocations (slået fra i application.properties),
+ * der bygger tags ved hvert kald.
+ */
+@Component
+public class RepositoryTimingPostProcessor implements BeanPostProcessor {
+
+    private final MethodTimers timers;
+
+    public RepositoryTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.timers = new MethodTimers("dronepizza.repository.calls", "repository", meterRegistry);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        // Skal ske før afterPropertiesSet, hvor fabrikken opretter repository-proxyen
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(this::record));
+        }
+        return bean;
+    }
+
+    private void record(RepositoryMethodInvocation invocation) {
+        timers.record(invocation.getRepositoryInterface(), invocation.getMethod(),
+                invocation.getResult().getState() == State.SUCCESS, invocation.getDuration(TimeUnit.NANOSECONDS));
+    }
+}
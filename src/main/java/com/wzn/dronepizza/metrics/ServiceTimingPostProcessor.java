@@ -0,0 +1,60 @@
+package com.wzn.dronepizza.metrics;
+
+import com.wzn.dronepizza.service.DeliveryBatchService;
+import com.wzn.dronepizza.service.DeliveryService;
+import com.wzn.dronepizza.service.DroneService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.ClassFilter;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Måler varigheden af alle kald til servicemetoderne på DeliveryService, DroneService og DeliveryBatchService
+ * som timeren dronepizza.service.calls{class, method, outcome}.
+ * Rådgivningen lægges forrest i servicens eksisterende proxy (fx den transaktionelle),
+ * så målingen også dækker commit.
+ */
+@Component
+public class ServiceTimingPostProcessor extends AbstractAdvisingBeanPostProcessor {
+
+    private static final List<Class<?>> TIMED_SERVICES =
+            List.of(DeliveryService.class, DroneService.class, DeliveryBatchService.class);
+
+    public ServiceTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        MethodTimers timers = new MethodTimers("dronepizza.service.calls", "class", meterRegistry);
+        MethodInterceptor timing = invocation -> {
+            long start = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = invocation.proceed();
+                success = true;
+                return result;
+            } finally {
+                timers.record(invocation.getThis().getClass(), invocation.getMethod(), success,
+                        System.nanoTime() - start);
+            }
+        };
+        ClassFilter timedClasses = clazz -> TIMED_SERVICES.stream().anyMatch(service -> service.isAssignableFrom(clazz));
+        this.advisor = new DefaultPointcutAdvisor(new ComposablePointcut(timedClasses, new ServiceMethodMatcher()), timing);
+        setBeforeExistingAdvisors(true);
+    }
+
+    // Kun metoder fra service-interfacene, ikke fx toString eller private hjælpere
+    private static final class ServiceMethodMatcher extends StaticMethodMatcher {
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return TIMED_SERVICES.stream().anyMatch(service ->
+                    service.isAssignableFrom(targetClass)
+                            && ClassUtils.hasMethod(service, method.getName(), method.getParameterTypes()));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.wzn.dronepizza.repository;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.entity.ArchivedDelivery;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+@Repository
+public interface ArchivedDeliveryRepository extends JpaRepository<ArchivedDelivery, Long> {
+
+    /**
+     * Kopierer de afsluttede leveringer med de givne id'er fra delivery til delivery_archive i ét statement,
+     * uden at rækkerne indlæses i applikationen.
+     * @return Antal kopierede rækker.
+     */
+    @Modifying
+    @Query(value = "insert into delivery_archive (id, address, latitude, longitude, ordered_time, " +
+            "expected_delivery_time, actual_delivery_time, drone_id, pizza_id, version, archived_time) " +
+            "select id, address, latitude, longitude, ordered_time, expected_delivery_time, actual_delivery_time, " +
+            "drone_id, pizza_id, version, :archivedTime from delivery " +
+            "where id in (:ids) and actual_delivery_time is not null", nativeQuery = true)
+    int copyFromDeliveries(@Param("ids") Collection<Long> ids, @Param("archivedTime") LocalDateTime archivedTime);
+
+    @Query("select new com.wzn.dronepizza.dto.DeliveryView(a.id, a.address, a.latitude, a.longitude, " +
+            "a.expectedDeliveryTime, a.actualDeliveryTime, p.id, p.title, a.drone.id, a.orderedTime) " +
+            "from ArchivedDelivery a left join a.pizza p where a.id = :id")
+    Optional<DeliveryView> findViewById(@Param("id") Long id);
+
+    /**
+     * Som DeliveryRepository.streamForExport, men for arkivet.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select a from ArchivedDelivery a left join fetch a.pizza left join fetch a.drone dr left join fetch dr.station " +
+            "where (:from is null or a.expectedDeliveryTime >= :from) and (:to is null or a.expectedDeliveryTime < :to) " +
+            "order by a.id")
+    Stream<ArchivedDelivery> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,13 @@
+package com.wzn.dronepizza.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projektion med kun en leverings id og forventede leveringstid.
+ */
+public interface DeliveryDeadline {
+
+    Long getId();
+
+    LocalDateTime getExpectedDeliveryTime();
+}
@@ -1,12 +1,113 @@
 package com.wzn.dronepizza.repository;
 
+import com.wzn.dronepizza.dto.DeliveryView;
 import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Drone;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+import static org.hibernate.jpa.SpecHints.HINT_SPEC_LOCK_TIMEOUT;
 
 @Repository
 public interface DeliveryRepository extends JpaRepository<Delivery,Long> {
-    List<Delivery> findByDroneIsNullAndActualDeliveryTimeIsNull();
+    // Lock timeout, der får Hibernate til at bruge SKIP LOCKED (LockOptions.SKIP_LOCKED)
+    String SKIP_LOCKED = "-2";
+
+    /**
+     * Leveringen låst til transaktionens slutning. scheduleDelivery låser leveringen før dronen, i samme rækkefølge
+     * som dispatch, så de to ikke kan vente på hinanden (deadlock).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d from Delivery d where d.id = :id")
+    Optional<Delivery> lockById(@Param("id") Long id);
+
+    /**
+     * Op til limit leveringer fra køen (ældste forventede leveringstid først), låst til transaktionens slutning,
+     * så dispatch kan tildele dem uden at en samtidig tildeling når imellem.
+     * Rækker, en anden transaktion har låst (fx dispatch på en anden instans), springes over (SKIP LOCKED).
+     * Pizzaen hentes ikke med join, så kun leveringsrækkerne låses; den læses fra second-level cachen.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = HINT_SPEC_LOCK_TIMEOUT, value = SKIP_LOCKED))
+    @Query("select d from Delivery d where d.drone is null and d.actualDeliveryTime is null " +
+            "order by d.expectedDeliveryTime, d.id")
+    List<Delivery> lockQueueForDispatch(Limit limit);
+
+    long countByDroneIsNullAndActualDeliveryTimeIsNull();
+
+    /**
+     * Alle ikke-afsluttede leveringer som views; læsemodellen indlæses med denne.
+     */
+    @Query("select new com.wzn.dronepizza.dto.DeliveryView(d.id, d.address, d.latitude, d.longitude, " +
+            "d.expectedDeliveryTime, d.actualDeliveryTime, p.id, p.title, d.drone.id, d.orderedTime) " +
+            "from Delivery d left join d.pizza p " +
+            "where d.actualDeliveryTime is null order by d.id")
+    List<DeliveryView> findOpenViews();
+
+    /**
+     * Id og forventet leveringstid for alle ikke-afsluttede leveringer; overvågningen af forsinkelser indlæses med denne.
+     */
+    @Query("select d.id as id, d.expectedDeliveryTime as expectedDeliveryTime from Delivery d " +
+            "where d.actualDeliveryTime is null")
+    List<DeliveryDeadline> findOpenDeadlines();
+
+    @Query("select d.id as id, d.expectedDeliveryTime as expectedDeliveryTime from Delivery d " +
+            "where d.id in :ids and d.actualDeliveryTime is null")
+    List<DeliveryDeadline> findOpenDeadlinesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.wzn.dronepizza.dto.DeliveryView(d.id, d.address, d.latitude, d.longitude, " +
+            "d.expectedDeliveryTime, d.actualDeliveryTime, p.id, p.title, d.drone.id, d.orderedTime) " +
+            "from Delivery d left join d.pizza p where d.id = :id")
+    Optional<DeliveryView> findViewById(@Param("id") Long id);
+
+    /**
+     * Id'er på leveringer afsluttet før cutoff, ældste først. Læses fra indekset på (actualDeliveryTime, id).
+     */
+    @Query("select d.id from Delivery d where d.actualDeliveryTime < :cutoff order by d.actualDeliveryTime, d.id")
+    List<Long> findFinishedIdsBefore(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    /**
+     * Sletter de afsluttede leveringer med de givne id'er (efter de er kopieret til arkivet).
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Delivery d where d.id in :ids and d.actualDeliveryTime is not null")
+    int deleteFinishedByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Tildeler dronen til leveringen, men kun hvis leveringen stadig mangler en drone og ikke er afsluttet.
+     * @return 1 hvis leveringen blev tildelt, 0 hvis en anden nåede først.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Delivery d set d.drone = :drone, d.version = d.version + 1 " +
+            "where d.id = :id and d.drone is null and d.actualDeliveryTime is null")
+    int assignDrone(@Param("id") Long id, @Param("drone") Drone drone);
+
+    /**
+     * Streamer leveringer med pizza, drone og station hentet i samme query, filtreret på forventet leveringstid.
+     * Skal kaldes i en transaktion, og streamen skal lukkes efter brug.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("select d from Delivery d left join fetch d.pizza left join fetch d.drone dr left join fetch dr.station " +
+            "where (:from is null or d.expectedDeliveryTime >= :from) and (:to is null or d.expectedDeliveryTime < :to) " +
+            "order by d.id")
+    Stream<Delivery> streamForExport(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
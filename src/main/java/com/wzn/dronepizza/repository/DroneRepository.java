@@ -1,10 +1,71 @@
 package com.wzn.dronepizza.repository;
 
+import com.wzn.dronepizza.dto.DroneView;
 import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface DroneRepository extends JpaRepository<Drone, Long> {
     long countByStationId(Long stationId);
+
+    // Alle droner som views, uden at indlæse stationerne
+    @Query("select new com.wzn.dronepizza.dto.DroneView(d.id, d.serialNumber, d.status, s.id, d.busy) " +
+            "from Drone d left join d.station s order by d.id")
+    List<DroneView> findAllViews();
+
+    // Antal droner pr. status i én grupperet query; statusser uden droner er ikke med
+    @Query("select d.status as status, count(d) as droneCount from Drone d group by d.status")
+    List<DroneStatusCount> countByStatus();
+
+    @Query("select d.id as id, s.id as stationId, d.busy as busy from Drone d left join d.station s where d.status = :status")
+    List<DroneStationRef> findStationRefsByStatus(@Param("status") DroneStatus status);
+
+    /**
+     * Gør atomisk krav på en drone: lykkes kun, hvis dronen er i drift og ledig, og markerer den som optaget.
+     * Samtidige krav på samme drone serialiseres på rækken, så kun det første lykkes.
+     * @return 1 hvis kravet lykkedes, ellers 0.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Drone d set d.busy = true, d.version = d.version + 1 " +
+            "where d.id = :id and d.status = com.wzn.dronepizza.entity.DroneStatus.I_DRIFT and d.busy = false")
+    int claim(@Param("id") Long id);
+
+    /**
+     * Låser de droner blandt ids, der er i drift og ledige, og returnerer deres id'er.
+     * Samtidige krav venter på låsen og ser derefter dronen som optaget, så claimAll bagefter
+     * tager præcis de returnerede droner.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select d.id from Drone d " +
+            "where d.id in :ids and d.status = com.wzn.dronepizza.entity.DroneStatus.I_DRIFT and d.busy = false " +
+            "order by d.id")
+    List<Long> lockClaimable(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Markerer alle dronerne som optaget i én opdatering, med samme betingelse som claim.
+     * Rydder ikke persistence context, så leveringer, der er indlæst i samme transaktion, stadig er managed.
+     * @return Antallet af droner, der blev markeret optaget.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Drone d set d.busy = true, d.version = d.version + 1 " +
+            "where d.id in :ids and d.status = com.wzn.dronepizza.entity.DroneStatus.I_DRIFT and d.busy = false")
+    int claimAll(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Markerer en optaget drone som ledig igen.
+     * @return 1 hvis dronen var optaget, ellers 0.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Drone d set d.busy = false, d.version = d.version + 1 where d.id = :id and d.busy = true")
+    int release(@Param("id") Long id);
 }
@@ -0,0 +1,13 @@
+package com.wzn.dronepizza.repository;
+
+/**
+ * Projektion med kun en drones id, dens stations id og om den er optaget.
+ */
+public interface DroneStationRef {
+
+    Long getId();
+
+    Long getStationId();
+
+    boolean isBusy();
+}
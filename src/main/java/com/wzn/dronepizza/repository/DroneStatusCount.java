@@ -0,0 +1,13 @@
+package com.wzn.dronepizza.repository;
+
+import com.wzn.dronepizza.entity.DroneStatus;
+
+/**
+ * Projektion med en dronestatus og antallet af droner med den status.
+ */
+public interface DroneStatusCount {
+
+    DroneStatus getStatus();
+
+    long getDroneCount();
+}
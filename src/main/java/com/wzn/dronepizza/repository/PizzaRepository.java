@@ -1,9 +1,21 @@
 package com.wzn.dronepizza.repository;
 
 import com.wzn.dronepizza.entity.Pizza;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface PizzaRepository extends JpaRepository<Pizza,Long> {
+
+    /**
+     * Hele menuen. Resultatet ligger i query-cachen, indtil pizza-tabellen ændres.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<Pizza> findAll();
 }
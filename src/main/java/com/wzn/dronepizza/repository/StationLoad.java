@@ -0,0 +1,13 @@
+package com.wzn.dronepizza.repository;
+
+import com.wzn.dronepizza.entity.Station;
+
+/**
+ * Projektion med en station og antallet af droner tilknyttet den.
+ */
+public interface StationLoad {
+
+    Station getStation();
+
+    long getDroneCount();
+}
@@ -1,9 +1,29 @@
 package com.wzn.dronepizza.repository;
 
 import com.wzn.dronepizza.entity.Station;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface StationRepository extends JpaRepository<Station, Long> {
+
+    /**
+     * Alle stationer. Resultatet ligger i query-cachen, indtil station-tabellen ændres.
+     */
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<Station> findAll();
+
+    /**
+     * Alle stationer med deres antal droner, talt i én grupperet forespørgsel.
+     */
+    @Query("select s as station, count(d) as droneCount from Station s left join Drone d on d.station = s "
+            + "group by s order by s.id")
+    List<StationLoad> findAllWithDroneCount();
 }
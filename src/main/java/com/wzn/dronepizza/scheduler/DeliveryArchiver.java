@@ -0,0 +1,84 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.service.DeliveryArchiveService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Baggrundsjob, der flytter leveringer afsluttet for mere end dronepizza.archive.max-age siden
+ * til delivery_archive, så delivery-tabellen kun indeholder de leveringer, der arbejdes med.
+ * Hver chunk er sin egen transaktion; slås fra med dronepizza.archive.enabled=false.
+ */
+@Component
+@ConditionalOnProperty(name = "dronepizza.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class DeliveryArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryArchiver.class);
+
+    private final DeliveryArchiveService archiveService;
+    private final Duration maxAge;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    private final Counter archivedCounter;
+    private final Timer runTimer;
+
+    public DeliveryArchiver(DeliveryArchiveService archiveService,
+                            MeterRegistry meterRegistry,
+                            @Value("${dronepizza.archive.max-age:30d}") Duration maxAge,
+                            @Value("${dronepizza.archive.chunk-size:1000}") int chunkSize,
+                            @Value("${dronepizza.archive.max-chunks-per-run:100}") int maxChunksPerRun) {
+        if (maxAge.isNegative() || chunkSize <= 0 || maxChunksPerRun <= 0) {
+            throw new IllegalArgumentException("max-age må ikke være negativ, og chunk-size og max-chunks-per-run skal være større end 0.");
+        }
+        this.archiveService = archiveService;
+        this.maxAge = maxAge;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+
+        this.archivedCounter = Counter.builder("dronepizza.archive.archived")
+                .description("Afsluttede leveringer flyttet til arkivet")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("dronepizza.archive.run")
+                .description("Varighed af en arkiveringsrunde")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Flytter leveringer i chunks af chunk-size, indtil der ikke er flere gamle nok, eller max-chunks-per-run er nået.
+     * Resten tages ved næste kørsel.
+     */
+    @Scheduled(fixedDelayString = "${dronepizza.archive.interval-ms:3600000}",
+            initialDelayString = "${dronepizza.archive.initial-delay-ms:3600000}")
+    public void archive() {
+        runTimer.record(() -> {
+            LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+            int total = 0;
+            try {
+                for (int i = 0; i < maxChunksPerRun; i++) {
+                    int archived = archiveService.archiveChunk(cutoff, chunkSize);
+                    total += archived;
+                    archivedCounter.increment(archived);
+                    if (archived < chunkSize) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Arkiveringen fejlede efter {} leveringer.", total, e);
+            }
+            if (total > 0) {
+                log.info("Arkiverede {} leveringer afsluttet før {}.", total, cutoff);
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.metrics.DeliveryMetrics;
+import com.wzn.dronepizza.service.DeliveryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Baggrundsjob, der med faste mellemrum tømmer leveringskøen ved at tildele droner i batches.
+ * Slås til med dronepizza.dispatch.enabled=true. Køens længde efter hver runde sendes videre
+ * til dronepizza.deliveries.queued i DeliveryMetrics.
+ */
+@Component
+@ConditionalOnProperty(name = "dronepizza.dispatch.enabled", havingValue = "true")
+public class DeliveryDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(DeliveryDispatcher.class);
+
+    private final DeliveryService deliveryService;
+    private final DeliveryMetrics deliveryMetrics;
+    private final int batchSize;
+    private final int maxBatchesPerTick;
+
+    private final Counter assignedCounter;
+    private final Timer tickTimer;
+
+    public DeliveryDispatcher(DeliveryService deliveryService,
+                              DeliveryMetrics deliveryMetrics,
+                              MeterRegistry meterRegistry,
+                              @Value("${dronepizza.dispatch.batch-size:100}") int batchSize,
+                              @Value("${dronepizza.dispatch.max-batches-per-tick:10}") int maxBatchesPerTick) {
+        if (batchSize <= 0 || maxBatchesPerTick <= 0) {
+            throw new IllegalArgumentException("batch-size og max-batches-per-tick skal være større end 0.");
+        }
+        this.deliveryService = deliveryService;
+        this.deliveryMetrics = deliveryMetrics;
+        this.batchSize = batchSize;
+        this.maxBatchesPerTick = maxBatchesPerTick;
+
+        this.assignedCounter = Counter.builder("dronepizza.dispatch.assigned")
+                .description("Leveringer, der har fået tildelt en drone af dispatcheren")
+                .register(meterRegistry);
+        this.tickTimer = Timer.builder("dronepizza.dispatch.tick")
+                .description("Varighed af en dispatch-runde")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tildeler droner i batches af batch-size, indtil køen er tom, dronerne slipper op,
+     * eller max-batches-per-tick er nået.
+     */
+    @Scheduled(fixedDelayString = "${dronepizza.dispatch.interval-ms:5000}",
+            initialDelayString = "${dronepizza.dispatch.initial-delay-ms:5000}")
+    public void dispatch() {
+        tickTimer.record(() -> {
+            int total = 0;
+            try {
+                for (int i = 0; i < maxBatchesPerTick; i++) {
+                    int assigned = deliveryService.dispatchPendingDeliveries(batchSize);
+                    total += assigned;
+                    assignedCounter.increment(assigned);
+                    if (assigned < batchSize) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                log.error("Dispatch-runden fejlede efter {} tildelinger.", total, e);
+            }
+            long queued = deliveryService.countDeliveriesWithoutDrone();
+            deliveryMetrics.recordQueued(queued);
+            if (total > 0) {
+                log.info("Dispatcher tildelte droner til {} leveringer. {} venter stadig.", total, queued);
+            }
+        });
+    }
+}
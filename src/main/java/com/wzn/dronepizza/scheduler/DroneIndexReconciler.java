@@ -0,0 +1,42 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Baggrundsjob, der med faste mellemrum sammenligner drone-indekset med databasen
+ * og retter afvigelser, fx fra transaktioner der fejlede efter en drone blev markeret optaget.
+ */
+@Component
+public class DroneIndexReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(DroneIndexReconciler.class);
+
+    private final DroneAvailabilityIndex droneAvailabilityIndex;
+
+    public DroneIndexReconciler(DroneAvailabilityIndex droneAvailabilityIndex, MeterRegistry meterRegistry) {
+        this.droneAvailabilityIndex = droneAvailabilityIndex;
+
+        Gauge.builder("dronepizza.drones.idle", droneAvailabilityIndex, DroneAvailabilityIndex::size)
+                .description("Droner i drift, der er ledige")
+                .register(meterRegistry);
+        Gauge.builder("dronepizza.drones.busy", droneAvailabilityIndex, DroneAvailabilityIndex::busyCount)
+                .description("Droner i drift, der er på vej med en levering")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${dronepizza.drone-index.reconcile-interval-ms:60000}",
+            initialDelayString = "${dronepizza.drone-index.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        try {
+            droneAvailabilityIndex.reconcile();
+        } catch (Exception e) {
+            log.error("Afstemning af drone-indekset fejlede.", e);
+        }
+    }
+}
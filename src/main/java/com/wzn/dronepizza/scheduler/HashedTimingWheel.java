@@ -0,0 +1,140 @@
+package com.wzn.dronepizza.scheduler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel: en ring af wheelSize spande, der hver dækker tickMillis.
+ * En timer lægges i spanden for sin deadline og kan findes igen via sin nøgle, så schedule og cancel er O(1).
+ * advance gennemløber kun spandene for de ticks, der er gået; timere, der først udløber en eller flere omgange
+ * senere, bliver liggende. Timere udløber aldrig før deadline, men op til én tick efter.
+ * Ikke trådsikker i sig selv.
+ * @param <K> Nøglen, der identificerer en timer (fx leveringens id).
+ */
+public final class HashedTimingWheel<K> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Node<K>[] slots;
+    private final Map<K, Node<K>> timers = new HashMap<>();
+
+    // Seneste tick, som advance har behandlet
+    private long currentTick;
+
+    /**
+     * @param tickMillis Opløsningen, dvs. hvor lang tid hver spand dækker.
+     * @param wheelSize Antal spande; skal være en potens af 2.
+     * @param startMillis Tidspunktet hjulet starter fra (epoch-millisekunder).
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis skal være større end 0, og wheelSize skal være en potens af 2.");
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.slots = (Node<K>[]) new Node[wheelSize];
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * Registrerer en timer for nøglen, eller flytter den, hvis nøglen allerede har en.
+     * En deadline, der allerede er passeret, udløber ved næste advance.
+     */
+    public void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        // Rundes op, så timeren ikke udløber før deadline
+        long tick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+        Node<K> node = new Node<>(key, tick);
+        int slot = (int) (tick & mask);
+        node.next = slots[slot];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        slots[slot] = node;
+        timers.put(key, node);
+    }
+
+    /**
+     * Annullerer nøglens timer.
+     * @return true hvis der var en timer.
+     */
+    public boolean cancel(K key) {
+        Node<K> node = timers.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Flytter hjulet frem til nowMillis og fjerner de timere, hvis deadline er nået.
+     * Er der gået mere end en hel omgang, gennemløbes hver spand kun én gang.
+     * @return Nøglerne for de udløbne timere.
+     */
+    public List<K> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (targetTick <= currentTick) {
+            return List.of();
+        }
+        List<K> expired = new ArrayList<>();
+        long steps = Math.min(targetTick - currentTick, slots.length);
+        for (long step = 1; step <= steps; step++) {
+            Node<K> node = slots[(int) ((currentTick + step) & mask)];
+            while (node != null) {
+                Node<K> next = node.next;
+                if (node.tick <= targetTick) {
+                    unlink(node);
+                    timers.remove(node.key);
+                    expired.add(node.key);
+                }
+                node = next;
+            }
+        }
+        currentTick = targetTick;
+        return expired;
+    }
+
+    public boolean contains(K key) {
+        return timers.containsKey(key);
+    }
+
+    /**
+     * Antal timere, der endnu ikke er udløbet.
+     */
+    public int size() {
+        return timers.size();
+    }
+
+    private void unlink(Node<K> node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            slots[(int) (node.tick & mask)] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * En timer i en spands dobbelt-linkede liste, så den kan fjernes i konstant tid.
+     */
+    private static final class Node<K> {
+
+        private final K key;
+        private final long tick;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Baggrundsjob, der med faste mellemrum afstemmer læsemodellen for åbne leveringer med databasen,
+ * så ændringer skrevet uden om service-laget (en anden instans, manuel SQL) ikke kun ses efter en genstart.
+ */
+@Component
+public class OpenDeliveryReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenDeliveryReconciler.class);
+
+    private final OpenDeliveryReadModel openDeliveries;
+    private final Counter deviationCounter;
+
+    public OpenDeliveryReconciler(OpenDeliveryReadModel openDeliveries, MeterRegistry meterRegistry) {
+        this.openDeliveries = openDeliveries;
+
+        Gauge.builder("dronepizza.read-model.open", openDeliveries, OpenDeliveryReadModel::size)
+                .description("Åbne leveringer i læsemodellen")
+                .register(meterRegistry);
+        this.deviationCounter = Counter.builder("dronepizza.read-model.deviations")
+                .description("Leveringer i læsemodellen rettet ved afstemning med databasen")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${dronepizza.read-model.reconcile-interval-ms:30000}",
+            initialDelayString = "${dronepizza.read-model.reconcile-interval-ms:30000}")
+    public void reconcile() {
+        try {
+            deviationCounter.increment(openDeliveries.reconcile());
+        } catch (Exception e) {
+            log.error("Afstemning af læsemodellen fejlede.", e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.DeliveryDeadline;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Opdager leveringer, der ikke er afsluttet, når den forventede leveringstid passerer, uden at spørge databasen.
+ * Hver åben levering har en timer i et {@link HashedTimingWheel}: den registreres, når leveringen er oprettet
+ * eller tildelt, og annulleres, når den er afsluttet (på de committede StateChangeEvents).
+ * Ved opstart registreres alle åbne leveringer fra databasen igen.
+ * Når en timer udløber, publiceres "delivery.overdue", og dronepizza.deliveries.overdue tælles op.
+ */
+@Component
+public class OverdueDeliveryDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueDeliveryDetector.class);
+
+    private final DeliveryRepository deliveryRepository;
+    private final OpenDeliveryReadModel openDeliveries;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter overdueCounter;
+
+    // Guardes af wheel
+    private final HashedTimingWheel<Long> wheel;
+
+    public OverdueDeliveryDetector(DeliveryRepository deliveryRepository,
+                                   OpenDeliveryReadModel openDeliveries,
+                                   ApplicationEventPublisher eventPublisher,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${dronepizza.overdue.tick-ms:1000}") long tickMillis,
+                                   @Value("${dronepizza.overdue.wheel-size:512}") int wheelSize) {
+        this.deliveryRepository = deliveryRepository;
+        this.openDeliveries = openDeliveries;
+        this.eventPublisher = eventPublisher;
+        this.wheel = new HashedTimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+
+        this.overdueCounter = Counter.builder("dronepizza.deliveries.overdue")
+                .description("Leveringer, hvis forventede leveringstid er passeret, uden at de er afsluttet")
+                .register(meterRegistry);
+        Gauge.builder("dronepizza.deliveries.deadlines", this, OverdueDeliveryDetector::pending)
+                .description("Åbne leveringer, hvis forventede leveringstid overvåges")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registrerer deadlines for alle åbne leveringer, når applikationen er startet (efter DataInitializer).
+     * Leveringer, der blev forsinkede, mens applikationen var nede, meldes ved første tick.
+     * Kaldes igen af DataInitializer, når eksempeldata indlæses i baggrunden; allerede registrerede timere erstattes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        List<DeliveryDeadline> deadlines = deliveryRepository.findOpenDeadlines();
+        register(deadlines);
+        log.info("Overvåger forventet leveringstid for {} åbne leveringer.", deadlines.size());
+    }
+
+    /**
+     * Registrerer eller annullerer timere, når en oprettelse, tildeling eller afslutning er committed.
+     * En batch-bestilling sender kun id'erne, så deres deadlines hentes med én forespørgsel.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStateChange(StateChangeEvent event) {
+        switch (event.type()) {
+            case StateChangeEvent.DELIVERY_CREATED, StateChangeEvent.DELIVERY_SCHEDULED -> {
+                DeliveryView delivery = (DeliveryView) event.data();
+                register(delivery.id(), delivery.expectedDeliveryTime());
+            }
+            case StateChangeEvent.DELIVERIES_CREATED -> {
+                @SuppressWarnings("unchecked")
+                List<Long> ids = (List<Long>) event.data();
+                register(deliveryRepository.findOpenDeadlinesByIdIn(ids));
+            }
+            case StateChangeEvent.DELIVERY_FINISHED -> {
+                synchronized (wheel) {
+                    wheel.cancel(((DeliveryView) event.data()).id());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${dronepizza.overdue.tick-ms:1000}")
+    public void tick() {
+        advanceTo(System.currentTimeMillis());
+    }
+
+    /**
+     * Flytter hjulet frem og melder de leveringer, hvis deadline er nået og stadig er åbne i læsemodellen.
+     * @return Antal leveringer, der blev meldt forsinket.
+     */
+    int advanceTo(long nowMillis) {
+        List<Long> expired;
+        synchronized (wheel) {
+            expired = wheel.advance(nowMillis);
+        }
+        int overdue = 0;
+        for (Long deliveryId : expired) {
+            // En levering, der blev afsluttet samtidig med at timeren udløb, meldes ikke
+            DeliveryView delivery = openDeliveries.find(deliveryId).orElse(null);
+            if (delivery != null) {
+                overdue++;
+                overdueCounter.increment();
+                eventPublisher.publishEvent(StateChangeEvent.deliveryOverdue(delivery));
+            }
+        }
+        if (overdue > 0) {
+            log.warn("{} leveringer har passeret deres forventede leveringstid.", overdue);
+        }
+        return overdue;
+    }
+
+    public int pending() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private void register(List<DeliveryDeadline> deadlines) {
+        synchronized (wheel) {
+            deadlines.forEach(deadline -> schedule(deadline.getId(), deadline.getExpectedDeliveryTime()));
+        }
+    }
+
+    private void register(Long deliveryId, LocalDateTime expectedDeliveryTime) {
+        synchronized (wheel) {
+            schedule(deliveryId, expectedDeliveryTime);
+        }
+    }
+
+    private void schedule(Long deliveryId, LocalDateTime expectedDeliveryTime) {
+        if (expectedDeliveryTime != null) {
+            wheel.schedule(deliveryId, expectedDeliveryTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.config.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Måler, hvor langt læsereplikaen er bagud, med en heartbeat-række (tabellen replication_heartbeat):
+ * primæren får det aktuelle tidspunkt skrevet hvert heartbeat-ms ms, og lag er nu minus det tidspunkt, replikaen har.
+ * Er lag over max-lag-ms, eller kan replikaen ikke læses, går alle læsninger til primæren, til den har indhentet.
+ * Lag måles altid med op til én heartbeat, så max-lag-ms skal være større end heartbeat-ms.
+ */
+@Component
+@ConditionalOnProperty(name = "dronepizza.datasource.replica.url")
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagMillis;
+
+    // -1 indtil første måling, eller når replikaen ikke kunne læses
+    private final AtomicLong lagMillis = new AtomicLong(-1);
+
+    public ReplicaLagMonitor(ReadWriteRoutingDataSource routingDataSource,
+                             @Qualifier("primaryDataSource") DataSource primaryDataSource,
+                             @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                             MeterRegistry meterRegistry,
+                             @Value("${dronepizza.datasource.replica.heartbeat-ms:1000}") long heartbeatMillis,
+                             @Value("${dronepizza.datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+        if (heartbeatMillis <= 0 || maxLagMillis <= heartbeatMillis) {
+            throw new IllegalArgumentException("heartbeat-ms skal være større end 0, og max-lag-ms større end heartbeat-ms.");
+        }
+        this.routingDataSource = routingDataSource;
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = new JdbcTemplate(replicaDataSource);
+        this.maxLagMillis = maxLagMillis;
+
+        Gauge.builder("dronepizza.datasource.replica.lag", lagMillis, AtomicLong::get)
+                .description("Hvor mange millisekunder læsereplikaen er bagud (-1 hvis den ikke kan læses)")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("dronepizza.datasource.replica.available", routingDataSource,
+                        dataSource -> dataSource.isReplicaAvailable() ? 1 : 0)
+                .description("1 hvis read-only transaktioner sendes til replikaen, 0 hvis de går til primæren")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Læser replikaens heartbeat, slår replikaen til eller fra efter lag og skriver et nyt heartbeat på primæren.
+     */
+    @Scheduled(fixedDelayString = "${dronepizza.datasource.replica.heartbeat-ms:1000}")
+    public void probe() {
+        long now = System.currentTimeMillis();
+        try {
+            Timestamp replicated = replica.queryForObject(
+                    "select beat_time from replication_heartbeat where id = 1", Timestamp.class);
+            long lag = replicated == null ? Long.MAX_VALUE : Math.max(0, now - replicated.getTime());
+            lagMillis.set(lag);
+            update(lag <= maxLagMillis, lag);
+        } catch (Exception e) {
+            lagMillis.set(-1);
+            update(false, -1);
+            log.debug("Læsereplikaen kunne ikke læses.", e);
+        }
+        try {
+            primary.update("update replication_heartbeat set beat_time = ? where id = 1", new Timestamp(now));
+        } catch (Exception e) {
+            log.warn("Kunne ikke skrive heartbeat på primæren: {}", e.getMessage());
+        }
+    }
+
+    long getLagMillis() {
+        return lagMillis.get();
+    }
+
+    private void update(boolean available, long lag) {
+        if (available != routingDataSource.isReplicaAvailable()) {
+            if (available) {
+                log.info("Læsereplikaen er {} ms bagud; read-only transaktioner sendes til den.", lag);
+            } else {
+                log.warn("Læsereplikaen er {}; read-only transaktioner sendes til primæren.",
+                        lag < 0 ? "ikke tilgængelig" : lag + " ms bagud (max " + maxLagMillis + " ms)");
+            }
+        }
+        routingDataSource.setReplicaAvailable(available);
+    }
+}
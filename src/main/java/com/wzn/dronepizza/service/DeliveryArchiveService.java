@@ -0,0 +1,13 @@
+package com.wzn.dronepizza.service;
+
+import java.time.LocalDateTime;
+
+public interface DeliveryArchiveService {
+
+    /**
+     * Flytter op til chunkSize leveringer, der er afsluttet før cutoff, fra delivery til delivery_archive
+     * i én kort transaktion.
+     * @return Antal flyttede leveringer; mindre end chunkSize betyder, at der ikke er flere.
+     */
+    int archiveChunk(LocalDateTime cutoff, int chunkSize);
+}
@@ -0,0 +1,16 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.dto.DeliveryOrder;
+import com.wzn.dronepizza.dto.DeliveryOrderResult;
+
+import java.util.List;
+
+public interface DeliveryBatchService {
+
+    /**
+     * Opretter en levering for hver gyldig bestilling i én transaktion.
+     * Ugyldige bestillinger (fx ukendt pizza) afvises enkeltvis uden at stoppe resten.
+     * @return Ét resultat pr. bestilling, i samme rækkefølge som orders.
+     */
+    List<DeliveryOrderResult> createDeliveries(List<DeliveryOrder> orders);
+}
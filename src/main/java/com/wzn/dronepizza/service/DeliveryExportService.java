@@ -0,0 +1,16 @@
+package com.wzn.dronepizza.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface DeliveryExportService {
+
+    /**
+     * Skriver leveringer som newline-delimited JSON til out.
+     * @param from Kun leveringer med forventet leveringstid fra og med from (null = ingen nedre grænse).
+     * @param to Kun leveringer med forventet leveringstid før to (null = ingen øvre grænse).
+     * @return Antal eksporterede leveringer.
+     */
+    long exportDeliveries(LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException;
+}
@@ -1,18 +1,28 @@
 package com.wzn.dronepizza.service;
 
+import com.wzn.dronepizza.dto.DeliveryView;
 import com.wzn.dronepizza.entity.Delivery;
 
 import java.util.List;
 
 public interface DeliveryService {
 
-    List<Delivery> getAllNonFinishedDeleveries();
+    List<DeliveryView> getNonFinishedDeliveries(long afterId, int limit);
+
+    /**
+     * Slår en levering op, uanset om den er åben, afsluttet eller arkiveret.
+     */
+    DeliveryView getDelivery(Long deliveryId);
 
     Delivery createDelivery(Long pizzaId, String address);
 
-    List<Delivery> getAllDeliveriesWithoutDrone();
+    List<DeliveryView> getAllDeliveriesWithoutDrone();
 
     Delivery scheduleDelivery(Long deliveryId);
 
     Delivery finishDelivery(Long deliveryId);
-}
\ No newline at end of file
+
+    int dispatchPendingDeliveries(int batchSize);
+
+    long countDeliveriesWithoutDrone();
+}
@@ -0,0 +1,63 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.entity.Drone;
+
+import java.util.Optional;
+
+/**
+ * Indeks over droner i drift og deres stationer, med en liste pr. station over de droner, der er ledige.
+ * Holdes i sync af DroneService og DeliveryService, så dispatch kun ser ledige droner uden at spørge databasen.
+ */
+public interface DroneAvailabilityIndex {
+
+    /**
+     * Opdaterer indekset ud fra dronens aktuelle status, station og om den er optaget.
+     */
+    void sync(Drone drone);
+
+    /**
+     * Fjerner en drone helt fra indekset, fx hvis den ikke længere er i drift.
+     */
+    void remove(Long droneId);
+
+    /**
+     * Markerer en drone som optaget, så den ikke vælges, før den er ledig igen.
+     */
+    void markBusy(Long droneId);
+
+    /**
+     * Markerer en drone som ledig igen på sin station. Ukendte droner ignoreres.
+     */
+    void markIdle(Long droneId);
+
+    /**
+     * Vælger en tilfældig ledig drone i konstant tid.
+     */
+    Optional<Long> pickAvailable();
+
+    /**
+     * Vælger en tilfældig ledig drone fra en bestemt station i konstant tid.
+     */
+    Optional<Long> pickAvailable(Long stationId);
+
+    /**
+     * Antal ledige droner.
+     */
+    int size();
+
+    /**
+     * Antal droner i drift, der er optaget.
+     */
+    int busyCount();
+
+    /**
+     * Genopbygger indekset fra databasen.
+     */
+    void rebuild();
+
+    /**
+     * Sammenligner indekset med databasen og retter eventuelle afvigelser.
+     * @return Antallet af droner, der var forkert registreret.
+     */
+    int reconcile();
+}
@@ -1,15 +1,18 @@
 package com.wzn.dronepizza.service;
 
+import com.wzn.dronepizza.dto.DroneView;
 import com.wzn.dronepizza.entity.Drone;
 
 import java.util.List;
 
 public interface DroneService {
 
-    List<Drone> getAllDrones();
+    List<DroneView> getAllDrones();
 
     Drone createDrone(Drone drone);
 
+    List<Drone> createDrones(int count);
+
     Drone enableDrone(long droneId);
 
     Drone disableDrone(long droneId);
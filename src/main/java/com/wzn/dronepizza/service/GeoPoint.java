@@ -0,0 +1,7 @@
+package com.wzn.dronepizza.service;
+
+/**
+ * Et punkt angivet med breddegrad og længdegrad.
+ */
+public record GeoPoint(double latitude, double longitude) {
+}
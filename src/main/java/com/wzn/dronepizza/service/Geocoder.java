@@ -0,0 +1,14 @@
+package com.wzn.dronepizza.service;
+
+import java.util.Optional;
+
+/**
+ * Slår koordinater op for en leveringsadresse i fritekst.
+ */
+public interface Geocoder {
+
+    /**
+     * @return Adressens koordinater, eller tom hvis adressen ikke kan findes.
+     */
+    Optional<GeoPoint> geocode(String address);
+}
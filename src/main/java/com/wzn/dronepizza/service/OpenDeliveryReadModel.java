@@ -0,0 +1,66 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Læsemodel over leveringer, der ikke er afsluttet, holdt i hukommelsen,
+ * så GET /deliveries og GET /deliveries/queue kan svare uden at spørge databasen.
+ * Skrivestierne opdaterer den, når deres transaktion er committed, og den genopbygges fra databasen ved opstart
+ * og afstemmes derefter med faste mellemrum.
+ */
+public interface OpenDeliveryReadModel {
+
+    /**
+     * Tilføjer eller opdaterer en levering. En afsluttet levering fjernes i stedet.
+     */
+    void upsert(DeliveryView delivery);
+
+    /**
+     * Tilføjer eller opdaterer flere leveringer på én gang, fx efter en batch-bestilling.
+     */
+    void upsertAll(List<DeliveryView> deliveries);
+
+    /**
+     * Fjerner en levering. Ukendte id'er ignoreres.
+     */
+    void remove(Long deliveryId);
+
+    /**
+     * Den åbne levering med id'et, eller tom hvis den er afsluttet eller ukendt.
+     */
+    Optional<DeliveryView> find(Long deliveryId);
+
+    /**
+     * Op til limit åbne leveringer med id større end afterId, sorteret efter id (keyset-paginering).
+     */
+    List<DeliveryView> page(long afterId, int limit);
+
+    /**
+     * Leveringer uden drone, sorteret efter forventet leveringstid og id, dvs. i den rækkefølge dispatch tager dem.
+     */
+    List<DeliveryView> queue();
+
+    /**
+     * Antal åbne leveringer.
+     */
+    int size();
+
+    /**
+     * Antal leveringer uden drone.
+     */
+    int queueSize();
+
+    /**
+     * Genopbygger modellen fra databasen.
+     */
+    void rebuild();
+
+    /**
+     * Sammenligner modellen med databasen og retter afvigelser, fx fra skrivninger uden om service-laget
+     * (manuel SQL eller en anden instans). Returnerer antallet af rettede leveringer.
+     */
+    int reconcile();
+}
@@ -0,0 +1,30 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.entity.Station;
+
+import java.util.List;
+
+/**
+ * Rumligt indeks over stationer, der bruges til at finde de nærmeste stationer til en leveringsadresse.
+ */
+public interface StationLocator {
+
+    /**
+     * Returnerer id'erne på op til limit stationer sorteret efter afstand, nærmeste først.
+     */
+    List<Long> findNearestStationIds(double latitude, double longitude, int limit);
+
+    /**
+     * Tilføjer en station eller opdaterer dens position.
+     */
+    void upsert(Station station);
+
+    void remove(Long stationId);
+
+    int size();
+
+    /**
+     * Genopbygger indekset fra databasen.
+     */
+    void rebuild();
+}
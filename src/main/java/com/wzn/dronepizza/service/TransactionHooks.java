@@ -0,0 +1,32 @@
+package com.wzn.dronepizza.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hjælpemetoder til at køre kode, når den aktuelle transaktion er afsluttet.
+ * Bruges til at holde de lokale indekser og read models i takt med databasen.
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Kører action, når den aktuelle transaktion er committed, i samme tråd og før kaldet returnerer,
+     * så hukommelsen aldrig viser noget, databasen ikke har (fx en ændring, der bliver rullet tilbage),
+     * og klienten kan læse sin egen ændring. Uden transaktion køres den med det samme.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
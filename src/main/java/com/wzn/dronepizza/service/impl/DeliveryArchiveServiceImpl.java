@@ -0,0 +1,48 @@
+package com.wzn.dronepizza.service.impl;
+
+import com.wzn.dronepizza.repository.ArchivedDeliveryRepository;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.service.DeliveryArchiveService;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+public class DeliveryArchiveServiceImpl implements DeliveryArchiveService {
+
+    private final DeliveryRepository deliveryRepository;
+    private final ArchivedDeliveryRepository archivedDeliveryRepository;
+
+    public DeliveryArchiveServiceImpl(DeliveryRepository deliveryRepository,
+                                      ArchivedDeliveryRepository archivedDeliveryRepository) {
+        this.deliveryRepository = deliveryRepository;
+        this.archivedDeliveryRepository = archivedDeliveryRepository;
+    }
+
+    /**
+     * Vælger de ældste afsluttede leveringer og kopierer og sletter dem med to mængde-statements.
+     * Kun de valgte rækker låses, og kun så længe chunken tager, så åbne leveringer ikke venter på arkiveringen.
+     * Afsluttede leveringer ændres ikke, så de valgte rækker er de samme, når de kopieres og slettes.
+     */
+    @Override
+    @Transactional
+    public int archiveChunk(LocalDateTime cutoff, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize skal være større end 0.");
+        }
+        List<Long> ids = deliveryRepository.findFinishedIdsBefore(cutoff, Limit.of(chunkSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int copied = archivedDeliveryRepository.copyFromDeliveries(ids, LocalDateTime.now());
+        int deleted = deliveryRepository.deleteFinishedByIdIn(ids);
+        if (copied != deleted) {
+            // Ruller chunken tilbage, så en levering aldrig forsvinder eller findes i begge tabeller
+            throw new IllegalStateException("Arkiveringen kopierede " + copied + " men slettede " + deleted + " leveringer.");
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,139 @@
+package com.wzn.dronepizza.service.impl;
+
+import com.wzn.dronepizza.dto.DeliveryOrder;
+import com.wzn.dronepizza.dto.DeliveryOrderResult;
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.service.DeliveryBatchService;
+import com.wzn.dronepizza.service.Geocoder;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import jakarta.persistence.EntityManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.wzn.dronepizza.service.TransactionHooks.afterCommit;
+
+@Service
+public class DeliveryBatchServiceImpl implements DeliveryBatchService {
+
+    // Største antal bestillinger i én ordre
+    public static final int MAX_ORDERS = 10_000;
+
+    // Persistence context flushes og ryddes med dette interval, så inserts sendes i JDBC-batches
+    // og dirty checking ikke vokser med ordrens størrelse
+    private static final int FLUSH_INTERVAL = 500;
+
+    private final PizzaRepository pizzaRepository;
+    private final Geocoder geocoder;
+    private final EntityManager entityManager;
+    private final OpenDeliveryReadModel openDeliveries;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DeliveryBatchServiceImpl(PizzaRepository pizzaRepository, Geocoder geocoder, EntityManager entityManager,
+                                    OpenDeliveryReadModel openDeliveries, ApplicationEventPublisher eventPublisher) {
+        this.pizzaRepository = pizzaRepository;
+        this.geocoder = geocoder;
+        this.entityManager = entityManager;
+        this.openDeliveries = openDeliveries;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Slår alle pizzaer op i én forespørgsel og indsætter leveringerne i batches.
+     * Forventet leveringstid = nu + 30 minutter, som ved enkelte bestillinger.
+     * Der publiceres ét samlet event med de oprettede id'er i stedet for ét pr. levering,
+     * og læsemodellen opdateres samlet, når transaktionen er committed.
+     */
+    @Override
+    @Transactional
+    public List<DeliveryOrderResult> createDeliveries(List<DeliveryOrder> orders) {
+        if (orders == null || orders.isEmpty() || orders.size() > MAX_ORDERS) {
+            throw new IllegalArgumentException("Ordren skal indeholde mellem 1 og " + MAX_ORDERS + " bestillinger.");
+        }
+
+        Map<Long, Pizza> pizzas = findPizzas(orders);
+        LocalDateTime expected = LocalDateTime.now().plusMinutes(30);
+
+        List<DeliveryOrderResult> results = new ArrayList<>(orders.size());
+        List<DeliveryView> created = new ArrayList<>(orders.size());
+        int pending = 0;
+        for (int i = 0; i < orders.size(); i++) {
+            DeliveryOrder order = orders.get(i);
+            String rejection = validate(order, pizzas);
+            if (rejection != null) {
+                results.add(DeliveryOrderResult.rejected(i, rejection));
+                continue;
+            }
+
+            Delivery delivery = new Delivery(order.address(), expected, pizzas.get(order.pizzaId()));
+            geocoder.geocode(order.address()).ifPresent(point -> {
+                delivery.setLatitude(point.latitude());
+                delivery.setLongitude(point.longitude());
+            });
+            // Id tildeles fra sekvensen med det samme; selve INSERT sendes ved flush
+            entityManager.persist(delivery);
+            results.add(DeliveryOrderResult.created(i, delivery.getId()));
+            created.add(DeliveryView.from(delivery));
+
+            if (++pending == FLUSH_INTERVAL) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Long> createdIds = results.stream()
+                .filter(DeliveryOrderResult::success)
+                .map(DeliveryOrderResult::deliveryId)
+                .toList();
+        if (!createdIds.isEmpty()) {
+            afterCommit(() -> openDeliveries.upsertAll(created));
+            eventPublisher.publishEvent(StateChangeEvent.deliveriesCreated(createdIds));
+        }
+        return results;
+    }
+
+    private Map<Long, Pizza> findPizzas(List<DeliveryOrder> orders) {
+        Set<Long> pizzaIds = new HashSet<>();
+        for (DeliveryOrder order : orders) {
+            if (order != null && order.pizzaId() != null) {
+                pizzaIds.add(order.pizzaId());
+            }
+        }
+        Map<Long, Pizza> pizzas = new HashMap<>();
+        for (Pizza pizza : pizzaRepository.findAllById(pizzaIds)) {
+            pizzas.put(pizza.getId(), pizza);
+        }
+        return pizzas;
+    }
+
+    /**
+     * Returnerer årsagen til at bestillingen afvises, eller null hvis den er gyldig.
+     */
+    private static String validate(DeliveryOrder order, Map<Long, Pizza> pizzas) {
+        if (order == null || order.pizzaId() == null) {
+            return "pizzaId mangler.";
+        }
+        if (order.address() == null || order.address().isBlank()) {
+            return "Adresse mangler.";
+        }
+        if (!pizzas.containsKey(order.pizzaId())) {
+            return "Ingen pizza med id " + order.pizzaId();
+        }
+        return null;
+    }
+}
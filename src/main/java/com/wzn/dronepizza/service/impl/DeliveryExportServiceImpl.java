@@ -0,0 +1,90 @@
+package com.wzn.dronepizza.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.wzn.dronepizza.entity.ArchivedDelivery;
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.repository.ArchivedDeliveryRepository;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.service.DeliveryExportService;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class DeliveryExportServiceImpl implements DeliveryExportService {
+
+    // Persistence context ryddes med dette interval, så heap-forbruget ikke vokser med antallet af rækker
+    private static final int CLEAR_INTERVAL = 1000;
+
+    private final DeliveryRepository deliveryRepository;
+    private final ArchivedDeliveryRepository archivedDeliveryRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter rowWriter;
+    private final ObjectWriter archivedRowWriter;
+
+    public DeliveryExportServiceImpl(DeliveryRepository deliveryRepository,
+                                     ArchivedDeliveryRepository archivedDeliveryRepository, EntityManager entityManager,
+                                     ObjectMapper objectMapper) {
+        this.deliveryRepository = deliveryRepository;
+        this.archivedDeliveryRepository = archivedDeliveryRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        // Der flushes i blokke i stedet for efter hver række
+        this.rowWriter = objectMapper.writerFor(Delivery.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.archivedRowWriter = objectMapper.writerFor(ArchivedDelivery.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Streamer leveringer fra databasen og skriver dem én pr. linje,
+     * uden at samle hele resultatet i hukommelsen.
+     * Arkiverede leveringer skrives først (de er de ældste), derefter dem i delivery-tabellen.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportDeliveries(LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from skal være før to.");
+        }
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null); // linjeskift skrives selv efter hver række
+        long count;
+        try (Stream<ArchivedDelivery> archived = archivedDeliveryRepository.streamForExport(from, to)) {
+            count = writeRows(archived, archivedRowWriter, generator, 0);
+        }
+        try (Stream<Delivery> deliveries = deliveryRepository.streamForExport(from, to)) {
+            count = writeRows(deliveries, rowWriter, generator, count);
+        }
+        generator.flush();
+        return count;
+    }
+
+    /**
+     * Skriver rækkerne og rydder persistence context for hver CLEAR_INTERVAL rækker.
+     * @return count plus antal skrevne rækker.
+     */
+    private long writeRows(Stream<?> rows, ObjectWriter writer, JsonGenerator generator, long count) throws IOException {
+        Iterator<?> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            writer.writeValue(generator, iterator.next());
+            generator.writeRaw('\n');
+            if (++count % CLEAR_INTERVAL == 0) {
+                generator.flush();
+                entityManager.clear();
+            }
+        }
+        return count;
+    }
+}
@@ -1,55 +1,106 @@
 package com.wzn.dronepizza.service.impl;
 
+import com.wzn.dronepizza.dto.DeliveryView;
 import com.wzn.dronepizza.entity.Delivery;
 import com.wzn.dronepizza.entity.Drone;
-import com.wzn.dronepizza.entity.DroneStatus;
 import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.ArchivedDeliveryRepository;
 import com.wzn.dronepizza.repository.DeliveryRepository;
 import com.wzn.dronepizza.repository.DroneRepository;
 import com.wzn.dronepizza.repository.PizzaRepository;
 import com.wzn.dronepizza.service.DeliveryService;
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import com.wzn.dronepizza.service.Geocoder;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import com.wzn.dronepizza.service.StationLocator;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.wzn.dronepizza.service.TransactionHooks.afterCommit;
 
 @Service
 public class DeliveryServiceImpl implements DeliveryService {
 
+    // Antal nærmeste stationer, der prøves, før der vælges en drone hvor som helst i byen
+    private static final int NEAREST_STATION_CANDIDATES = 5;
+
+    // Antal droner, der prøves pr. kilde, før et kald giver op ved samtidige krav
+    private static final int MAX_CLAIM_ATTEMPTS = 10;
+
+    // Største side, der kan hentes med getNonFinishedDeliveries
+    public static final int MAX_PAGE_SIZE = 1000;
 
     private final DeliveryRepository deliveryRepository;
+    private final ArchivedDeliveryRepository archivedDeliveryRepository;
     private final PizzaRepository pizzaRepository;
     private final DroneRepository droneRepository;
+    private final DroneAvailabilityIndex droneAvailabilityIndex;
+    private final OpenDeliveryReadModel openDeliveries;
+    private final StationLocator stationLocator;
+    private final Geocoder geocoder;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public DeliveryServiceImpl(DeliveryRepository deliveryRepository, PizzaRepository pizzaRepository, DroneRepository droneRepository) {
+    public DeliveryServiceImpl(DeliveryRepository deliveryRepository,
+                               ArchivedDeliveryRepository archivedDeliveryRepository, PizzaRepository pizzaRepository,
+                               DroneRepository droneRepository, DroneAvailabilityIndex droneAvailabilityIndex,
+                               OpenDeliveryReadModel openDeliveries, StationLocator stationLocator, Geocoder geocoder,
+                               ApplicationEventPublisher eventPublisher) {
         this.deliveryRepository = deliveryRepository;
+        this.archivedDeliveryRepository = archivedDeliveryRepository;
         this.pizzaRepository = pizzaRepository;
         this.droneRepository = droneRepository;
+        this.droneAvailabilityIndex = droneAvailabilityIndex;
+        this.openDeliveries = openDeliveries;
+        this.stationLocator = stationLocator;
+        this.geocoder = geocoder;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Returnerer alle leveringer, der er unfinished.
+     * Returnerer en side af ikke-færdige leveringer, ældste først, med id større end afterId.
+     * Læses fra læsemodellen uden SQL.
+     * @param afterId Sidste id fra forrige side (0 for første side).
+     * @param limit Antal leveringer pr. side (1 - MAX_PAGE_SIZE).
      */
     @Override
-    public List<Delivery> getAllNonFinishedDeleveries() {
-        // "ikke færdig" == actualDeliveryTime = null;
-        List<Delivery> allDeliveries = deliveryRepository.findAll();
-        List<Delivery> nonFinishedDeliveries = new ArrayList<>();
-        for (Delivery delivery : allDeliveries) {
-            if (delivery.getActualDeliveryTime() == null) {
-                nonFinishedDeliveries.add(delivery);
-            }
+    public List<DeliveryView> getNonFinishedDeliveries(long afterId, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit skal være mellem 1 og " + MAX_PAGE_SIZE + ".");
         }
-        return nonFinishedDeliveries;
+        return openDeliveries.page(afterId, limit);
+    }
+
+    /**
+     * Slår leveringen op i læsemodellen, derefter i delivery-tabellen og til sidst i arkivet,
+     * så klienten ikke skal vide, om en afsluttet levering er arkiveret.
+     */
+    @Override
+    public DeliveryView getDelivery(Long deliveryId) {
+        return openDeliveries.find(deliveryId)
+                .or(() -> deliveryRepository.findViewById(deliveryId))
+                .or(() -> archivedDeliveryRepository.findViewById(deliveryId))
+                .orElseThrow(() -> new IllegalArgumentException("Levering med id " + deliveryId + " blev ikke fundet."));
     }
 
     /**
      * Tilføjer en bestilling med et pizza Id.
      * Forventet leveringstid = nu + 30 minutter.
      * Ingen drone tilknyttes ved oprettelse.
+     * Adressen geokodes, så dispatch kan vælge en drone fra en nærliggende station.
      */
     @Override
     public Delivery createDelivery(Long pizzaId, String address) {
@@ -58,60 +109,65 @@ public class DeliveryServiceImpl implements DeliveryService {
 
         LocalDateTime expected = LocalDateTime.now().plusMinutes(30);
         Delivery delivery = new Delivery(address, expected, pizza);
-        return deliveryRepository.save(delivery);
+        geocoder.geocode(address).ifPresent(point -> {
+            delivery.setLatitude(point.latitude());
+            delivery.setLongitude(point.longitude());
+        });
+        Delivery saved = deliveryRepository.save(delivery);
+        DeliveryView view = DeliveryView.from(saved);
+        afterCommit(() -> openDeliveries.upsert(view));
+        eventPublisher.publishEvent(StateChangeEvent.deliveryCreated(view));
+        return saved;
     }
 
     /**
-     * Returnerer alle leveringer, der mangler en drone (dvs. drone == null).
+     * Returnerer alle leveringer, der mangler en drone (dvs. drone == null), som views,
+     * i den rækkefølge dispatch tager dem. Læses fra læsemodellen uden SQL.
      */
     @Override
-    public List<Delivery> getAllDeliveriesWithoutDrone() {
-            return deliveryRepository.findByDroneIsNullAndActualDeliveryTimeIsNull();
+    public List<DeliveryView> getAllDeliveriesWithoutDrone() {
+        return openDeliveries.queue();
     }
 
     /**
-     * Tager en levering, der mangler en drone, og tildeler den en drone.
+     * Tager en levering, der mangler en drone, og tildeler den en ledig drone, som markeres optaget.
      * - Levering skal ikke allerede have en drone.
-     * - Dronen skal være i drift, ellers kastes fejl.
+     * - Dronen skal være i drift og ledig, ellers vælges en anden.
      * - Hvis levering allerede har en drone, kastes fejl.
+     * Leveringen låses først (som i dispatch), og dronen tages med en betinget opdatering, så samtidige kald
+     * aldrig giver samme levering to droner eller samme drone to leveringer.
      */
     @Override
+    @Transactional
     public Delivery scheduleDelivery(Long deliveryId) {
-        Delivery delivery = findDeliveryOrThrow(deliveryId);
+        Delivery delivery = deliveryRepository.lockById(deliveryId)
+                .orElseThrow(() -> new IllegalArgumentException("Levering med id " + deliveryId + " blev ikke fundet."));
 
         if (delivery.getDrone() != null) {
             throw new IllegalStateException("Levering har allerede en drone tilknyttet.");
         }
 
-        List<Drone> listOfDrones = droneRepository.findAll();
-        List<Drone> availableDrones = new ArrayList<>();
-
-        for (Drone drone : listOfDrones) {
-            if (drone.getStatus() == DroneStatus.I_DRIFT) {
-                availableDrones.add(drone);
-            }
-        }
-
-        if (availableDrones.isEmpty()) {
-            throw new IllegalStateException("Ingen tilgengelige droner.");
+        Drone selectedDrone = claimAvailableDrone(delivery)
+                .orElseThrow(() -> new IllegalStateException("Ingen tilgengelige droner."));
+        if (deliveryRepository.assignDrone(deliveryId, selectedDrone) == 0) {
+            // En samtidig forespørgsel nåede først; rollback gør dronen ledig igen
+            throw new IllegalStateException("Levering har allerede en drone tilknyttet.");
         }
 
-        // Select en random drone fra index 0 til array size
-        Drone selectedDrone = availableDrones.get(
-                ThreadLocalRandom.current().nextInt(availableDrones.size())
-        );
-
-        delivery.setDrone(selectedDrone);
-
-        return deliveryRepository.save(delivery);
+        Delivery scheduled = findDeliveryOrThrow(deliveryId);
+        DeliveryView view = DeliveryView.from(scheduled);
+        afterCommit(() -> openDeliveries.upsert(view));
+        eventPublisher.publishEvent(StateChangeEvent.deliveryScheduled(view));
+        return scheduled;
     }
 
     /**
-     * Marker en levering som afsluttet i dette øjeblik.
+     * Marker en levering som afsluttet i dette øjeblik, og gør dronen ledig igen.
      * - Hvis leveringen ikke har en drone, kastes fejl.
      * - Hvis den allerede er afsluttet, kastes en fejl.
      */
     @Override
+    @Transactional
     public Delivery finishDelivery(Long deliveryId) {
         Delivery delivery = findDeliveryOrThrow(deliveryId);
 
@@ -123,7 +179,167 @@ public class DeliveryServiceImpl implements DeliveryService {
         }
 
         delivery.setActualDeliveryTime(LocalDateTime.now());
-        return deliveryRepository.save(delivery);
+        Delivery finished;
+        try {
+            finished = deliveryRepository.saveAndFlush(delivery);
+        } catch (OptimisticLockingFailureException e) {
+            throw new IllegalStateException("Levering blev ændret samtidig. Prøv igen.");
+        }
+
+        Drone drone = finished.getDrone();
+        droneRepository.release(drone.getId());
+        drone.setBusy(false);
+        markIdleAfterCompletion(drone.getId(), true);
+        afterCommit(() -> openDeliveries.remove(deliveryId));
+        eventPublisher.publishEvent(StateChangeEvent.deliveryFinished(DeliveryView.from(finished)));
+        return finished;
+    }
+
+    /**
+     * Tildeler droner til op til batchSize leveringer fra køen (ældste forventede leveringstid først) i én transaktion.
+     * - Leveringerne låses ved indlæsning, så en samtidig tildeling venter og derefter ser dem som tildelt.
+     * - Dronerne tages samlet (se claimDrones), ikke én opdatering pr. levering.
+     * - Tildelingerne skrives som almindelige entity-ændringer og sendes i JDBC-batches ved commit
+     *   (hibernate.jdbc.batch_size, order_updates).
+     * Leveringer, der ikke kan få en ledig drone, bliver i køen.
+     * @return Antallet af leveringer, der fik tildelt en drone.
+     */
+    @Override
+    @Transactional
+    public int dispatchPendingDeliveries(int batchSize) {
+        List<Delivery> batch = deliveryRepository.lockQueueForDispatch(Limit.of(batchSize));
+        Map<Long, Long> droneByDelivery = claimDrones(batch);
+
+        int assigned = 0;
+        for (Delivery delivery : batch) {
+            Long droneId = droneByDelivery.get(delivery.getId());
+            if (droneId == null) {
+                continue;
+            }
+            delivery.setDrone(droneRepository.getReferenceById(droneId));
+            assigned++;
+            DeliveryView view = DeliveryView.from(delivery).withDroneId(droneId);
+            afterCommit(() -> openDeliveries.upsert(view));
+            eventPublisher.publishEvent(StateChangeEvent.deliveryScheduled(view));
+        }
+        return assigned;
+    }
+
+    /**
+     * Returnerer antallet af leveringer i køen, dvs. uden drone og ikke afsluttet.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countDeliveriesWithoutDrone() {
+        return deliveryRepository.countByDroneIsNullAndActualDeliveryTimeIsNull();
+    }
+
+    /**
+     * Vælger en drone fra drone-indekset med pickAvailableDrone i stedet for at scanne hele tabellen
+     * og gør krav på den med en betinget opdatering, der markerer den optaget.
+     * Dronen markeres optaget i indekset, før der gøres krav på den, så samtidige kald ikke vælger den samme.
+     * Fejler kravet (dronen er ikke i drift, er allerede optaget eller blev taget af en anden),
+     * vælges en ny drone, højst MAX_CLAIM_ATTEMPTS gange.
+     */
+    private Optional<Drone> claimAvailableDrone(Delivery delivery) {
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            Optional<Long> droneId = pickAvailableDrone(delivery);
+            if (droneId.isEmpty()) {
+                return Optional.empty();
+            }
+            droneAvailabilityIndex.markBusy(droneId.get());
+            if (droneRepository.claim(droneId.get()) == 1) {
+                // Rulles transaktionen tilbage, er dronen stadig ledig i databasen
+                markIdleAfterCompletion(droneId.get(), false);
+                return Optional.of(droneRepository.getReferenceById(droneId.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Vælger en drone fra drone-indekset til hver levering og gør krav på dem samlet: én låsende select finder
+     * de valgte droner, der stadig er i drift og ledige, og én opdatering markerer dem optaget.
+     * Leveringer, hvis drone ikke kunne tages (indekset var bagud, eller en anden instans tog den),
+     * får en ny drone i næste runde, højst MAX_CLAIM_ATTEMPTS runder.
+     * @return Dronens id pr. leverings-id for de leveringer, der fik en drone.
+     */
+    private Map<Long, Long> claimDrones(List<Delivery> deliveries) {
+        Map<Long, Long> droneByDelivery = new HashMap<>();
+        List<Delivery> remaining = deliveries;
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS && !remaining.isEmpty(); attempt++) {
+            // Dronen markeres optaget i indekset, så den ikke vælges til to leveringer
+            Map<Long, Delivery> picks = new LinkedHashMap<>();
+            boolean indexExhausted = false;
+            for (Delivery delivery : remaining) {
+                Optional<Long> droneId = pickAvailableDrone(delivery);
+                if (droneId.isEmpty()) {
+                    indexExhausted = true;
+                    break;
+                }
+                droneAvailabilityIndex.markBusy(droneId.get());
+                picks.put(droneId.get(), delivery);
+            }
+            if (picks.isEmpty()) {
+                break;
+            }
+
+            List<Long> claimable = droneRepository.lockClaimable(picks.keySet());
+            if (!claimable.isEmpty()) {
+                droneRepository.claimAll(claimable);
+            }
+            for (Long droneId : claimable) {
+                // Rulles transaktionen tilbage, er dronen stadig ledig i databasen
+                markIdleAfterCompletion(droneId, false);
+                droneByDelivery.put(picks.remove(droneId).getId(), droneId);
+            }
+
+            if (indexExhausted) {
+                break;
+            }
+            remaining = new ArrayList<>(picks.values());
+        }
+        return droneByDelivery;
+    }
+
+    /**
+     * Vælger en ledig drone fra drone-indekset uden at gøre krav på den:
+     * fra de nærmeste stationer, hvis leveringsadressens koordinater kendes, ellers hvor som helst.
+     */
+    private Optional<Long> pickAvailableDrone(Delivery delivery) {
+        if (delivery.getLatitude() != null && delivery.getLongitude() != null) {
+            List<Long> nearestStations = stationLocator.findNearestStationIds(
+                    delivery.getLatitude(), delivery.getLongitude(), NEAREST_STATION_CANDIDATES);
+            for (Long stationId : nearestStations) {
+                Optional<Long> droneId = droneAvailabilityIndex.pickAvailable(stationId);
+                if (droneId.isPresent()) {
+                    return droneId;
+                }
+            }
+        }
+        return droneAvailabilityIndex.pickAvailable();
+    }
+
+    /**
+     * Markerer dronen ledig i indekset, når den aktuelle transaktion er committed (onCommit)
+     * eller rullet tilbage (!onCommit), så indekset aldrig viser en drone som ledig før databasen.
+     * Uden transaktion sker det med det samme for onCommit.
+     */
+    private void markIdleAfterCompletion(Long droneId, boolean onCommit) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onCommit) {
+                droneAvailabilityIndex.markIdle(droneId);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if ((status == STATUS_COMMITTED) == onCommit) {
+                    droneAvailabilityIndex.markIdle(droneId);
+                }
+            }
+        });
     }
 
     private Delivery findDeliveryOrThrow(Long deliveryId) {
@@ -1,36 +1,53 @@
 package com.wzn.dronepizza.service.impl;
 
+import com.wzn.dronepizza.dto.DroneView;
 import com.wzn.dronepizza.entity.Drone;
 import com.wzn.dronepizza.entity.DroneStatus;
 import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.event.StateChangeEvent;
 import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.StationLoad;
 import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
 import com.wzn.dronepizza.service.DroneService;
-import jakarta.transaction.Transactional;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.UUID;
 
+import static com.wzn.dronepizza.service.TransactionHooks.afterCommit;
+
 @Service
 @Transactional
 public class DroneServiceImpl implements DroneService {
 
+    public static final int MAX_BULK_CREATE = 1000;
+
     private final DroneRepository droneRepository;
     private final StationRepository stationRepository;
+    private final DroneAvailabilityIndex droneAvailabilityIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public DroneServiceImpl(DroneRepository droneRepository, StationRepository stationRepository) {
+    public DroneServiceImpl(DroneRepository droneRepository, StationRepository stationRepository,
+                            DroneAvailabilityIndex droneAvailabilityIndex, ApplicationEventPublisher eventPublisher) {
         this.droneRepository = droneRepository;
         this.stationRepository = stationRepository;
+        this.droneAvailabilityIndex = droneAvailabilityIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
-     * Returnerer alle droner i databasen
+     * Returnerer alle droner i databasen, som views uden stationernes data.
+     * Read-only, så listen læses fra læsereplikaen, når den er slået til.
      */
-    public List<Drone> getAllDrones() {
-        return droneRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<DroneView> getAllDrones() {
+        return droneRepository.findAllViews();
     }
 
 
@@ -40,37 +57,25 @@ public class DroneServiceImpl implements DroneService {
      * @return Den oprettede drone.
      */
     public Drone createDrone(Drone drone) {
+        return placeAndSave(List.of(drone)).get(0);
+    }
 
-        // Finder alle stationer
-        List<Station> stations = stationRepository.findAll();
-        if (stations.isEmpty()) {
-            throw new IllegalStateException("Oprettelsen fejlede. Fandt ingen stationer.");
-        }
 
-        // Cacher dronecount for hver station
-        Map<Long, Integer> droneCounts = new HashMap<>();
-        for (Station station : stations) {
-            droneCounts.put(station.getId(), getDroneCountForStation(station));
+    /**
+     * Opretter flere droner i én transaktion og fordeler dem jævnt på stationerne.
+     * @param count Antal droner, der skal oprettes.
+     * @return De oprettede droner.
+     */
+    @Override
+    public List<Drone> createDrones(int count) {
+        if (count < 1 || count > MAX_BULK_CREATE) {
+            throw new IllegalArgumentException("count skal være mellem 1 og " + MAX_BULK_CREATE + ".");
         }
-
-        // finder station med laveste dronecount
-        Station stationWithFewestDrones = stations.get(0);
-        int lowestDroneCount = droneCounts.get(stationWithFewestDrones.getId());
-        for (Station station : stations) {
-            int droneCount = droneCounts.get(station.getId());
-            if (droneCount < lowestDroneCount) {
-                stationWithFewestDrones = station;
-                lowestDroneCount = droneCount;
-            }
+        List<Drone> drones = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            drones.add(new Drone());
         }
-
-        // Tildeler station med færreste antal droner, til den oprettede drone
-        drone.setStation(stationWithFewestDrones);
-        drone.setSerialNumber(UUID.randomUUID());
-        drone.setStatus(DroneStatus.I_DRIFT);
-
-        // Gemmer i db
-        return droneRepository.save(drone);
+        return placeAndSave(drones);
     }
 
 
@@ -81,7 +86,9 @@ public class DroneServiceImpl implements DroneService {
     public Drone enableDrone(long droneId) {
         Drone drone = findDroneOrThrow(droneId);
         drone.setStatus(DroneStatus.I_DRIFT);
-        return droneRepository.save(drone);
+        Drone saved = saveAndSync(drone);
+        eventPublisher.publishEvent(StateChangeEvent.droneEnabled(DroneView.from(saved)));
+        return saved;
     }
 
 
@@ -92,7 +99,9 @@ public class DroneServiceImpl implements DroneService {
     public Drone disableDrone(long droneId) {
             Drone drone = findDroneOrThrow(droneId);
             drone.setStatus(DroneStatus.UDE_AF_DRIFT);
-            return droneRepository.save(drone);
+            Drone saved = saveAndSync(drone);
+            eventPublisher.publishEvent(StateChangeEvent.droneDisabled(DroneView.from(saved)));
+            return saved;
     }
 
 
@@ -103,18 +112,54 @@ public class DroneServiceImpl implements DroneService {
     public Drone retireDrone(long droneId) {
         Drone drone = findDroneOrThrow(droneId);
         drone.setStatus(DroneStatus.UDFASET);
-        return droneRepository.save(drone);
+        Drone saved = saveAndSync(drone);
+        eventPublisher.publishEvent(StateChangeEvent.droneRetired(DroneView.from(saved)));
+        return saved;
     }
 
 
     /**
-     * Returnerer antallet af droner for en given station.
-     * @param station Stationen, der skal tælles droner for.
-     * @return Antallet af droner.
+     * Tildeler hver drone stationen med færrest droner og gemmer dem.
+     * Antal droner pr. station hentes i én grupperet forespørgsel, og en min-heap
+     * holder styr på belastningen, mens dronerne fordeles.
+     */
+    private List<Drone> placeAndSave(List<Drone> drones) {
+        List<StationLoad> loads = stationRepository.findAllWithDroneCount();
+        if (loads.isEmpty()) {
+            throw new IllegalStateException("Oprettelsen fejlede. Fandt ingen stationer.");
+        }
+
+        // Laveste dronecount først, ved lighed laveste station-id
+        PriorityQueue<StationSlot> slots = new PriorityQueue<>(Comparator
+                .comparingLong(StationSlot::droneCount)
+                .thenComparing(slot -> slot.station().getId()));
+        for (StationLoad load : loads) {
+            slots.add(new StationSlot(load.getStation(), load.getDroneCount()));
+        }
+
+        for (Drone drone : drones) {
+            StationSlot slot = slots.poll();
+            drone.setStation(slot.station());
+            drone.setSerialNumber(UUID.randomUUID());
+            drone.setStatus(DroneStatus.I_DRIFT);
+            slots.add(new StationSlot(slot.station(), slot.droneCount() + 1));
+        }
+
+        // Gemmer i db og registrerer dronerne i drone-indekset, når de er committed
+        List<Drone> saved = droneRepository.saveAll(drones);
+        afterCommit(() -> saved.forEach(droneAvailabilityIndex::sync));
+        return saved;
+    }
+
+    /**
+     * Gemmer dronen og opdaterer drone-indekset med dens nye status, når ændringen er committed.
+     * Dispatch tager kun droner, der er i drift i databasen, så en drone, der stadig står i indekset
+     * indtil commit, bliver ikke tildelt.
      */
-    private int getDroneCountForStation(Station station) {
-        // Finder antallet af droner tilknyttet en station
-        return (int) droneRepository.countByStationId(station.getId());
+    private Drone saveAndSync(Drone drone) {
+        Drone saved = droneRepository.save(drone);
+        afterCommit(() -> droneAvailabilityIndex.sync(saved));
+        return saved;
     }
 
     /**
@@ -124,5 +169,7 @@ public class DroneServiceImpl implements DroneService {
         return droneRepository.findById(droneId)
                 .orElseThrow(() -> new IllegalArgumentException("Drone med id " + droneId + " blev ikke fundet."));
     }
-}
 
+    private record StationSlot(Station station, long droneCount) {
+    }
+}
@@ -0,0 +1,174 @@
+package com.wzn.dronepizza.service.impl;
+
+import com.wzn.dronepizza.service.GeoPoint;
+import com.wzn.dronepizza.service.Geocoder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link Geocoder}, der slår adresser op i en lokal gazetteer-fil (CSV: gade;husnummer;postnummer;bredde;længde).
+ * Gader slås op på gadenavn og postnummer, da samme gadenavn findes i flere postnumre. Uden postnummer i adressen
+ * bruges gaden kun, hvis den findes i ét postnummer. Kendes husnummeret ikke, bruges det nærmeste husnummer
+ * på samme gade, men kun mellem gadens første og sidste kendte husnummer.
+ * Resultater (også "ikke fundet") gemmes i en LRU-cache med begrænset størrelse,
+ * nøglet på den rå adressestreng, så et cache-hit hverken parser adressen eller rører gazetteeren.
+ * Hits og misses tælles i dronepizza.geocoding.cache.requests{result}, og cachens størrelse er dronepizza.geocoding.cache.size.
+ */
+@Component
+public class GazetteerGeocoder implements Geocoder {
+
+    private static final Logger log = LoggerFactory.getLogger(GazetteerGeocoder.class);
+
+    // "Nørrebrogade 10B" -> gade "Nørrebrogade", husnummer 10. Højst 5 cifre, så husnummeret altid kan parses som int;
+    // længere husnumre findes ikke og giver "ikke fundet" i stedet for en fejl
+    private static final Pattern STREET_AND_NUMBER = Pattern.compile("^(.+?)\\s+(\\d{1,5})\\s*[A-Za-z]?$");
+
+    // "2200 København N" -> postnummer "2200"
+    private static final Pattern POSTCODE = Pattern.compile("^(\\d{4})\\b.*");
+
+    // Gade -> postnummer -> husnumre
+    private final Map<String, Map<String, NavigableMap<Integer, Optional<GeoPoint>>>> streets = new HashMap<>();
+    private final Map<String, Optional<GeoPoint>> cache;
+
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+
+    public GazetteerGeocoder(MeterRegistry meterRegistry,
+                             @Value("${dronepizza.geocoding.gazetteer:classpath:gazetteer/copenhagen.csv}") Resource gazetteer,
+                             @Value("${dronepizza.geocoding.cache-size:10000}") int cacheSize) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("dronepizza.geocoding.cache-size skal være større end 0.");
+        }
+        this.cache = new LinkedHashMap<>(Math.min(cacheSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<GeoPoint>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        load(gazetteer);
+
+        FunctionCounter.builder("dronepizza.geocoding.cache.requests", cacheHits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Opslag i geokodningens cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("dronepizza.geocoding.cache.requests", cacheMisses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Opslag i geokodningens cache")
+                .register(meterRegistry);
+        Gauge.builder("dronepizza.geocoding.cache.size", this, GazetteerGeocoder::cacheSize)
+                .description("Adresser i geokodningens cache")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<GeoPoint> geocode(String address) {
+        if (address == null) {
+            return Optional.empty();
+        }
+        synchronized (cache) {
+            Optional<GeoPoint> cached = cache.get(address);
+            if (cached != null) {
+                cacheHits.increment();
+                return cached;
+            }
+        }
+        cacheMisses.increment();
+        Optional<GeoPoint> resolved = lookup(address);
+        synchronized (cache) {
+            cache.put(address, resolved);
+        }
+        return resolved;
+    }
+
+    private int cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Slår adressen op i gazetteeren: gade og husnummer før kommaet, postnummer efter.
+     */
+    private Optional<GeoPoint> lookup(String address) {
+        int comma = address.indexOf(',');
+        String streetPart = (comma >= 0 ? address.substring(0, comma) : address).trim();
+        Matcher matcher = STREET_AND_NUMBER.matcher(streetPart);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        Map<String, NavigableMap<Integer, Optional<GeoPoint>>> postcodes = streets.get(normalize(matcher.group(1)));
+        if (postcodes == null) {
+            return Optional.empty();
+        }
+        NavigableMap<Integer, Optional<GeoPoint>> numbers;
+        if (comma >= 0) {
+            Matcher postcode = POSTCODE.matcher(address.substring(comma + 1).trim());
+            numbers = postcode.matches() ? postcodes.get(postcode.group(1)) : null;
+        } else {
+            // Uden postnummer kun, hvis gaden er entydig
+            numbers = postcodes.size() == 1 ? postcodes.values().iterator().next() : null;
+        }
+        if (numbers == null) {
+            return Optional.empty();
+        }
+        int number = Integer.parseInt(matcher.group(2));
+        Map.Entry<Integer, Optional<GeoPoint>> floor = numbers.floorEntry(number);
+        Map.Entry<Integer, Optional<GeoPoint>> ceiling = numbers.ceilingEntry(number);
+        if (floor == null || ceiling == null) {
+            // Før første eller efter sidste kendte husnummer: gaden kan fortsætte hvor som helst
+            return Optional.empty();
+        }
+        return number - floor.getKey() <= ceiling.getKey() - number ? floor.getValue() : ceiling.getValue();
+    }
+
+    private void load(Resource gazetteer) {
+        int entries = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(gazetteer.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(";");
+                if (fields.length < 5) {
+                    throw new IllegalStateException("Ugyldig linje i gazetteer: " + line);
+                }
+                GeoPoint point = new GeoPoint(Double.parseDouble(fields[3]), Double.parseDouble(fields[4]));
+                streets.computeIfAbsent(normalize(fields[0]), k -> new HashMap<>())
+                        .computeIfAbsent(fields[2].trim(), k -> new TreeMap<>())
+                        .put(Integer.parseInt(fields[1].trim()), Optional.of(point));
+                entries++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Kunne ikke indlæse gazetteer " + gazetteer.getDescription(), e);
+        }
+        log.info("Gazetteer indlæst med {} adresser på {} gader.", entries, streets.size());
+    }
+
+    private static String normalize(String street) {
+        return street.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,231 @@
+package com.wzn.dronepizza.service.impl;
+
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.service.StationLocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link StationLocator} baseret på et ensartet grid af kvadratiske celler (dronepizza.stations.grid-cell-degrees).
+ * Opslag søger ring for ring ud fra cellen med leveringsadressen og stopper,
+ * så snart ingen celle længere ude kan indeholde en nærmere station.
+ * Afstande regnes som ækvirektangulær tilnærmelse, hvilket er rigeligt præcist inden for en by.
+ */
+@Component
+public class GridStationLocator implements StationLocator {
+
+    private static final Logger log = LoggerFactory.getLogger(GridStationLocator.class);
+
+    private final StationRepository stationRepository;
+    private final double cellSize;
+
+    private final Map<Long, List<StationPoint>> cells = new HashMap<>();
+    private final Map<Long, StationPoint> stations = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Udstrækning af de celler, der er i brug, så søgningen ved hvornår den kan stoppe
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE;
+    private int maxCol = Integer.MIN_VALUE;
+
+    public GridStationLocator(StationRepository stationRepository,
+                              @Value("${dronepizza.stations.grid-cell-degrees:0.01}") double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("dronepizza.stations.grid-cell-degrees skal være større end 0.");
+        }
+        this.stationRepository = stationRepository;
+        this.cellSize = cellSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+        log.info("Stations-indeks indlæst med {} stationer.", size());
+    }
+
+    @Override
+    public List<Long> findNearestStationIds(double latitude, double longitude, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        // Længdegrader er kortere end breddegrader væk fra ækvator
+        double lonScale = Math.cos(Math.toRadians(latitude));
+        Comparator<StationPoint> byDistance = Comparator.comparingDouble(p -> p.distanceSquared(latitude, longitude, lonScale));
+        PriorityQueue<StationPoint> best = new PriorityQueue<>(limit + 1, byDistance.reversed());
+
+        lock.readLock().lock();
+        try {
+            if (stations.isEmpty()) {
+                return List.of();
+            }
+            int row = row(latitude);
+            int col = col(longitude);
+            // Ringe tættere på end grid'ets udstrækning er tomme og springes over
+            int firstRing = Math.max(Math.max(minRow - row, row - maxRow), Math.max(minCol - col, col - maxCol));
+            int maxRing = Math.max(Math.max(Math.abs(row - minRow), Math.abs(row - maxRow)),
+                    Math.max(Math.abs(col - minCol), Math.abs(col - maxCol)));
+
+            for (int ring = Math.max(firstRing, 0); ring <= maxRing; ring++) {
+                for (int r = Math.max(row - ring, minRow); r <= Math.min(row + ring, maxRow); r++) {
+                    if (r == row - ring || r == row + ring) {
+                        // Øverste og nederste række i ringen gennemløbes helt
+                        for (int c = Math.max(col - ring, minCol); c <= Math.min(col + ring, maxCol); c++) {
+                            collect(r, c, best, limit);
+                        }
+                    } else {
+                        // Øvrige rækker bidrager kun med ringens to yderste celler
+                        collect(r, col - ring, best, limit);
+                        collect(r, col + ring, best, limit);
+                    }
+                }
+                // Alle punkter i næste ring ligger mindst ring * cellSize væk
+                if (best.size() == limit) {
+                    double bound = ring * cellSize * Math.min(1.0, lonScale);
+                    StationPoint worst = best.peek();
+                    if (worst.distanceSquared(latitude, longitude, lonScale) <= bound * bound) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().id);
+        }
+        // Køen gav længst væk først
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void collect(int row, int col, PriorityQueue<StationPoint> best, int limit) {
+        List<StationPoint> cell = cells.get(key(row, col));
+        if (cell == null) {
+            return;
+        }
+        for (StationPoint point : cell) {
+            best.offer(point);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+    }
+
+    @Override
+    public void upsert(Station station) {
+        if (station.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            upsertLocked(station);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long stationId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(stationId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return stations.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        List<Station> all = stationRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            stations.clear();
+            minRow = minCol = Integer.MAX_VALUE;
+            maxRow = maxCol = Integer.MIN_VALUE;
+            for (Station station : all) {
+                upsertLocked(station);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void upsertLocked(Station station) {
+        removeLocked(station.getId());
+        StationPoint point = new StationPoint(station.getId(), station.getLatitude(), station.getLongitude());
+        int row = row(point.latitude);
+        int col = col(point.longitude);
+        cells.computeIfAbsent(key(row, col), k -> new ArrayList<>()).add(point);
+        stations.put(point.id, point);
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+    }
+
+    private void removeLocked(Long stationId) {
+        StationPoint existing = stations.remove(stationId);
+        if (existing == null) {
+            return;
+        }
+        long key = key(row(existing.latitude), col(existing.longitude));
+        List<StationPoint> cell = cells.get(key);
+        if (cell != null) {
+            cell.removeIf(p -> p.id.equals(stationId));
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+        // Udstrækningen krympes ikke; den er kun en øvre grænse for søgningen
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / cellSize);
+    }
+
+    private int col(double longitude) {
+        return (int) Math.floor(longitude / cellSize);
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+
+    private record StationPoint(Long id, double latitude, double longitude) {
+
+        double distanceSquared(double lat, double lon, double lonScale) {
+            double dLat = latitude - lat;
+            double dLon = (longitude - lon) * lonScale;
+            return dLat * dLat + dLon * dLon;
+        }
+    }
+}
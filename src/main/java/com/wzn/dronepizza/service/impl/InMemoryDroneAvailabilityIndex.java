@@ -0,0 +1,240 @@
+package com.wzn.dronepizza.service.impl;
+
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.DroneStationRef;
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-memory implementation af {@link DroneAvailabilityIndex}.
+ * Alle droner i drift er registreret med deres station; de ledige ligger desuden i frie lister
+ * (én samlet og én pr. station) med et opslag fra id til position,
+ * så tilføj, fjern, optaget/ledig og tilfældigt valg sker i konstant tid.
+ */
+@Component
+public class InMemoryDroneAvailabilityIndex implements DroneAvailabilityIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryDroneAvailabilityIndex.class);
+
+    // Nøgle for droner uden station i stationOf
+    private static final Long NO_STATION = -1L;
+
+    private final DroneRepository droneRepository;
+
+    // Station for hver drone i drift, optaget eller ej
+    private final Map<Long, Long> stationOf = new HashMap<>();
+    private final IdPool freeDrones = new IdPool();
+    private final Map<Long, IdPool> freeByStation = new HashMap<>();
+
+    public InMemoryDroneAvailabilityIndex(DroneRepository droneRepository) {
+        this.droneRepository = droneRepository;
+    }
+
+    /**
+     * Varmer indekset op fra databasen, når applikationen er startet (efter DataInitializer).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+        log.info("Drone-indeks indlæst med {} ledige og {} optagede droner.", size(), busyCount());
+    }
+
+    @Override
+    public void sync(Drone drone) {
+        if (drone.getId() == null) {
+            return;
+        }
+        if (drone.getStatus() == DroneStatus.I_DRIFT) {
+            register(drone.getId(), drone.getStation() != null ? drone.getStation().getId() : null, drone.isBusy());
+        } else {
+            remove(drone.getId());
+        }
+    }
+
+    @Override
+    public synchronized void remove(Long droneId) {
+        Long stationKey = stationOf.remove(droneId);
+        if (stationKey != null) {
+            removeFree(droneId, stationKey);
+        }
+    }
+
+    @Override
+    public synchronized void markBusy(Long droneId) {
+        Long stationKey = stationOf.get(droneId);
+        if (stationKey != null) {
+            removeFree(droneId, stationKey);
+        }
+    }
+
+    @Override
+    public synchronized void markIdle(Long droneId) {
+        Long stationKey = stationOf.get(droneId);
+        if (stationKey != null) {
+            addFree(droneId, stationKey);
+        }
+    }
+
+    @Override
+    public synchronized Optional<Long> pickAvailable() {
+        return freeDrones.pick();
+    }
+
+    @Override
+    public synchronized Optional<Long> pickAvailable(Long stationId) {
+        IdPool pool = freeByStation.get(stationId);
+        return pool != null ? pool.pick() : Optional.empty();
+    }
+
+    @Override
+    public synchronized int size() {
+        return freeDrones.size();
+    }
+
+    @Override
+    public synchronized int busyCount() {
+        return stationOf.size() - freeDrones.size();
+    }
+
+    @Override
+    public void rebuild() {
+        List<DroneStationRef> inService = droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT);
+        synchronized (this) {
+            stationOf.clear();
+            freeDrones.clear();
+            freeByStation.clear();
+            inService.forEach(ref -> register(ref.getId(), ref.getStationId(), ref.isBusy()));
+        }
+    }
+
+    @Override
+    public int reconcile() {
+        Map<Long, DroneStationRef> expected = new HashMap<>();
+        for (DroneStationRef ref : droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT)) {
+            expected.put(ref.getId(), ref);
+        }
+        int deviations = 0;
+        synchronized (this) {
+            for (Long id : new ArrayList<>(stationOf.keySet())) {
+                if (!expected.containsKey(id)) {
+                    remove(id);
+                    deviations++;
+                }
+            }
+            for (DroneStationRef ref : expected.values()) {
+                // Manglende droner tilføjes, og droner med forkert station eller optaget/ledig rettes
+                boolean sameStation = stationKey(ref.getStationId()).equals(stationOf.get(ref.getId()));
+                boolean sameState = freeDrones.contains(ref.getId()) != ref.isBusy();
+                if (!sameStation || !sameState) {
+                    register(ref.getId(), ref.getStationId(), ref.isBusy());
+                    deviations++;
+                }
+            }
+        }
+        if (deviations > 0) {
+            log.warn("Drone-indeks var ude af sync med databasen: {} afvigelser rettet.", deviations);
+        }
+        return deviations;
+    }
+
+    private synchronized void register(Long droneId, Long stationId, boolean busy) {
+        Long key = stationKey(stationId);
+        Long current = stationOf.put(droneId, key);
+        if (current != null && !current.equals(key)) {
+            // Dronen er flyttet til en anden station
+            removeFree(droneId, current);
+        }
+        if (busy) {
+            removeFree(droneId, key);
+        } else {
+            addFree(droneId, key);
+        }
+    }
+
+    private void addFree(Long droneId, Long stationKey) {
+        freeDrones.add(droneId);
+        freeByStation.computeIfAbsent(stationKey, k -> new IdPool()).add(droneId);
+    }
+
+    private void removeFree(Long droneId, Long stationKey) {
+        freeDrones.remove(droneId);
+        IdPool pool = freeByStation.get(stationKey);
+        if (pool != null) {
+            pool.remove(droneId);
+            if (pool.isEmpty()) {
+                freeByStation.remove(stationKey);
+            }
+        }
+    }
+
+    private static Long stationKey(Long stationId) {
+        return stationId != null ? stationId : NO_STATION;
+    }
+
+    /**
+     * Mængde af id'er med O(1) tilføj, fjern og tilfældigt valg. Ikke trådsikker i sig selv.
+     */
+    private static final class IdPool {
+
+        private final List<Long> ids = new ArrayList<>();
+        private final Map<Long, Integer> positions = new HashMap<>();
+
+        void add(Long id) {
+            if (positions.containsKey(id)) {
+                return;
+            }
+            positions.put(id, ids.size());
+            ids.add(id);
+        }
+
+        void remove(Long id) {
+            Integer position = positions.remove(id);
+            if (position == null) {
+                return;
+            }
+            // Flyt sidste element ind på den ledige plads, så fjernelse er O(1)
+            Long last = ids.remove(ids.size() - 1);
+            if (position < ids.size()) {
+                ids.set(position, last);
+                positions.put(last, position);
+            }
+        }
+
+        boolean contains(Long id) {
+            return positions.containsKey(id);
+        }
+
+        Optional<Long> pick() {
+            if (ids.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        boolean isEmpty() {
+            return ids.isEmpty();
+        }
+
+        void clear() {
+            ids.clear();
+            positions.clear();
+        }
+    }
+}
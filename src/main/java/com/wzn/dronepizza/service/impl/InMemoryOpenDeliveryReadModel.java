@@ -0,0 +1,233 @@
+package com.wzn.dronepizza.service.impl;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory implementation af {@link OpenDeliveryReadModel}.
+ * De åbne leveringer ligger i et sorteret map efter id, og dem uden drone desuden i et sorteret sæt
+ * efter forventet leveringstid. Begge er skip lists, så læsninger aldrig venter på en lås;
+ * skrivninger er serialiseret, så de to strukturer opdateres i samme rækkefølge.
+ */
+@Component
+public class InMemoryOpenDeliveryReadModel implements OpenDeliveryReadModel {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryOpenDeliveryReadModel.class);
+
+    private static final Comparator<DeliveryView> QUEUE_ORDER = Comparator
+            .comparing(DeliveryView::expectedDeliveryTime, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(DeliveryView::id);
+
+    private final DeliveryRepository deliveryRepository;
+
+    private final ConcurrentNavigableMap<Long, DeliveryView> open = new ConcurrentSkipListMap<>();
+    private final NavigableSet<DeliveryView> queued = new ConcurrentSkipListSet<>(QUEUE_ORDER);
+
+    // Ændringer, der sker mens rebuild/reconcile læser databasen, og som skal lægges oven på resultatet,
+    // og id'erne, de rører. Guardes af this.
+    private List<Runnable> changesDuringRebuild;
+    private Set<Long> changedDuringRebuild;
+
+    // Højst én rebuild/reconcile ad gangen (fx opstart og baggrundsindlæsning af eksempeldata); skrivninger venter ikke på den
+    private final Object rebuildLock = new Object();
+
+    public InMemoryOpenDeliveryReadModel(DeliveryRepository deliveryRepository) {
+        this.deliveryRepository = deliveryRepository;
+    }
+
+    /**
+     * Indlæser modellen fra databasen, når applikationen er startet (efter DataInitializer).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+        log.info("Læsemodel indlæst med {} åbne leveringer, heraf {} i kø.", size(), queueSize());
+    }
+
+    @Override
+    public synchronized void upsert(DeliveryView delivery) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(() -> apply(delivery));
+            changedDuringRebuild.add(delivery.id());
+        }
+        apply(delivery);
+    }
+
+    @Override
+    public synchronized void upsertAll(List<DeliveryView> deliveries) {
+        deliveries.forEach(this::upsert);
+    }
+
+    @Override
+    public synchronized void remove(Long deliveryId) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(() -> removeOpen(deliveryId));
+            changedDuringRebuild.add(deliveryId);
+        }
+        removeOpen(deliveryId);
+    }
+
+    @Override
+    public Optional<DeliveryView> find(Long deliveryId) {
+        return Optional.ofNullable(open.get(deliveryId));
+    }
+
+    @Override
+    public List<DeliveryView> page(long afterId, int limit) {
+        List<DeliveryView> page = new ArrayList<>(Math.min(limit, open.size()));
+        for (DeliveryView delivery : open.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(delivery);
+        }
+        return page;
+    }
+
+    @Override
+    public List<DeliveryView> queue() {
+        return new ArrayList<>(queued);
+    }
+
+    @Override
+    public int size() {
+        return open.size();
+    }
+
+    @Override
+    public int queueSize() {
+        return queued.size();
+    }
+
+    @Override
+    public void rebuild() {
+        load();
+    }
+
+    /**
+     * Læser fra primæren (ikke-read-only transaktion): en replika, der er bagud, ville rulle nyere ændringer tilbage.
+     */
+    @Override
+    @Transactional
+    public int reconcile() {
+        int deviations = load();
+        if (deviations > 0) {
+            log.warn("Læsemodellen var ude af sync med databasen: {} leveringer rettet.", deviations);
+        }
+        return deviations;
+    }
+
+    /**
+     * Læser de åbne leveringer fra databasen og bringer modellen i overensstemmelse med dem.
+     * Kun leveringer, der afviger, røres, så samtidige læsninger ikke ser en tom model undervejs.
+     * @return Antal leveringer, der afveg, ud over dem, der blev ændret under læsningen.
+     */
+    private int load() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                changesDuringRebuild = new ArrayList<>();
+                changedDuringRebuild = new HashSet<>();
+            }
+            List<DeliveryView> fromDatabase;
+            try {
+                fromDatabase = deliveryRepository.findOpenViews();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    changesDuringRebuild = null;
+                    changedDuringRebuild = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                Map<Long, DeliveryView> expected = new HashMap<>(fromDatabase.size() * 2);
+                fromDatabase.forEach(delivery -> expected.put(delivery.id(), delivery));
+                int deviations = 0;
+                for (Long id : new ArrayList<>(open.keySet())) {
+                    if (!expected.containsKey(id)) {
+                        removeOpen(id);
+                        deviations += changedDuringRebuild.contains(id) ? 0 : 1;
+                    }
+                }
+                for (DeliveryView delivery : fromDatabase) {
+                    if (!sameAs(open.get(delivery.id()), delivery)) {
+                        apply(delivery);
+                        deviations += changedDuringRebuild.contains(delivery.id()) ? 0 : 1;
+                    }
+                }
+                // Læsningen kan være sket før eller efter disse ændringer blev committed; at gentage dem giver samme resultat
+                changesDuringRebuild.forEach(Runnable::run);
+                changesDuringRebuild = null;
+                changedDuringRebuild = null;
+                return deviations;
+            }
+        }
+    }
+
+    /**
+     * Om view'et i modellen svarer til databasens. Databasen gemmer tidspunkter med mikrosekunder,
+     * så tidspunkter, der kun afviger under et mikrosekund, er ens.
+     */
+    private static boolean sameAs(DeliveryView inModel, DeliveryView inDatabase) {
+        return inModel != null
+                && Objects.equals(inModel.droneId(), inDatabase.droneId())
+                && Objects.equals(inModel.address(), inDatabase.address())
+                && Objects.equals(inModel.latitude(), inDatabase.latitude())
+                && Objects.equals(inModel.longitude(), inDatabase.longitude())
+                && Objects.equals(inModel.pizzaId(), inDatabase.pizzaId())
+                && Objects.equals(inModel.pizzaTitle(), inDatabase.pizzaTitle())
+                && sameTime(inModel.expectedDeliveryTime(), inDatabase.expectedDeliveryTime())
+                && sameTime(inModel.actualDeliveryTime(), inDatabase.actualDeliveryTime())
+                && sameTime(inModel.orderedTime(), inDatabase.orderedTime());
+    }
+
+    private static boolean sameTime(LocalDateTime a, LocalDateTime b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return Duration.between(a, b).abs().toNanos() < 1000;
+    }
+
+    private void apply(DeliveryView delivery) {
+        if (delivery.actualDeliveryTime() != null) {
+            removeOpen(delivery.id());
+            return;
+        }
+        DeliveryView previous = open.put(delivery.id(), delivery);
+        if (previous != null) {
+            queued.remove(previous);
+        }
+        if (delivery.droneId() == null) {
+            queued.add(delivery);
+        }
+    }
+
+    private void removeOpen(Long deliveryId) {
+        DeliveryView previous = open.remove(deliveryId);
+        if (previous != null) {
+            queued.remove(previous);
+        }
+    }
+}
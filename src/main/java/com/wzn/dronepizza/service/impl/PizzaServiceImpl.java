@@ -4,6 +4,7 @@ import com.wzn.dronepizza.entity.Pizza;
 import com.wzn.dronepizza.repository.PizzaRepository;
 import com.wzn.dronepizza.service.PizzaService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -18,6 +19,7 @@ public class PizzaServiceImpl implements PizzaService {
 
 
     @Override
+    @Transactional(readOnly = true)
     public List<Pizza> getAllPizzas() {
         return pizzaRepository.findAll();
     }
@@ -0,0 +1,70 @@
+-- Skemaet som Hibernate oprettede det med ddl-auto=update, før migreringerne blev indført.
+-- Eksisterende databaser baselines på denne version (spring.flyway.baseline-on-migrate), så V1 kun køres på tomme databaser.
+
+create sequence delivery_seq start with 1 increment by 50;
+create sequence drone_seq start with 1 increment by 50;
+create sequence pizza_seq start with 1 increment by 50;
+create sequence station_seq start with 1 increment by 50;
+
+create table station (
+    id bigint not null,
+    latitude float(53) not null,
+    longitude float(53) not null,
+    primary key (id)
+);
+
+create table pizza (
+    id bigint not null,
+    title varchar(255),
+    price integer not null,
+    primary key (id)
+);
+
+create table drone (
+    id bigint not null,
+    serial_number uuid not null,
+    status enum ('I_DRIFT','UDE_AF_DRIFT','UDFASET'),
+    station_id bigint,
+    busy boolean not null,
+    version bigint not null,
+    primary key (id),
+    constraint uk_drone_serial_number unique (serial_number),
+    constraint fk_drone_station foreign key (station_id) references station (id)
+);
+
+create table delivery (
+    id bigint not null,
+    address varchar(255),
+    latitude float(53),
+    longitude float(53),
+    ordered_time timestamp(6),
+    expected_delivery_time timestamp(6),
+    actual_delivery_time timestamp(6),
+    drone_id bigint,
+    pizza_id bigint,
+    version bigint not null,
+    primary key (id),
+    constraint fk_delivery_drone foreign key (drone_id) references drone (id),
+    constraint fk_delivery_pizza foreign key (pizza_id) references pizza (id)
+);
+
+create index idx_delivery_actual_time_id on delivery (actual_delivery_time, id);
+
+create table delivery_archive (
+    id bigint not null,
+    address varchar(255),
+    latitude float(53),
+    longitude float(53),
+    ordered_time timestamp(6),
+    expected_delivery_time timestamp(6),
+    actual_delivery_time timestamp(6),
+    drone_id bigint,
+    pizza_id bigint,
+    version bigint not null,
+    archived_time timestamp(6),
+    primary key (id),
+    constraint fk_delivery_archive_drone foreign key (drone_id) references drone (id),
+    constraint fk_delivery_archive_pizza foreign key (pizza_id) references pizza (id)
+);
+
+create index idx_delivery_archive_expected_time on delivery_archive (expected_delivery_time);
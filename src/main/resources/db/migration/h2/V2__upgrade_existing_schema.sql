@@ -0,0 +1,55 @@
+-- Bringer en database fra før migreringerne op på V1-skemaet. Sådan en database baselines på V1 (V1 køres ikke),
+-- og kan være lavet af en hvilken som helst tidligere version med ddl-auto=update: fra den oprindelige
+-- (identity-id'er, ingen busy/version/koordinater, intet arkiv) til den seneste før Flyway.
+-- Alt er betinget, så migreringen ikke ændrer noget på en database, der er oprettet med V1.
+
+-- Kolonner, der er tilføjet siden den oprindelige version. Eksisterende rækker får version 0 og busy = false.
+alter table drone add column if not exists busy boolean default false not null;
+alter table drone add column if not exists version bigint default 0 not null;
+alter table delivery add column if not exists latitude float(53);
+alter table delivery add column if not exists longitude float(53);
+alter table delivery add column if not exists ordered_time timestamp(6);
+alter table delivery add column if not exists version bigint default 0 not null;
+
+-- En drone med en åben levering er optaget; gælder også droner fra før busy fandtes
+update drone set busy = true
+where busy = false and id in (select drone_id from delivery where drone_id is not null and actual_delivery_time is null);
+
+create index if not exists idx_delivery_actual_time_id on delivery (actual_delivery_time, id);
+
+-- Arkivet (fra før Flyway lavet af ddl-auto=update med samme indeks)
+create table if not exists delivery_archive (
+    id bigint not null,
+    address varchar(255),
+    latitude float(53),
+    longitude float(53),
+    ordered_time timestamp(6),
+    expected_delivery_time timestamp(6),
+    actual_delivery_time timestamp(6),
+    drone_id bigint,
+    pizza_id bigint,
+    version bigint not null,
+    archived_time timestamp(6),
+    primary key (id),
+    constraint fk_delivery_archive_drone foreign key (drone_id) references drone (id),
+    constraint fk_delivery_archive_pizza foreign key (pizza_id) references pizza (id)
+);
+
+create index if not exists idx_delivery_archive_expected_time on delivery_archive (expected_delivery_time);
+
+-- Sekvenserne. Hibernate tager id'er i blokke af 50, og sekvensens næste værdi er den næste bloks øverste id,
+-- så den skal være mindst max(id) + 50, for at identity-id'erne ikke uddeles igen.
+-- IdSequenceAligner gør det samme efter hver migrering; her sker det, før første indsættelse med sekvenserne.
+create sequence if not exists delivery_seq start with 1 increment by 50;
+create sequence if not exists drone_seq start with 1 increment by 50;
+create sequence if not exists pizza_seq start with 1 increment by 50;
+create sequence if not exists station_seq start with 1 increment by 50;
+
+alter sequence delivery_seq restart with (select greatest(base_value, coalesce((select max(id) + 50 from delivery), 1))
+                                          from information_schema.sequences where sequence_name = 'DELIVERY_SEQ');
+alter sequence drone_seq restart with (select greatest(base_value, coalesce((select max(id) + 50 from drone), 1))
+                                       from information_schema.sequences where sequence_name = 'DRONE_SEQ');
+alter sequence pizza_seq restart with (select greatest(base_value, coalesce((select max(id) + 50 from pizza), 1))
+                                       from information_schema.sequences where sequence_name = 'PIZZA_SEQ');
+alter sequence station_seq restart with (select greatest(base_value, coalesce((select max(id) + 50 from station), 1))
+                                         from information_schema.sequences where sequence_name = 'STATION_SEQ');
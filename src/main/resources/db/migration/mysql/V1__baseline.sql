@@ -0,0 +1,75 @@
+-- Skemaet som Hibernate oprettede det med ddl-auto=update, før migreringerne blev indført.
+-- Eksisterende databaser baselines på denne version (spring.flyway.baseline-on-migrate), så V1 kun køres på tomme databaser.
+-- MySQL har ingen sekvenser; Hibernate bruger en tabel pr. sekvens.
+
+create table delivery_seq (next_val bigint) engine=InnoDB;
+insert into delivery_seq values (1);
+create table drone_seq (next_val bigint) engine=InnoDB;
+insert into drone_seq values (1);
+create table pizza_seq (next_val bigint) engine=InnoDB;
+insert into pizza_seq values (1);
+create table station_seq (next_val bigint) engine=InnoDB;
+insert into station_seq values (1);
+
+create table station (
+    id bigint not null,
+    latitude float(53) not null,
+    longitude float(53) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table pizza (
+    id bigint not null,
+    title varchar(255),
+    price integer not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table drone (
+    id bigint not null,
+    serial_number binary(16) not null,
+    status enum ('I_DRIFT','UDE_AF_DRIFT','UDFASET'),
+    station_id bigint,
+    busy bit not null,
+    version bigint not null,
+    primary key (id),
+    constraint uk_drone_serial_number unique (serial_number),
+    constraint fk_drone_station foreign key (station_id) references station (id)
+) engine=InnoDB;
+
+create table delivery (
+    id bigint not null,
+    address varchar(255),
+    latitude float(53),
+    longitude float(53),
+    ordered_time datetime(6),
+    expected_delivery_time datetime(6),
+    actual_delivery_time datetime(6),
+    drone_id bigint,
+    pizza_id bigint,
+    version bigint not null,
+    primary key (id),
+    constraint fk_delivery_drone foreign key (drone_id) references drone (id),
+    constraint fk_delivery_pizza foreign key (pizza_id) references pizza (id)
+) engine=InnoDB;
+
+create index idx_delivery_actual_time_id on delivery (actual_delivery_time, id);
+
+create table delivery_archive (
+    id bigint not null,
+    address varchar(255),
+    latitude float(53),
+    longitude float(53),
+    ordered_time datetime(6),
+    expected_delivery_time datetime(6),
+    actual_delivery_time datetime(6),
+    drone_id bigint,
+    pizza_id bigint,
+    version bigint not null,
+    archived_time datetime(6),
+    primary key (id),
+    constraint fk_delivery_archive_drone foreign key (drone_id) references drone (id),
+    constraint fk_delivery_archive_pizza foreign key (pizza_id) references pizza (id)
+) engine=InnoDB;
+
+create index idx_delivery_archive_expected_time on delivery_archive (expected_delivery_time);
@@ -0,0 +1,98 @@
+-- Bringer en database fra før migreringerne op på V1-skemaet. Sådan en database baselines på V1 (V1 køres ikke),
+-- og kan være lavet af en hvilken som helst tidligere version med ddl-auto=update: fra den oprindelige
+-- (auto_increment-id'er, ingen busy/version/koordinater, intet arkiv) til den seneste før Flyway.
+-- Alt er betinget, så migreringen ikke ændrer noget på en database, der er oprettet med V1.
+-- MySQL har hverken "add column if not exists" eller "create index if not exists"; de betingede ændringer
+-- bygges derfor som tekst ud fra information_schema og køres som prepared statements.
+
+-- Kolonner, der er tilføjet siden den oprindelige version. Eksisterende rækker får version 0 og busy = false.
+set @ddl = (select if(count(*) = 0, 'alter table drone add column busy bit not null default 0', 'select 1')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'drone' and column_name = 'busy');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = (select if(count(*) = 0, 'alter table drone add column version bigint not null default 0', 'select 1')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'drone' and column_name = 'version');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = (select if(count(*) = 0, 'alter table delivery add column latitude float(53)', 'select 1')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'delivery' and column_name = 'latitude');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = (select if(count(*) = 0, 'alter table delivery add column longitude float(53)', 'select 1')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'delivery' and column_name = 'longitude');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = (select if(count(*) = 0, 'alter table delivery add column ordered_time datetime(6)', 'select 1')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'delivery' and column_name = 'ordered_time');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+set @ddl = (select if(count(*) = 0, 'alter table delivery add column version bigint not null default 0', 'select 1')
+            from information_schema.columns
+            where table_schema = database() and table_name = 'delivery' and column_name = 'version');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+-- En drone med en åben levering er optaget; gælder også droner fra før busy fandtes
+update drone set busy = 1
+where busy = 0 and id in (select drone_id from delivery where drone_id is not null and actual_delivery_time is null);
+
+set @ddl = (select if(count(*) = 0, 'create index idx_delivery_actual_time_id on delivery (actual_delivery_time, id)', 'select 1')
+            from information_schema.statistics
+            where table_schema = database() and table_name = 'delivery' and index_name = 'idx_delivery_actual_time_id');
+prepare ddl from @ddl;
+execute ddl;
+deallocate prepare ddl;
+
+-- Arkivet (fra før Flyway lavet af ddl-auto=update med samme indeks)
+create table if not exists delivery_archive (
+    id bigint not null,
+    address varchar(255),
+    latitude float(53),
+    longitude float(53),
+    ordered_time datetime(6),
+    expected_delivery_time datetime(6),
+    actual_delivery_time datetime(6),
+    drone_id bigint,
+    pizza_id bigint,
+    version bigint not null,
+    archived_time datetime(6),
+    primary key (id),
+    index idx_delivery_archive_expected_time (expected_delivery_time),
+    constraint fk_delivery_archive_drone foreign key (drone_id) references drone (id),
+    constraint fk_delivery_archive_pizza foreign key (pizza_id) references pizza (id)
+) engine=InnoDB;
+
+-- Sekvenstabellerne. Hibernate tager id'er i blokke af 50, og next_val er den næste bloks øverste id,
+-- så den skal være mindst max(id) + 50, for at auto_increment-id'erne ikke uddeles igen.
+-- IdSequenceAligner gør det samme efter hver migrering; her sker det, før første indsættelse med sekvenserne.
+create table if not exists delivery_seq (next_val bigint) engine=InnoDB;
+insert into delivery_seq (next_val) select 1 from dual where not exists (select * from delivery_seq);
+update delivery_seq set next_val = greatest(next_val, (select coalesce(max(id) + 50, 1) from delivery));
+
+create table if not exists drone_seq (next_val bigint) engine=InnoDB;
+insert into drone_seq (next_val) select 1 from dual where not exists (select * from drone_seq);
+update drone_seq set next_val = greatest(next_val, (select coalesce(max(id) + 50, 1) from drone));
+
+create table if not exists pizza_seq (next_val bigint) engine=InnoDB;
+insert into pizza_seq (next_val) select 1 from dual where not exists (select * from pizza_seq);
+update pizza_seq set next_val = greatest(next_val, (select coalesce(max(id) + 50, 1) from pizza));
+
+create table if not exists station_seq (next_val bigint) engine=InnoDB;
+insert into station_seq (next_val) select 1 from dual where not exists (select * from station_seq);
+update station_seq set next_val = greatest(next_val, (select coalesce(max(id) + 50, 1) from station));
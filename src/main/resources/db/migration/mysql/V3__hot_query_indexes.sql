@@ -0,0 +1,10 @@
+-- Indekser til de hyppigste forespørgsler; samme navne som i @Table(indexes) på entiteterne.
+-- Hverken H2 eller MySQL har partielle indekser, så "ikke afsluttet" (actual_delivery_time is null)
+-- dækkes af sammensatte indekser, hvor kolonnen indgår.
+
+-- Leveringskøen: drone_id is null and actual_delivery_time is null, sorteret på expected_delivery_time og id
+-- (dispatch tager de ældste først), så køen læses i indeksets rækkefølge uden at blive sorteret, mens rækkerne låses
+create index idx_delivery_queue on delivery (drone_id, actual_delivery_time, expected_delivery_time, id);
+
+-- Droner pr. status (drone-indekset, optælling pr. status) med station og busy i indekset
+create index idx_drone_status_station on drone (status, station_id, busy);
@@ -0,0 +1,9 @@
+-- Heartbeat til måling af læsereplikaens forsinkelse (ReplicaLagMonitor):
+-- primæren opdaterer beat_time, og replikaens værdi viser, hvor langt replikeringen er nået.
+create table replication_heartbeat (
+    id integer not null,
+    beat_time datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+insert into replication_heartbeat (id, beat_time) values (1, current_timestamp(6));
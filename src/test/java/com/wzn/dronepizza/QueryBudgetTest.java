@@ -0,0 +1,279 @@
+package com.wzn.dronepizza;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wzn.dronepizza.dto.DeliveryOrder;
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.service.DeliveryArchiveService;
+import com.wzn.dronepizza.service.DeliveryExportService;
+import com.wzn.dronepizza.service.DeliveryService;
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import com.wzn.dronepizza.service.DroneService;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import com.wzn.dronepizza.support.QueryCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Budgetter for antal SQL-statements pr. endpoint og service-metode mod et stort datasæt.
+ * Budgetterne er uafhængige af antallet af rækker, så en ændring, der giver N+1 queries, får testen til at fejle.
+ */
+@SpringBootTest(properties = "dronepizza.drone-index.reconcile-interval-ms=3600000")
+@AutoConfigureMockMvc
+class QueryBudgetTest {
+
+    private static final int STATIONS = 8;
+    private static final int PIZZAS = 10;
+    private static final int DRONES = 80;
+    private static final int DELIVERIES = 600;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private DeliveryExportService deliveryExportService;
+
+    @Autowired
+    private DeliveryArchiveService deliveryArchiveService;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private DroneAvailabilityIndex droneAvailabilityIndex;
+
+    @Autowired
+    private OpenDeliveryReadModel openDeliveries;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private QueryCounter queries;
+    private List<Pizza> pizzas;
+    private List<Delivery> deliveries;
+
+    @BeforeEach
+    void setUp() {
+        queries = new QueryCounter(entityManagerFactory);
+        deliveryRepository.deleteAll();
+
+        // Stationer, pizzaer og droner fordelt på stationerne
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < STATIONS; i++) {
+            stations.add(new Station(55.60 + i * 0.02, 12.50 + i * 0.02));
+        }
+        stationRepository.saveAll(stations);
+        List<Pizza> newPizzas = new ArrayList<>();
+        for (int i = 0; i < PIZZAS; i++) {
+            newPizzas.add(new Pizza("Budget " + i, 60 + i));
+        }
+        pizzas = pizzaRepository.saveAll(newPizzas);
+        List<Drone> drones = droneService.createDrones(DRONES);
+
+        // Hver fjerde levering har en drone (halvdelen af dem er afsluttet), resten står i kø
+        List<Delivery> newDeliveries = new ArrayList<>();
+        for (int i = 0; i < DELIVERIES; i++) {
+            Delivery delivery = new Delivery("Budgetvej " + i, LocalDateTime.now().plusMinutes(i), pizzas.get(i % PIZZAS));
+            if (i % 4 == 0) {
+                delivery.setDrone(drones.get(i / 4 % DRONES));
+                if (i % 8 == 0) {
+                    delivery.setActualDeliveryTime(LocalDateTime.now());
+                }
+            }
+            newDeliveries.add(delivery);
+        }
+        deliveries = deliveryRepository.saveAll(newDeliveries);
+        droneAvailabilityIndex.rebuild();
+        // Data er indsat direkte via repositories, uden om service-laget
+        openDeliveries.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        queries.stop();
+    }
+
+    @Test
+    void readEndpoints_shouldUseAtMostOneQueryRegardlessOfRows() throws Exception {
+        // De åbne leveringer læses fra læsemodellen
+        queries.assertAtMost(0, "GET /deliveries", () ->
+                mockMvc.perform(get("/deliveries").param("limit", "1000"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.data.length()").value(DELIVERIES * 7 / 8)));
+        queries.assertAtMost(0, "GET /deliveries/queue", () ->
+                mockMvc.perform(get("/deliveries/queue"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.data.length()").value(DELIVERIES * 3 / 4)));
+        queries.assertAtMost(1, "GET /drones", () ->
+                mockMvc.perform(get("/drones")).andExpect(status().isOk()));
+        queries.assertAtMost(1, "GET /pizzas (kold cache)", () ->
+                mockMvc.perform(get("/pizzas")).andExpect(status().isOk()));
+        queries.assertAtMost(0, "GET /pizzas (varm cache)", () ->
+                mockMvc.perform(get("/pizzas")).andExpect(status().isOk()));
+        // Abonnementet registreres i hukommelsen; events sendes fra committede ændringer
+        queries.assertAtMost(0, "GET /events", () ->
+                mockMvc.perform(get("/events")).andExpect(request().asyncStarted()));
+    }
+
+    @Test
+    void singleDelivery_shouldTryReadModelThenTableThenArchive() throws Exception {
+        // En afsluttet levering flyttes til arkivet; de andre afsluttede bliver i delivery-tabellen
+        assertEquals(1, deliveryArchiveService.archiveChunk(LocalDateTime.now().plusMinutes(1), 1));
+        List<Long> finished = deliveries.stream()
+                .filter(delivery -> delivery.getActualDeliveryTime() != null)
+                .map(Delivery::getId)
+                .toList();
+        Long archived = finished.stream().filter(id -> !deliveryRepository.existsById(id)).findFirst().orElseThrow();
+        Long inTable = finished.stream().filter(id -> !id.equals(archived)).findFirst().orElseThrow();
+        Long open = deliveries.get(1).getId();
+
+        queries.assertAtMost(0, "GET /deliveries/{id} (åben)", () ->
+                mockMvc.perform(get("/deliveries/{deliveryId}", open))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.data.id").value(open)));
+        queries.assertAtMost(1, "GET /deliveries/{id} (afsluttet)", () ->
+                mockMvc.perform(get("/deliveries/{deliveryId}", inTable))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.data.id").value(inTable)));
+        queries.assertAtMost(2, "GET /deliveries/{id} (arkiveret)", () ->
+                mockMvc.perform(get("/deliveries/{deliveryId}", archived))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.data.id").value(archived)));
+    }
+
+    @Test
+    void exportEndpoint_shouldStreamWithOneQueryPerTable() throws Exception {
+        // Én query for arkivet og én for delivery-tabellen
+        queries.assertAtMost(2, "GET /deliveries/export", () -> {
+            MvcResult result = mockMvc.perform(get("/deliveries/export")).andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        });
+    }
+
+    @Test
+    void writeEndpoints_shouldStayWithinBudget() throws Exception {
+        queries.assertAtMost(3, "POST /deliveries/add", () ->
+                mockMvc.perform(post("/deliveries/add")
+                                .param("pizzaId", pizzas.get(0).getId().toString())
+                                .param("address", "Nørrebrogade 10, 2200 København N"))
+                        .andExpect(status().isOk()));
+
+        Long queued = deliveries.get(1).getId();
+        queries.assertAtMost(4, "POST /deliveries/schedule", () ->
+                mockMvc.perform(post("/deliveries/schedule").param("deliveryId", queued.toString()))
+                        .andExpect(status().isOk()));
+        queries.assertAtMost(4, "POST /deliveries/finish", () ->
+                mockMvc.perform(post("/deliveries/finish").param("deliveryId", queued.toString()))
+                        .andExpect(status().isOk()));
+
+        Long droneId = droneRepository.findAllViews().get(0).id();
+        queries.assertAtMost(2, "POST /drones/disable", () ->
+                mockMvc.perform(post("/drones/disable").param("droneId", droneId.toString()))
+                        .andExpect(status().isOk()));
+        queries.assertAtMost(2, "POST /drones/enable", () ->
+                mockMvc.perform(post("/drones/enable").param("droneId", droneId.toString()))
+                        .andExpect(status().isOk()));
+        queries.assertAtMost(2, "POST /drones/retire", () ->
+                mockMvc.perform(post("/drones/retire").param("droneId", droneId.toString()))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    void bulkEndpoints_shouldBatchInserts() throws Exception {
+        // 100 droner: én grupperet stationsquery, sekvenskald pr. 50 id'er og inserts i batches af 50
+        queries.assertAtMost(6, "POST /drones/add?count=100", () ->
+                mockMvc.perform(post("/drones/add").param("count", "100")).andExpect(status().isOk()));
+
+        List<DeliveryOrder> orders = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            orders.add(new DeliveryOrder(pizzas.get(i % PIZZAS).getId(), "Nørrebrogade " + (i % 20 + 1)));
+        }
+        queries.assertAtMost(6, "POST /deliveries/batch (100)", () ->
+                mockMvc.perform(post("/deliveries/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(orders)))
+                        .andExpect(status().isOk()));
+    }
+
+    @Test
+    void serviceMethods_shouldNotLoadAssociationsRowByRow() throws Exception {
+        queries.assertAtMost(1, "OpenDeliveryReadModel.rebuild", openDeliveries::rebuild);
+        queries.assertAtMost(1, "countDeliveriesWithoutDrone", deliveryService::countDeliveriesWithoutDrone);
+        queries.assertAtMost(1, "DroneAvailabilityIndex.rebuild", droneAvailabilityIndex::rebuild);
+        queries.assertAtMost(2, "exportDeliveries", () ->
+                deliveryExportService.exportDeliveries(null, null, OutputStream.nullOutputStream()));
+
+        // Dispatch: én låsende query for køen, én låsende select og én opdatering for dronerne
+        // og leveringerne i én JDBC-batch, uanset hvor mange der tildeles
+        int[] assigned = new int[1];
+        queries.assertAtMost(4, "dispatchPendingDeliveries(50)", () ->
+                assigned[0] = deliveryService.dispatchPendingDeliveries(50));
+        assertTrue(assigned[0] > 1);
+    }
+
+    @Test
+    void referenceData_shouldComeFromSecondLevelCache() throws Exception {
+        Long pizzaId = pizzas.get(0).getId();
+        pizzaRepository.findById(pizzaId);
+        stationRepository.findAll();
+
+        // Pizzaer og stationer ændres sjældent: gentagne opslag går ikke til databasen
+        queries.assertAtMost(0, "PizzaRepository.findById (varm cache)", () ->
+                assertTrue(pizzaRepository.findById(pizzaId).isPresent()));
+        // Hits og misses pr. region eksponeres som metrikker
+        assertEquals(1, meterRegistry.get("hibernate.second.level.cache.requests")
+                .tags("region", "pizza", "result", "hit").functionCounter().count());
+        queries.assertAtMost(0, "StationRepository.findAll (varm cache)", () ->
+                assertTrue(stationRepository.findAll().size() >= STATIONS));
+
+        // En ny station gør det cachede resultat af findAll forældet
+        stationRepository.save(new Station(55.70, 12.60));
+        queries.assertAtMost(1, "StationRepository.findAll (efter ændring)", () ->
+                assertTrue(stationRepository.findAll().size() > STATIONS));
+    }
+}
@@ -0,0 +1,76 @@
+package com.wzn.dronepizza.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimitFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void doFilter_whenLimitReached_shouldRejectWith503() throws Exception {
+        // given: plads til én request, som holdes i gang
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 50, objectMapper);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/drones"), new MockHttpServletResponse(),
+                        (req, res) -> {
+                            entered.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        // when
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/drones"), rejected,
+                (req, res) -> fail("Requesten skulle være afvist"));
+
+        // then
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(false, objectMapper.readTree(rejected.getContentAsByteArray()).get("success").asBoolean());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(1, filter.availablePermits());
+    }
+
+    @Test
+    void doFilter_shouldReleasePermitWhenChainFails() throws Exception {
+        // given
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(2, 50, objectMapper);
+
+        // when
+        assertThrows(IllegalStateException.class, () ->
+                filter.doFilter(new MockHttpServletRequest("GET", "/pizzas"), new MockHttpServletResponse(),
+                        (req, res) -> {
+                            throw new IllegalStateException("Testfejl");
+                        }));
+
+        // then
+        assertEquals(2, filter.availablePermits());
+    }
+
+    @Test
+    void constructor_whenLimitNotPositive_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimitFilter(0, 50, objectMapper));
+    }
+}
@@ -0,0 +1,69 @@
+package com.wzn.dronepizza.config;
+
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.scheduler.OverdueDeliveryDetector;
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Profilen "faststart" i sin egen database, så eksempeldataene indlæses i en tom database.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:faststarttest")
+@ActiveProfiles("faststart")
+class FastStartProfileTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private DroneAvailabilityIndex droneAvailabilityIndex;
+
+    @Autowired
+    private OverdueDeliveryDetector overdueDetector;
+
+    @Test
+    void lazyInitialization_shouldDeferBeansExceptMetricsAndScheduledJobs() {
+        assertFalse(beanFactory.containsSingleton("droneController"));
+        assertTrue(beanFactory.containsSingleton("deliveryMetrics"));
+        assertTrue(beanFactory.containsSingleton("droneIndexReconciler"));
+        assertNotNull(meterRegistry.find("dronepizza.deliveries.queued").gauge());
+    }
+
+    @Test
+    void sampleData_shouldBeLoadedInBackgroundAndIndexesRebuilt() throws InterruptedException {
+        // Drone 1 er den eneste i drift, og dens levering er afsluttet
+        awaitTrue(() -> droneAvailabilityIndex.size() == 1);
+        // Den åbne eksempellevering overvåges, selv om den blev indlæst efter ApplicationReadyEvent
+        awaitTrue(() -> overdueDetector.pending() == 1);
+        assertEquals(3, stationRepository.count());
+        assertEquals(5, pizzaRepository.count());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,84 @@
+package com.wzn.dronepizza.config;
+
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tabeller med rækker, der ikke er indsat via sekvensen (som i en database fra før sekvenserne),
+ * skal stadig kunne få nye rækker uden dublerede id'er.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:idsequence")
+class IdSequenceAlignerTest {
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Flyway flyway;
+
+    @Test
+    void insert_shouldNotReuseExistingIds_whenRowsWereInsertedOutsideTheSequence() {
+        // Rækker lige efter det, sekvensen har uddelt, som fx auto_increment-id'er fra før sekvenserne
+        long next = jdbcTemplate.queryForObject("select next value for pizza_seq", Long.class);
+        for (long id = next + 1; id <= next + 200; id++) {
+            jdbcTemplate.update("insert into pizza (id, title, price) values (?, 'Gammel', 50)", id);
+        }
+
+        // Kører afterMigrate-callbacks, som ved næste opstart
+        flyway.migrate();
+
+        List<Pizza> pizzas = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            pizzas.add(new Pizza("Ny " + i, 75));
+        }
+        List<Pizza> saved = pizzaRepository.saveAll(pizzas);
+
+        Set<Long> ids = new HashSet<>();
+        saved.forEach(pizza -> ids.add(pizza.getId()));
+        assertEquals(120, ids.size());
+        assertEquals(120, jdbcTemplate.queryForObject("select count(*) from pizza where title like 'Ny %'", Long.class));
+    }
+
+    @Test
+    void align_shouldMoveTableBasedSequencesForwardOnly() throws Exception {
+        // MySQL-varianten: én tabel pr. sekvens med next_val
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:idsequence-tables;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        for (IdSequenceAligner.IdSequence idSequence : IdSequenceAligner.SEQUENCES) {
+            jdbc.execute("create table " + idSequence.table() + " (id bigint primary key)");
+            jdbc.execute("create table " + idSequence.sequence() + " (next_val bigint)");
+        }
+        jdbc.update("insert into delivery values (7), (1234)");
+        jdbc.update("insert into delivery_seq values (1)");
+        jdbc.update("insert into drone values (10)");
+        jdbc.update("insert into drone_seq values (5000)");
+        jdbc.update("insert into pizza_seq values (1)");
+        jdbc.update("insert into station_seq values (1)");
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertEquals(1, new IdSequenceAligner().align(connection));
+        }
+
+        assertEquals(1234 + IdSequenceAligner.ALLOCATION_SIZE,
+                jdbc.queryForObject("select next_val from delivery_seq", Long.class));
+        assertEquals(5000, jdbc.queryForObject("select next_val from drone_seq", Long.class));
+        assertEquals(1, jdbc.queryForObject("select next_val from pizza_seq", Long.class));
+    }
+}
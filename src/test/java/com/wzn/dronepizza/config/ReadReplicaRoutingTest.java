@@ -0,0 +1,123 @@
+package com.wzn.dronepizza.config;
+
+import com.wzn.dronepizza.dto.DroneView;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.scheduler.ReplicaLagMonitor;
+import com.wzn.dronepizza.service.DroneService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Primær og replika er to separate H2-databaser, så det kan ses, hvilken en en forespørgsel ramte.
+ * Replikaen får samme skema som primæren, men kun én station og én drone; heartbeatet sættes i hånden,
+ * og probe() kaldes direkte (heartbeat-ms er sat højt, så den planlagte kørsel ikke kommer imellem).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rw-primary",
+        "dronepizza.datasource.replica.url=" + ReadReplicaRoutingTest.REPLICA_URL,
+        "dronepizza.datasource.replica.heartbeat-ms=600000",
+        "dronepizza.datasource.replica.max-lag-ms=1200000"
+})
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:rw-replica;DB_CLOSE_DELAY=-1";
+
+    private static final UUID REPLICA_DRONE = UUID.fromString("00000000-0000-0000-0000-00000000beef");
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private ReplicaLagMonitor replicaLagMonitor;
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    // Direkte på replikaen, uden om applikationens read-only pulje
+    private final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+    @BeforeEach
+    void setUp() {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/h2")
+                .load()
+                .migrate();
+        replica.update("delete from drone");
+        replica.update("delete from station");
+        replica.update("insert into station (id, latitude, longitude) values (900, 55.68, 12.57)");
+        replica.update("insert into drone (id, serial_number, status, station_id, busy, version) "
+                + "values (900, ?, 'I_DRIFT', 900, false, 0)", REPLICA_DRONE);
+    }
+
+    @Test
+    void readOnlyServiceMethods_shouldReadFromReplica_whenItIsCaughtUp() {
+        setReplicaHeartbeat(LocalDateTime.now());
+        replicaLagMonitor.probe();
+        assertTrue(routingDataSource.isReplicaAvailable());
+
+        List<DroneView> drones = droneService.getAllDrones();
+
+        assertEquals(1, drones.size());
+        assertEquals(REPLICA_DRONE, drones.get(0).serialNumber());
+    }
+
+    @Test
+    void writesAndRepositoryDefaults_shouldStayOnPrimary_whenReplicaIsAvailable() {
+        setReplicaHeartbeat(LocalDateTime.now());
+        replicaLagMonitor.probe();
+        long primaryDrones = droneRepository.count();
+        assertTrue(primaryDrones > 1, "DataInitializer skulle have oprettet droner på primæren");
+
+        droneService.createDrones(2);
+
+        // count() kører i Spring Datas egen read-only transaktion og skal se skrivningen med det samme
+        assertEquals(primaryDrones + 2, droneRepository.count());
+        assertEquals(1, replica.queryForObject("select count(*) from drone", Long.class));
+    }
+
+    @Test
+    void readOnlyServiceMethods_shouldFallBackToPrimary_whenReplicaLags() {
+        setReplicaHeartbeat(LocalDateTime.now().minusHours(1));
+        replicaLagMonitor.probe();
+        assertFalse(routingDataSource.isReplicaAvailable());
+
+        List<DroneView> drones = droneService.getAllDrones();
+
+        assertEquals(droneRepository.count(), drones.size());
+        assertTrue(drones.stream().noneMatch(drone -> REPLICA_DRONE.equals(drone.serialNumber())));
+    }
+
+    @Test
+    void probe_shouldWriteHeartbeatOnPrimary() {
+        setReplicaHeartbeat(LocalDateTime.now());
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+
+        replicaLagMonitor.probe();
+
+        // Skrives via applikationens datakilde uden transaktion, dvs. til primæren
+        Timestamp beat = new JdbcTemplate(routingDataSource)
+                .queryForObject("select beat_time from replication_heartbeat where id = 1", Timestamp.class);
+        assertNotNull(beat);
+        assertTrue(beat.toLocalDateTime().isAfter(before));
+    }
+
+    private void setReplicaHeartbeat(LocalDateTime beatTime) {
+        replica.update("update replication_heartbeat set beat_time = ? where id = 1", Timestamp.valueOf(beatTime));
+    }
+}
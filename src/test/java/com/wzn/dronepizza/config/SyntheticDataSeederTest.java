@@ -0,0 +1,92 @@
+package com.wzn.dronepizza.config;
+
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.DroneStatusCount;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Profilen "seed" med små mængder i sin egen database (de andre tests deler den, DataInitializer fylder).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:seedtest",
+        "dronepizza.seed.stations=20",
+        "dronepizza.seed.drones=400",
+        "dronepizza.seed.historical-deliveries=3000",
+        "dronepizza.seed.open-deliveries=150",
+        "dronepizza.seed.batch-size=100"
+})
+@ActiveProfiles("seed")
+class SyntheticDataSeederTest {
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DroneAvailabilityIndex droneAvailabilityIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void seed_shouldCreateConfiguredVolumesInsteadOfSampleData() {
+        assertEquals(20, stationRepository.count());
+        assertEquals(5, pizzaRepository.count()); // kun menuen, ikke DataInitializers data oveni
+        assertEquals(400, droneRepository.count());
+        assertEquals(3150, deliveryRepository.count());
+
+        // Alle stationer ligger inden for 10 km af centrum (ca. 0,09 breddegrader)
+        stationRepository.findAll().forEach(station ->
+                assertEquals(55.6761, station.getLatitude(), 0.1));
+    }
+
+    @Test
+    void seed_shouldMixStatusesAndGiveEachBusyDroneOneOpenDelivery() {
+        Map<DroneStatus, Long> byStatus = droneRepository.countByStatus().stream()
+                .collect(Collectors.toMap(DroneStatusCount::getStatus, DroneStatusCount::getDroneCount));
+        long inService = byStatus.get(DroneStatus.I_DRIFT);
+        // 10 % ude af drift og 5 % udfaset, med tilfældig variation
+        assertEquals(40, byStatus.get(DroneStatus.UDE_AF_DRIFT), 20);
+        assertEquals(20, byStatus.get(DroneStatus.UDFASET), 15);
+
+        // 30 % af dronerne i drift er på vej med præcis én åben levering; resten af de åbne står i kø
+        long busy = Math.round(inService * 0.30);
+        assertEquals(busy, jdbcTemplate.queryForObject("select count(*) from drone where busy", Long.class));
+        assertEquals(busy, jdbcTemplate.queryForObject(
+                "select count(distinct drone_id) from delivery where actual_delivery_time is null and drone_id is not null",
+                Long.class));
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "select count(*) from delivery d join drone dr on dr.id = d.drone_id " +
+                        "where d.actual_delivery_time is null and (not dr.busy or dr.status <> 'I_DRIFT')", Long.class));
+        assertEquals(150 - busy, deliveryRepository.countByDroneIsNullAndActualDeliveryTimeIsNull());
+
+        // Historikken er afsluttet efter bestillingen og har en drone
+        assertEquals(0L, jdbcTemplate.queryForObject(
+                "select count(*) from delivery where actual_delivery_time is not null " +
+                        "and (drone_id is null or actual_delivery_time <= ordered_time)", Long.class));
+        // Drone-indekset varmes op fra de seedede data
+        assertEquals(inService - busy, droneAvailabilityIndex.size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.wzn.dronepizza.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Profilen "virtual" kræver Java 21 og køres derfor kun der (CI-jobbet virtual-threads).
+ */
+@SpringBootTest
+@ActiveProfiles("virtual")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class VirtualThreadProfileTest {
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+
+    @Test
+    void scheduledAndAsyncWork_shouldRunOnVirtualThreads() throws Exception {
+        CompletableFuture<Thread> scheduled = new CompletableFuture<>();
+        taskScheduler.schedule(() -> scheduled.complete(Thread.currentThread()), Instant.now());
+        Thread async = applicationTaskExecutor.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+        assertTrue(isVirtual(scheduled.get(5, TimeUnit.SECONDS)));
+        assertTrue(isVirtual(async));
+    }
+
+    @Test
+    void connectionPool_shouldBeFixedAndGuardedByConcurrencyLimit() {
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        assertEquals(20, hikari.getMaximumPoolSize());
+        assertEquals(20, hikari.getMinimumIdle());
+        assertEquals(80, concurrencyLimitFilter.availablePermits());
+    }
+
+    // Thread.isVirtual findes først i Java 21; kaldes via refleksion, så testen kan oversættes med Java 17
+    private static boolean isVirtual(Thread thread) throws ReflectiveOperationException {
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
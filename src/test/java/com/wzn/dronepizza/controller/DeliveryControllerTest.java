@@ -1,7 +1,12 @@
 package com.wzn.dronepizza.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wzn.dronepizza.dto.DeliveryOrder;
+import com.wzn.dronepizza.dto.DeliveryOrderResult;
+import com.wzn.dronepizza.dto.DeliveryView;
 import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.service.DeliveryBatchService;
+import com.wzn.dronepizza.service.DeliveryExportService;
 import com.wzn.dronepizza.service.DeliveryService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,14 +15,22 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -28,6 +41,12 @@ class DeliveryControllerTest {
     @Mock
     private DeliveryService deliveryService;
 
+    @Mock
+    private DeliveryExportService deliveryExportService;
+
+    @Mock
+    private DeliveryBatchService deliveryBatchService;
+
     @InjectMocks
     private DeliveryController deliveryController;
 
@@ -42,24 +61,74 @@ class DeliveryControllerTest {
     @Test
     void getAllNonFinishedDeliveries_shouldReturnOk() throws Exception {
         // given
-        Delivery d1 = new Delivery();
-        d1.setId(1L);
-        d1.setAddress("Test1");
-        d1.setExpectedDeliveryTime(LocalDateTime.now().plusMinutes(30));
+        DeliveryView d1 = new DeliveryView(1L, "Test1", null, null,
+                LocalDateTime.now().plusMinutes(30), null, 7L, "Margherita", null, null);
+        DeliveryView d2 = new DeliveryView(2L, "Test2", null, null,
+                LocalDateTime.now().plusMinutes(40), null, 7L, "Margherita", 3L, null);
 
-        Delivery d2 = new Delivery();
-        d2.setId(2L);
-        d2.setAddress("Test2");
-        d2.setExpectedDeliveryTime(LocalDateTime.now().plusMinutes(40));
-
-        given(deliveryService.getAllNonFinishedDeleveries()).willReturn(List.of(d1, d2));
+        given(deliveryService.getNonFinishedDeliveries(0L, 100)).willReturn(List.of(d1, d2));
 
         // when + then
         mockMvc.perform(get("/deliveries"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.success").value(true))
                 .andExpect(jsonPath("$.data[0].id").value(1))
-                .andExpect(jsonPath("$.data[1].id").value(2));
+                .andExpect(jsonPath("$.data[0].pizzaTitle").value("Margherita"))
+                .andExpect(jsonPath("$.data[1].id").value(2))
+                .andExpect(jsonPath("$.data[1].droneId").value(3))
+                .andExpect(jsonPath("$.data[0].pizza").doesNotExist())
+                .andExpect(jsonPath("$.nextAfter").doesNotExist());
+    }
+
+    @Test
+    void getDelivery_shouldReturnArchivedDelivery() throws Exception {
+        // given: en afsluttet levering, som servicen finder i arkivet
+        DeliveryView archived = new DeliveryView(5L, "Arkivvej 1", null, null,
+                LocalDateTime.of(2024, 1, 1, 12, 30), LocalDateTime.of(2024, 1, 1, 12, 20), 7L, "Margherita", 3L, null);
+        given(deliveryService.getDelivery(5L)).willReturn(archived);
+
+        // when + then
+        mockMvc.perform(get("/deliveries/5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(5))
+                .andExpect(jsonPath("$.data.address").value("Arkivvej 1"));
+    }
+
+    @Test
+    void getDelivery_whenUnknown_shouldReturnNotFound() throws Exception {
+        given(deliveryService.getDelivery(99L))
+                .willThrow(new IllegalArgumentException("Levering med id 99 blev ikke fundet."));
+
+        mockMvc.perform(get("/deliveries/99"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void getAllNonFinishedDeliveries_whenPageIsFull_shouldReturnNextAfter() throws Exception {
+        // given
+        DeliveryView d1 = new DeliveryView(11L, "A", null, null, null, null, null, null, null, null);
+        DeliveryView d2 = new DeliveryView(12L, "B", null, null, null, null, null, null, null, null);
+        given(deliveryService.getNonFinishedDeliveries(10L, 2)).willReturn(List.of(d1, d2));
+
+        // when + then
+        mockMvc.perform(get("/deliveries").param("after", "10").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.nextAfter").value(12));
+    }
+
+    @Test
+    void getAllNonFinishedDeliveries_whenLimitInvalid_shouldReturn400() throws Exception {
+        // given
+        given(deliveryService.getNonFinishedDeliveries(0L, 0))
+                .willThrow(new IllegalArgumentException("limit skal være mellem 1 og 1000."));
+
+        // when + then
+        mockMvc.perform(get("/deliveries").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.data").doesNotExist());
     }
 
     @Test
@@ -150,4 +219,78 @@ class DeliveryControllerTest {
                 .andExpect(jsonPath("$.data.id").value(30))
                 .andExpect(jsonPath("$.message").value("Delivery afleveret."));
     }
+
+    @Test
+    void exportDeliveries_shouldStreamNdjson() throws Exception {
+        // given
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).given(deliveryExportService).exportDeliveries(eq(from), isNull(), any(OutputStream.class));
+
+        // when
+        MvcResult result = mockMvc.perform(get("/deliveries/export").param("from", "2025-01-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void exportDeliveries_whenRangeInvalid_shouldReturn400() throws Exception {
+        MvcResult result = mockMvc.perform(get("/deliveries/export")
+                        .param("from", "2025-02-01T00:00:00")
+                        .param("to", "2025-01-01T00:00:00"))
+                .andExpect(status().isBadRequest())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("from skal være før to."));
+        verifyNoInteractions(deliveryExportService);
+    }
+
+    @Test
+    void createDeliveries_shouldReportPerItemResults() throws Exception {
+        // given
+        List<DeliveryOrder> orders = List.of(
+                new DeliveryOrder(1L, "Nørrebrogade 10"),
+                new DeliveryOrder(99L, "Østerbrogade 20"));
+        given(deliveryBatchService.createDeliveries(orders)).willReturn(List.of(
+                DeliveryOrderResult.created(0, 500L),
+                DeliveryOrderResult.rejected(1, "Ingen pizza med id 99")));
+
+        // when + then
+        mockMvc.perform(post("/deliveries/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(orders)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.message").value("1 af 2 leveringer oprettet."))
+                .andExpect(jsonPath("$.data[0].success").value(true))
+                .andExpect(jsonPath("$.data[0].deliveryId").value(500))
+                .andExpect(jsonPath("$.data[1].success").value(false))
+                .andExpect(jsonPath("$.data[1].message").value("Ingen pizza med id 99"));
+    }
+
+    @Test
+    void createDeliveries_whenOrderIsEmpty_shouldReturn400() throws Exception {
+        // given
+        given(deliveryBatchService.createDeliveries(List.of()))
+                .willThrow(new IllegalArgumentException("Ordren skal indeholde mellem 1 og 10000 bestillinger."));
+
+        // when + then
+        mockMvc.perform(post("/deliveries/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
 }
@@ -1,6 +1,7 @@
 package com.wzn.dronepizza.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wzn.dronepizza.dto.DroneView;
 import com.wzn.dronepizza.entity.Drone;
 import com.wzn.dronepizza.entity.DroneStatus;
 import com.wzn.dronepizza.service.DroneService;
@@ -40,15 +41,8 @@ class DroneControllerTest {
     @Test
     void getAllDrones_shouldReturnOkAndList() throws Exception {
         // given
-        Drone drone1 = new Drone();
-        drone1.setId(1L);
-        drone1.setSerialNumber(UUID.randomUUID());
-        drone1.setStatus(DroneStatus.I_DRIFT);
-
-        Drone drone2 = new Drone();
-        drone2.setId(2L);
-        drone2.setSerialNumber(UUID.randomUUID());
-        drone2.setStatus(DroneStatus.UDFASET);
+        DroneView drone1 = new DroneView(1L, UUID.randomUUID(), DroneStatus.I_DRIFT, 5L, false);
+        DroneView drone2 = new DroneView(2L, UUID.randomUUID(), DroneStatus.UDFASET, 5L, false);
 
         given(droneService.getAllDrones()).willReturn(List.of(drone1, drone2));
 
@@ -59,6 +53,7 @@ class DroneControllerTest {
                 .andExpect(jsonPath("$.message").exists())
                 .andExpect(jsonPath("$.data").isArray())
                 .andExpect(jsonPath("$.data[0].id").value(1))
+                .andExpect(jsonPath("$.data[0].stationId").value(5))
                 .andExpect(jsonPath("$.data[1].id").value(2));
     }
 
@@ -79,6 +74,34 @@ class DroneControllerTest {
                 .andExpect(jsonPath("$.data.id").value(100));
     }
 
+    @Test
+    void createNewDrone_withCount_shouldCreateDronesInBulk() throws Exception {
+        // given
+        Drone drone1 = new Drone();
+        drone1.setId(101L);
+        Drone drone2 = new Drone();
+        drone2.setId(102L);
+        given(droneService.createDrones(2)).willReturn(List.of(drone1, drone2));
+
+        // when + then
+        mockMvc.perform(post("/drones/add").param("count", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[1].id").value(102));
+    }
+
+    @Test
+    void createNewDrone_withInvalidCount_shouldReturn400() throws Exception {
+        // given
+        given(droneService.createDrones(0)).willThrow(new IllegalArgumentException("count skal være mellem 1 og 1000."));
+
+        // when + then
+        mockMvc.perform(post("/drones/add").param("count", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
     @Test
     void createNewDrone_whenServiceThrowsError_shouldReturn500() throws Exception {
         // given
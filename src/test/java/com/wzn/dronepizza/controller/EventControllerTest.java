@@ -0,0 +1,52 @@
+package com.wzn.dronepizza.controller;
+
+import com.wzn.dronepizza.event.SseEventHub;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class EventControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private SseEventHub sseEventHub;
+
+    @InjectMocks
+    private EventController eventController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        this.mockMvc = MockMvcBuilders.standaloneSetup(eventController).build();
+    }
+
+    @Test
+    void streamEvents_shouldOpenAsyncStreamFromLatestEvent() throws Exception {
+        given(sseEventHub.subscribe(null)).willReturn(new SseEmitter());
+
+        mockMvc.perform(get("/events"))
+                .andExpect(request().asyncStarted());
+        verify(sseEventHub).subscribe(null);
+    }
+
+    @Test
+    void streamEvents_shouldResumeFromLastEventIdHeader() throws Exception {
+        given(sseEventHub.subscribe("1700000000000-41")).willReturn(new SseEmitter());
+
+        // Headeren, som EventSource sender ved genopkobling, vinder over query-parameteren
+        mockMvc.perform(get("/events").header("Last-Event-ID", "1700000000000-41").param("lastEventId", "1700000000000-7"))
+                .andExpect(request().asyncStarted());
+        verify(sseEventHub).subscribe("1700000000000-41");
+    }
+}
@@ -0,0 +1,71 @@
+package com.wzn.dronepizza.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class PizzaControllerTest {
+
+    private static final String MENU_JSON = "{\"success\":true,\"message\":\"Hentet alle pizzaer fra databasen\","
+            + "\"data\":[{\"id\":1,\"title\":\"Margherita\",\"price\":70}]}";
+    private static final String ETAG = "\"abc123\"";
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private PizzaMenuCache menuCache;
+
+    @InjectMocks
+    private PizzaController pizzaController;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        this.mockMvc = MockMvcBuilders.standaloneSetup(pizzaController).build();
+        given(menuCache.get()).willReturn(new PizzaMenu(MENU_JSON.getBytes(StandardCharsets.UTF_8), ETAG));
+    }
+
+    @Test
+    void getAllPizzas_shouldReturnCachedMenuWithEtag() throws Exception {
+        mockMvc.perform(get("/pizzas"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[0].title").value("Margherita"));
+    }
+
+    @Test
+    void getAllPizzas_whenEtagMatches_shouldReturn304WithoutBody() throws Exception {
+        mockMvc.perform(get("/pizzas").header("If-None-Match", ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", ETAG))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getAllPizzas_whenEtagIsStale_shouldReturnMenu() throws Exception {
+        mockMvc.perform(get("/pizzas").header("If-None-Match", "\"gammel\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].price").value(70));
+    }
+
+    @Test
+    void getAllPizzas_whenServiceFails_shouldReturn500() throws Exception {
+        given(menuCache.get()).willThrow(new IllegalStateException("db nede"));
+
+        mockMvc.perform(get("/pizzas"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+}
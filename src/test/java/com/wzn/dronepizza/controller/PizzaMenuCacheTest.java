@@ -0,0 +1,103 @@
+package com.wzn.dronepizza.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.service.PizzaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PizzaMenuCacheTest {
+
+    @Mock
+    private PizzaService pizzaService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private PizzaMenuCache menuCache;
+
+    @BeforeEach
+    void setUp() {
+        menuCache = new PizzaMenuCache(pizzaService, objectMapper);
+    }
+
+    @Test
+    void get_shouldSerializeEnvelopeOnceAndServeFromCache() throws Exception {
+        // given
+        given(pizzaService.getAllPizzas()).willReturn(List.of(pizza(1L, "Margherita", 70)));
+
+        // when
+        PizzaMenu first = menuCache.get();
+        PizzaMenu second = menuCache.get();
+
+        // then
+        assertSame(first, second);
+        verify(pizzaService, times(1)).getAllPizzas();
+        JsonNode json = objectMapper.readTree(first.body());
+        assertTrue(json.get("success").asBoolean());
+        assertEquals("Margherita", json.get("data").get(0).get("title").asText());
+        assertTrue(first.etag().startsWith("\"") && first.etag().endsWith("\""));
+    }
+
+    @Test
+    void invalidate_shouldRebuildAndChangeEtagWhenMenuChanges() {
+        // given
+        given(pizzaService.getAllPizzas())
+                .willReturn(List.of(pizza(1L, "Margherita", 70)))
+                .willReturn(List.of(pizza(1L, "Margherita", 75)));
+        PizzaMenu before = menuCache.get();
+
+        // when
+        menuCache.invalidate();
+        PizzaMenu after = menuCache.get();
+
+        // then
+        verify(pizzaService, times(2)).getAllPizzas();
+        assertNotEquals(before.etag(), after.etag());
+    }
+
+    @Test
+    void get_withSameContent_shouldKeepEtagAcrossRebuilds() {
+        // given
+        given(pizzaService.getAllPizzas()).willReturn(List.of(pizza(1L, "Margherita", 70)));
+        PizzaMenu before = menuCache.get();
+
+        // when
+        menuCache.invalidate();
+        PizzaMenu after = menuCache.get();
+
+        // then: klienter med den gamle ETag får stadig 304
+        assertEquals(before.etag(), after.etag());
+    }
+
+    @Test
+    void get_whenInvalidatedWhileBuilding_shouldNotCacheStaleMenu() {
+        // given: menuen ændres, mens den første bygges
+        given(pizzaService.getAllPizzas()).willAnswer(invocation -> {
+            menuCache.invalidate();
+            return List.of(pizza(1L, "Margherita", 70));
+        }).willReturn(List.of(pizza(1L, "Margherita", 75)));
+
+        // when
+        menuCache.get();
+        menuCache.get();
+
+        // then
+        verify(pizzaService, times(2)).getAllPizzas();
+    }
+
+    private static Pizza pizza(Long id, String title, int price) {
+        Pizza pizza = new Pizza(title, price);
+        pizza.setId(id);
+        return pizza;
+    }
+}
@@ -0,0 +1,42 @@
+package com.wzn.dronepizza.controller;
+
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PizzaMenuInvalidationTest {
+
+    @Autowired
+    private PizzaMenuCache menuCache;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Test
+    void savingPizza_shouldInvalidateCachedMenu() {
+        // given
+        PizzaMenu before = menuCache.get();
+        assertSame(before, menuCache.get());
+
+        // when
+        Pizza pizza = pizzaRepository.save(new Pizza("Ugens pizza", 95));
+        PizzaMenu afterCreate = menuCache.get();
+
+        pizza.setPrice(99);
+        pizzaRepository.save(pizza);
+        PizzaMenu afterUpdate = menuCache.get();
+
+        // then
+        assertNotEquals(before.etag(), afterCreate.etag());
+        assertTrue(new String(afterCreate.body(), StandardCharsets.UTF_8).contains("Ugens pizza"));
+        assertNotEquals(afterCreate.etag(), afterUpdate.etag());
+        assertTrue(new String(afterUpdate.body(), StandardCharsets.UTF_8).contains("\"price\":99"));
+    }
+}
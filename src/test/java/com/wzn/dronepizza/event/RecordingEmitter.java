@@ -0,0 +1,85 @@
+package com.wzn.dronepizza.event;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Emitter uden HTTP-svar bagved, der gemmer de sendte events som SSE-tekst.
+ */
+class RecordingEmitter extends SseEmitter {
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch blockFirstSend;
+    private volatile boolean completed;
+    private volatile boolean interrupted;
+
+    RecordingEmitter() {
+        this(null);
+    }
+
+    /**
+     * En klient, der ikke læser: første send hænger, indtil latchen tælles ned, også hvis tråden afbrydes
+     * (som en blokerende skrivning til en socket).
+     */
+    RecordingEmitter(CountDownLatch blockFirstSend) {
+        this.blockFirstSend = blockFirstSend;
+    }
+
+    @Override
+    public void send(SseEventBuilder builder) throws IOException {
+        if (blockFirstSend != null && events.isEmpty()) {
+            while (true) {
+                try {
+                    blockFirstSend.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                throw new IOException("Skrivningen blev afbrudt.");
+            }
+        }
+        events.add(builder.build().stream()
+                .map(part -> part.getData().toString())
+                .collect(Collectors.joining()));
+    }
+
+    @Override
+    public void complete() {
+        completed = true;
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+
+    boolean wasInterrupted() {
+        return interrupted;
+    }
+
+    List<String> events() {
+        return new ArrayList<>(events);
+    }
+
+    List<String> ids() {
+        return events().stream().map(event -> event.substring(3, event.indexOf('\n'))).toList();
+    }
+
+    void awaitEvents(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (events.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(events.size() >= count, () -> "Forventede " + count + " events, fik " + events);
+    }
+}
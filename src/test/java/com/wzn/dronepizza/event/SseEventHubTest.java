@@ -0,0 +1,180 @@
+package com.wzn.dronepizza.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseEventHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // Plads til 4 events pr. abonnent og 8 events i ringbufferen, 2 afsendertråde og 100 ms pr. send
+    private final SseEventHub hub = new SseEventHub(new ObjectMapper(), meterRegistry, 4, 8, 2, 60_000, 100);
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void publish_shouldSendEventsInOrderWithIds() throws Exception {
+        // given
+        RecordingEmitter emitter = new RecordingEmitter();
+        hub.subscribe(null, emitter);
+
+        // when
+        hub.publish("delivery.created", "{\"id\":1}");
+        hub.publish("delivery.scheduled", "{\"id\":1}");
+
+        // then
+        emitter.awaitEvents(2);
+        assertEquals(List.of(
+                "id:" + hub.eventId(1) + "\nevent:delivery.created\ndata:{\"id\":1}\n\n",
+                "id:" + hub.eventId(2) + "\nevent:delivery.scheduled\ndata:{\"id\":1}\n\n"), emitter.events());
+        assertTrue(emitter.ids().get(0).matches("\\d+-1"));
+    }
+
+    @Test
+    void subscribe_withLastEventId_shouldReplayMissedEvents() throws Exception {
+        // given: klienten har set event 1, men ikke 2 og 3
+        hub.publish("drone.disabled", "{\"id\":1}");
+        hub.publish("drone.enabled", "{\"id\":1}");
+        hub.publish("drone.retired", "{\"id\":1}");
+
+        // when
+        RecordingEmitter emitter = new RecordingEmitter();
+        hub.subscribe(hub.eventId(1), emitter);
+        hub.publish("delivery.created", "{\"id\":9}");
+
+        // then
+        emitter.awaitEvents(3);
+        assertEquals(List.of(hub.eventId(2), hub.eventId(3), hub.eventId(4)), emitter.ids());
+    }
+
+    @Test
+    void subscribe_whenLastEventIdIsTooOldOrUnknown_shouldSendReset() throws Exception {
+        // given: 10 events, så de første er skubbet ud af ringbufferen på 8
+        for (int i = 0; i < 10; i++) {
+            hub.publish("delivery.created", "{}");
+        }
+
+        // when
+        RecordingEmitter tooOld = new RecordingEmitter();
+        hub.subscribe(hub.eventId(1), tooOld);
+        RecordingEmitter fromTheFuture = new RecordingEmitter();
+        hub.subscribe(hub.eventId(42), fromTheFuture);
+        RecordingEmitter garbled = new RecordingEmitter();
+        hub.subscribe("ikke-et-id", garbled);
+
+        // then: klienten skal hente listen igen og kan fortsætte fra id 10
+        String reset = "id:" + hub.eventId(10) + "\nevent:reset\ndata:{}\n\n";
+        tooOld.awaitEvents(1);
+        fromTheFuture.awaitEvents(1);
+        garbled.awaitEvents(1);
+        assertEquals(reset, tooOld.events().get(0));
+        assertEquals(reset, fromTheFuture.events().get(0));
+        assertEquals(reset, garbled.events().get(0));
+    }
+
+    @Test
+    void subscribe_withIdFromEarlierBoot_shouldSendResetEvenIfTheNumberIsKnown() throws Exception {
+        // given: serveren er genstartet, og numrene er startet forfra
+        for (int i = 0; i < 5; i++) {
+            hub.publish("delivery.created", "{}");
+        }
+        String earlierBoot = (Long.parseLong(hub.eventId(0).split("-")[0]) - 60_000) + "-3";
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        // when: klienten har set nummer 3 fra den tidligere opstart, og gamle klienter sender kun et nummer
+        hub.subscribe(earlierBoot, emitter);
+        RecordingEmitter legacy = new RecordingEmitter();
+        hub.subscribe("3", legacy);
+
+        // then: nummer 4 og 5 er andre events, så klienten skal hente listen igen
+        emitter.awaitEvents(1);
+        legacy.awaitEvents(1);
+        assertEquals(List.of(hub.eventId(5)), emitter.ids());
+        assertTrue(emitter.events().get(0).contains("event:reset"));
+        assertTrue(legacy.events().get(0).contains("event:reset"));
+    }
+
+    @Test
+    void publish_whenSubscriberCannotKeepUp_shouldDropOnlyThatSubscriber() throws Exception {
+        // given: én abonnent, der hænger på første send, og én normal
+        CountDownLatch unblock = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(unblock);
+        RecordingEmitter fast = new RecordingEmitter();
+        hub.subscribe(null, slow);
+        hub.subscribe(null, fast);
+
+        // when: flere events end den langsomme abonnents kø kan rumme
+        for (int i = 0; i < 8; i++) {
+            hub.publish("delivery.created", "{}");
+            fast.awaitEvents(i + 1);
+        }
+
+        // then
+        assertEquals(1, hub.subscriberCount());
+        assertTrue(slow.isCompleted());
+        assertEquals(1.0, meterRegistry.get("dronepizza.events.dropped").counter().count());
+        assertEquals(8, fast.events().size());
+        unblock.countDown();
+    }
+
+    @Test
+    void dropStalledSubscribers_whenClientsDoNotRead_shouldKeepSendingToTheOthers() throws Exception {
+        // given: to klienter, der ikke læser, optager begge afsendertråde
+        CountDownLatch neverRead = new CountDownLatch(1);
+        RecordingEmitter stalled1 = new RecordingEmitter(neverRead);
+        RecordingEmitter stalled2 = new RecordingEmitter(neverRead);
+        RecordingEmitter reader = new RecordingEmitter();
+        hub.subscribe(null, stalled1);
+        hub.subscribe(null, stalled2);
+        hub.publish("delivery.created", "{}");
+        Thread.sleep(150);
+        hub.subscribe(null, reader);
+
+        // when: deres send har overskredet fristen
+        hub.dropStalledSubscribers();
+        for (int i = 0; i < 3; i++) {
+            hub.publish("delivery.scheduled", "{}");
+        }
+
+        // then: de lukkes, og den læsende klient får sine events på ekstra tråde, selvom skrivningerne stadig hænger
+        reader.awaitEvents(3);
+        assertEquals(List.of(hub.eventId(2), hub.eventId(3), hub.eventId(4)), reader.ids());
+        assertEquals(1, hub.subscriberCount());
+        assertEquals(2.0, meterRegistry.get("dronepizza.events.dropped").counter().count());
+        assertEquals(2.0, meterRegistry.get("dronepizza.events.stalled-sends").gauge().value());
+
+        // og når skrivningerne endelig giver op, afsluttes forbindelserne, og puljen går tilbage til sin størrelse
+        neverRead.countDown();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while ((!stalled1.isCompleted() || !stalled2.isCompleted()) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0.0, meterRegistry.get("dronepizza.events.stalled-sends").gauge().value());
+        assertTrue(stalled1.wasInterrupted() && stalled2.wasInterrupted());
+        assertTrue(stalled1.isCompleted() && stalled2.isCompleted());
+    }
+
+    @Test
+    void heartbeat_shouldSendComment() throws Exception {
+        // given
+        RecordingEmitter emitter = new RecordingEmitter();
+        hub.subscribe(null, emitter);
+
+        // when
+        hub.heartbeat();
+
+        // then
+        emitter.awaitEvents(1);
+        assertEquals(":heartbeat\n\n", emitter.events().get(0));
+    }
+}
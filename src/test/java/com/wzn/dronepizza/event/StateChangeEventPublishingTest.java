@@ -0,0 +1,71 @@
+package com.wzn.dronepizza.event;
+
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.service.DeliveryService;
+import com.wzn.dronepizza.service.DroneService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Servicemetoderne publicerer events, som når ud på /events, når transaktionen er committed.
+ */
+@SpringBootTest
+class StateChangeEventPublishingTest {
+
+    @Autowired
+    private SseEventHub sseEventHub;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Test
+    void serviceChanges_shouldReachSubscribersAfterCommit() throws Exception {
+        // given
+        stationRepository.save(new Station(55.69, 12.56));
+        Drone drone = droneService.createDrones(2).get(0);
+        Pizza pizza = pizzaRepository.save(new Pizza("Event Pizza", 85));
+        RecordingEmitter emitter = new RecordingEmitter();
+        sseEventHub.subscribe(null, emitter);
+
+        // when
+        Delivery delivery = deliveryService.createDelivery(pizza.getId(), "Nørrebrogade 10, 2200 København N");
+        Delivery scheduled = deliveryService.scheduleDelivery(delivery.getId());
+        // Fejler og rulles tilbage, så der må ikke komme et event
+        assertThrows(IllegalStateException.class, () -> deliveryService.scheduleDelivery(delivery.getId()));
+        deliveryService.finishDelivery(delivery.getId());
+        droneService.disableDrone(drone.getId());
+
+        // then
+        emitter.awaitEvents(4);
+        List<String> events = emitter.events().stream()
+                .filter(event -> event.contains("\"id\":" + delivery.getId() + ",") || event.contains("\"id\":" + drone.getId() + ","))
+                .toList();
+        assertEquals(4, events.size(), () -> "Events: " + emitter.events());
+        assertTrue(events.get(0).contains("event:delivery.created"));
+        assertTrue(events.get(0).contains("\"pizzaTitle\":\"Event Pizza\""));
+        assertTrue(events.get(1).contains("event:delivery.scheduled"));
+        assertTrue(events.get(1).contains("\"droneId\":" + scheduled.getDrone().getId()));
+        assertTrue(events.get(2).contains("event:delivery.finished"));
+        assertTrue(events.get(3).contains("event:drone.disabled"));
+        assertTrue(events.get(3).contains("\"status\":\"UDE_AF_DRIFT\""));
+    }
+}
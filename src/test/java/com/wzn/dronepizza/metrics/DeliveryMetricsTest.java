@@ -0,0 +1,112 @@
+package com.wzn.dronepizza.metrics;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.DroneStatusCount;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryMetricsTest {
+
+    @Mock
+    private DeliveryRepository deliveryRepository;
+
+    @Mock
+    private DroneRepository droneRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DeliveryMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new DeliveryMetrics(deliveryRepository, droneRepository, meterRegistry, 60_000);
+    }
+
+    @Test
+    void gauges_shouldReadDatabaseOncePerRefreshInterval() {
+        // given
+        given(deliveryRepository.countByDroneIsNullAndActualDeliveryTimeIsNull()).willReturn(12L);
+        given(droneRepository.countByStatus()).willReturn(List.of(
+                statusCount(DroneStatus.I_DRIFT, 7), statusCount(DroneStatus.UDFASET, 2)));
+
+        // when: alle gauges læses, som ved en scrape
+        double queued = meterRegistry.get("dronepizza.deliveries.queued").gauge().value();
+        double inService = meterRegistry.get("dronepizza.drones").tag("status", "I_DRIFT").gauge().value();
+        double disabled = meterRegistry.get("dronepizza.drones").tag("status", "UDE_AF_DRIFT").gauge().value();
+        double retired = meterRegistry.get("dronepizza.drones").tag("status", "UDFASET").gauge().value();
+
+        // then
+        assertEquals(12.0, queued);
+        assertEquals(7.0, inService);
+        assertEquals(0.0, disabled);
+        assertEquals(2.0, retired);
+        verify(deliveryRepository, times(1)).countByDroneIsNullAndActualDeliveryTimeIsNull();
+        verify(droneRepository, times(1)).countByStatus();
+    }
+
+    @Test
+    void recordQueued_shouldServeGaugeWithoutQueryingDatabase() {
+        // when: dispatcheren har lige talt køen
+        metrics.recordQueued(5);
+
+        // then
+        assertEquals(5.0, meterRegistry.get("dronepizza.deliveries.queued").gauge().value());
+        verifyNoInteractions(deliveryRepository);
+    }
+
+    @Test
+    void onStateChange_shouldRecordTimeFromOrder() {
+        // given
+        LocalDateTime ordered = LocalDateTime.now().minusMinutes(20);
+        DeliveryView finished = view(ordered, ordered.plusMinutes(18));
+
+        // when
+        metrics.onStateChange(StateChangeEvent.deliveryScheduled(view(ordered, null)));
+        metrics.onStateChange(StateChangeEvent.deliveryFinished(finished));
+        // Leveringer fra før bestillingstiden blev gemt tælles ikke med
+        metrics.onStateChange(StateChangeEvent.deliveryFinished(view(null, LocalDateTime.now())));
+
+        // then
+        Timer toAssign = meterRegistry.get("dronepizza.delivery.time.to.assign").timer();
+        Timer toDeliver = meterRegistry.get("dronepizza.delivery.time.to.deliver").timer();
+        assertEquals(1, toAssign.count());
+        assertEquals(20.0, toAssign.totalTime(TimeUnit.MINUTES), 0.1);
+        assertEquals(1, toDeliver.count());
+        assertEquals(18.0, toDeliver.totalTime(TimeUnit.MINUTES), 0.001);
+    }
+
+    private static DeliveryView view(LocalDateTime ordered, LocalDateTime delivered) {
+        return new DeliveryView(1L, "Vej 1", null, null, null, delivered, 100L, "Margherita", 3L, ordered);
+    }
+
+    private static DroneStatusCount statusCount(DroneStatus status, long count) {
+        return new DroneStatusCount() {
+            @Override
+            public DroneStatus getStatus() {
+                return status;
+            }
+
+            @Override
+            public long getDroneCount() {
+                return count;
+            }
+        };
+    }
+}
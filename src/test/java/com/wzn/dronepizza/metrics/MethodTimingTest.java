@@ -0,0 +1,69 @@
+package com.wzn.dronepizza.metrics;
+
+import com.wzn.dronepizza.service.DeliveryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Service- og repository-kald måles med genbrugte timere og kan scrapes på /actuator/prometheus.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class MethodTimingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Test
+    void serviceAndRepositoryCalls_shouldBeTimedPerMethodAndOutcome() {
+        // when
+        deliveryService.countDeliveriesWithoutDrone();
+        deliveryService.countDeliveriesWithoutDrone();
+        assertThrows(IllegalArgumentException.class, () -> deliveryService.finishDelivery(-1L));
+
+        // then
+        assertEquals(2, meterRegistry.get("dronepizza.service.calls")
+                .tags("class", "DeliveryServiceImpl", "method", "countDeliveriesWithoutDrone", "outcome", "success")
+                .timer().count());
+        assertEquals(1, meterRegistry.get("dronepizza.service.calls")
+                .tags("class", "DeliveryServiceImpl", "method", "finishDelivery", "outcome", "error")
+                .timer().count());
+        assertTrue(meterRegistry.get("dronepizza.repository.calls")
+                .tags("repository", "DeliveryRepository", "method", "countByDroneIsNullAndActualDeliveryTimeIsNull",
+                        "outcome", "success")
+                .timer().count() >= 2);
+        // Spring Boots egen repository-timer er slået fra
+        assertNull(meterRegistry.find("spring.data.repository.invocations").timer());
+    }
+
+    @Test
+    void prometheusEndpoint_shouldExposeDeliveryMetrics() throws Exception {
+        deliveryService.countDeliveriesWithoutDrone();
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("dronepizza_service_calls_seconds_count")))
+                .andExpect(content().string(containsString("dronepizza_repository_calls_seconds_count")))
+                .andExpect(content().string(containsString("dronepizza_deliveries_queued")))
+                .andExpect(content().string(containsString("dronepizza_drones{application=\"DronePizza\",status=\"I_DRIFT\"}")))
+                .andExpect(content().string(containsString("dronepizza_delivery_time_to_deliver_seconds_bucket")));
+    }
+}
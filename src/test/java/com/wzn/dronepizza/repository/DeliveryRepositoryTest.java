@@ -1,8 +1,10 @@
 package com.wzn.dronepizza.repository;
 
+import com.wzn.dronepizza.dto.DeliveryView;
 import com.wzn.dronepizza.entity.Delivery;
 import com.wzn.dronepizza.entity.Drone;
 import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.entity.Pizza;
 import com.wzn.dronepizza.entity.Station;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,8 +29,11 @@ public class DeliveryRepositoryTest {
     @Autowired
     private DroneRepository droneRepository;
 
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
     @Test
-    public void testFindByDroneIsNullAndActualDeliveryTimeIsNull() {
+    public void testCountByDroneIsNullAndActualDeliveryTimeIsNull() {
 
         deliveryRepository.deleteAll();
         droneRepository.deleteAll();
@@ -48,12 +53,36 @@ public class DeliveryRepositoryTest {
 
 
         // Act: Call the repository method
-        List<Delivery> result = deliveryRepository.findByDroneIsNullAndActualDeliveryTimeIsNull();
+        long result = deliveryRepository.countByDroneIsNullAndActualDeliveryTimeIsNull();
 
         // Assert: Verify the results
-        assertEquals(2, result.size());
+        assertEquals(2, result);
 
 
 
     }
+
+    @Test
+    public void testDeliveryViewsIncludeDeliveriesWithAndWithoutDrone() {
+        deliveryRepository.deleteAll();
+
+        // Arrange: én levering i kø og én tildelt en drone
+        Pizza pizza = pizzaRepository.save(new Pizza("View Pizza", 75));
+        Station station = stationRepository.save(new Station(55.12, 12.34));
+        Drone drone = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, station));
+        Delivery queued = deliveryRepository.save(new Delivery("Kø", LocalDateTime.now(), pizza));
+        Delivery assigned = new Delivery("Tildelt", LocalDateTime.now(), pizza);
+        assigned.setDrone(drone);
+        deliveryRepository.save(assigned);
+
+        // Act
+        List<DeliveryView> open = deliveryRepository.findOpenViews();
+
+        // Assert
+        assertEquals(List.of("Kø", "Tildelt"), open.stream().map(DeliveryView::address).toList());
+        assertEquals("View Pizza", open.get(0).pizzaTitle());
+        assertNull(open.get(0).droneId());
+        assertEquals(queued.getId(), open.get(0).id());
+        assertEquals(drone.getId(), open.get(1).droneId());
+    }
 }
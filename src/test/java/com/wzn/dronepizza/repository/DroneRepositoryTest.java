@@ -1,16 +1,20 @@
 package com.wzn.dronepizza.repository;
 
+import com.wzn.dronepizza.dto.DroneView;
 import com.wzn.dronepizza.entity.Drone;
 import com.wzn.dronepizza.entity.DroneStatus;
 import com.wzn.dronepizza.entity.Station;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest
 public class DroneRepositoryTest {
@@ -37,5 +41,59 @@ public class DroneRepositoryTest {
         // Assert: Bekræft resultatet
         assertEquals(2, droneCount);
     }
-}
 
+    @Test
+    public void testFindAllViews() {
+        // Arrange
+        Station testStation = stationRepository.save(new Station(55.12, 12.34));
+        Drone drone = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.UDE_AF_DRIFT, testStation));
+
+        // Act
+        DroneView view = droneRepository.findAllViews().stream()
+                .filter(v -> v.id().equals(drone.getId()))
+                .findFirst().orElseThrow();
+
+        // Assert
+        assertEquals(new DroneView(drone.getId(), drone.getSerialNumber(), DroneStatus.UDE_AF_DRIFT,
+                testStation.getId(), false), view);
+    }
+
+    @Test
+    public void testFindStationRefsByStatus() {
+        // Arrange
+        Station testStation = stationRepository.save(new Station(55.12, 12.34));
+        Drone inService = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, testStation));
+        Drone retired = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.UDFASET, testStation));
+
+        // Act
+        List<DroneStationRef> refs = droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT);
+        List<Long> ids = refs.stream().map(DroneStationRef::getId).toList();
+
+        // Assert
+        assertTrue(ids.contains(inService.getId()));
+        assertFalse(ids.contains(retired.getId()));
+        assertTrue(refs.stream().anyMatch(ref -> ref.getId().equals(inService.getId())
+                && ref.getStationId().equals(testStation.getId())));
+    }
+
+    @Test
+    @Transactional
+    public void testClaimAndRelease() {
+        // Arrange
+        Station testStation = stationRepository.save(new Station(55.12, 12.34));
+        Drone idle = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, testStation));
+        Drone retired = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.UDFASET, testStation));
+
+        // Act + Assert: kun en ledig drone i drift kan tages, og kun én gang
+        assertEquals(1, droneRepository.claim(idle.getId()));
+        assertEquals(0, droneRepository.claim(idle.getId()));
+        assertEquals(0, droneRepository.claim(retired.getId()));
+        assertTrue(droneRepository.findById(idle.getId()).orElseThrow().isBusy());
+        assertTrue(droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT).stream()
+                .anyMatch(ref -> ref.getId().equals(idle.getId()) && ref.isBusy()));
+
+        assertEquals(1, droneRepository.release(idle.getId()));
+        assertEquals(0, droneRepository.release(idle.getId()));
+        assertFalse(droneRepository.findById(idle.getId()).orElseThrow().isBusy());
+    }
+}
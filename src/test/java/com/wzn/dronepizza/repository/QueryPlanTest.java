@@ -0,0 +1,166 @@
+package com.wzn.dronepizza.repository;
+
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.support.RecordingStatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Kører EXPLAIN i H2 på den SQL, de hyppige repository-forespørgsler genererer, og fejler,
+ * hvis en af dem læser hele tabellen (tableScan) i stedet for et indeks.
+ * Databasen fyldes først med stationer, droner og leveringer i omtrent produktionens forhold, og statistikken
+ * opdateres (ANALYZE), så planerne er dem, optimeren vælger for rigtige data og ikke for tomme tabeller.
+ * Forespørgsler, der bevidst læser alle rækker (fx eksporten og listen over alle droner), er ikke med.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:queryplan",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.wzn.dronepizza.support.RecordingStatementInspector"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+
+    // Id'er langt over dem, eksempeldata får fra sekvenserne
+    private static final long FIRST_ID = 1_000_000;
+    private static final int STATIONS = 20;
+    private static final int DRONES = 1_000;
+    private static final int DELIVERIES = 20_000;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private ArchivedDeliveryRepository archivedDeliveryRepository;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.update("insert into station (id, latitude, longitude) "
+                + "select ? + x, 55.6 + x * 0.01, 12.5 + x * 0.01 from system_range(1, ?)", FIRST_ID, STATIONS);
+        // En tredjedel af dronerne i hver status, hver fjerde optaget
+        jdbcTemplate.update("insert into drone (id, serial_number, status, station_id, busy, version) "
+                + "select ? + x, random_uuid(), case mod(x, 3) when 0 then 'I_DRIFT' when 1 then 'UDE_AF_DRIFT' else 'UDFASET' end, "
+                + "? + 1 + mod(x, ?), mod(x, 4) = 0, 0 from system_range(1, ?)", FIRST_ID, FIRST_ID, STATIONS, DRONES);
+        // Ti ordrer pr. minut, så tidspunkterne gentager sig som i drift (H2 skønner IS NULL ud fra antallet af
+        // forskellige værdier). 90 % afsluttede; af de åbne er halvdelen i kø og halvdelen tildelt en drone
+        jdbcTemplate.update("insert into delivery (id, address, ordered_time, expected_delivery_time, actual_delivery_time, drone_id, version) "
+                + "select ? + x, 'Vej ' || x, dateadd('MINUTE', -x / 10, current_timestamp), dateadd('MINUTE', 30 - x / 10, current_timestamp), "
+                + "case when mod(x, 10) = 0 then null else dateadd('MINUTE', 40 - x / 10, current_timestamp) end, "
+                + "case when mod(x, 20) = 0 then null else ? + 1 + mod(x, ?) end, 0 from system_range(1, ?)",
+                FIRST_ID, FIRST_ID, DRONES, DELIVERIES);
+        jdbcTemplate.execute("analyze");
+    }
+
+    @Test
+    void deliveryQueue_shouldUseIndexes() {
+        // Dispatch skal finde køen via køindekset og ikke via (actual_delivery_time, id), der også dækker de tildelte
+        assertPlan("lockQueueForDispatch", "IDX_DELIVERY_QUEUE", () -> transactionTemplate.executeWithoutResult(status ->
+                deliveryRepository.lockQueueForDispatch(Limit.of(100))));
+        assertNoTableScan("countByDroneIsNullAndActualDeliveryTimeIsNull",
+                deliveryRepository::countByDroneIsNullAndActualDeliveryTimeIsNull);
+    }
+
+    @Test
+    void openDeliveries_shouldUseIndexes() {
+        assertNoTableScan("findOpenViews", deliveryRepository::findOpenViews);
+        assertNoTableScan("findOpenDeadlines", deliveryRepository::findOpenDeadlines);
+        assertNoTableScan("findOpenDeadlinesByIdIn", () -> deliveryRepository.findOpenDeadlinesByIdIn(List.of(1L, 2L)));
+    }
+
+    @Test
+    void singleDeliveryAndArchiving_shouldUseIndexes() {
+        assertNoTableScan("DeliveryRepository.findViewById", () -> deliveryRepository.findViewById(1L));
+        assertNoTableScan("ArchivedDeliveryRepository.findViewById", () -> archivedDeliveryRepository.findViewById(1L));
+        assertNoTableScan("findFinishedIdsBefore",
+                () -> deliveryRepository.findFinishedIdsBefore(LocalDateTime.now().minusDays(30), Limit.of(1000)));
+        // Ændringerne rulles tilbage; der findes ingen rækker med id -1 alligevel
+        assertNoTableScan("assignDrone/deleteFinishedByIdIn", () -> transactionTemplate.executeWithoutResult(status -> {
+            deliveryRepository.assignDrone(-1L, null);
+            deliveryRepository.deleteFinishedByIdIn(List.of(-1L));
+            status.setRollbackOnly();
+        }));
+    }
+
+    @Test
+    void droneQueries_shouldUseIndexes() {
+        assertNoTableScan("countByStationId", () -> droneRepository.countByStationId(1L));
+        assertNoTableScan("countByStatus", droneRepository::countByStatus);
+        // Stationerne læses alle; dronerne pr. station findes via fremmednøglens indeks
+        assertPlan("findAllWithDroneCount", "FK_DRONE_STATION", stationRepository::findAllWithDroneCount);
+        assertNoTableScan("findStationRefsByStatus", () -> droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT));
+        assertNoTableScan("claim/claimAll/release", () -> transactionTemplate.executeWithoutResult(status -> {
+            droneRepository.claim(-1L);
+            droneRepository.lockClaimable(List.of(-1L, -2L));
+            droneRepository.claimAll(List.of(-1L, -2L));
+            droneRepository.release(-1L);
+            status.setRollbackOnly();
+        }));
+    }
+
+    /**
+     * Kører call, og EXPLAIN'er hver select, update og delete, Hibernate sendte imens.
+     */
+    private void assertNoTableScan(String what, Runnable call) {
+        RecordingStatementInspector.clear();
+        call.run();
+        List<String> statements = RecordingStatementInspector.recorded().stream()
+                .filter(sql -> sql.matches("(?is)^\\s*(select|update|delete)\\b.*"))
+                .toList();
+        assertFalse(statements.isEmpty(), () -> what + " sendte ingen SQL.");
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse(plan.contains("tableScan"), () -> what + " læser hele tabellen:\n" + plan);
+        }
+    }
+
+    /**
+     * Kører call og fejler, medmindre planen for hver select bruger indexName.
+     */
+    private void assertPlan(String what, String indexName, Runnable call) {
+        RecordingStatementInspector.clear();
+        call.run();
+        List<String> selects = RecordingStatementInspector.recorded().stream()
+                .filter(sql -> sql.matches("(?is)^\\s*select\\b.*"))
+                .toList();
+        assertFalse(selects.isEmpty(), () -> what + " sendte ingen select.");
+        for (String sql : selects) {
+            String plan = explain(sql);
+            assertTrue(plan.contains(indexName), () -> what + " bruger ikke " + indexName + ":\n" + plan);
+        }
+    }
+
+    // PreparedStatement, så H2 accepterer parametrene (?) uden værdier
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql);
+                 ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                return plan.getString(1);
+            }
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package com.wzn.dronepizza.repository;
+
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.entity.Station;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starter applikationen mod en database med det oprindelige skema (identity-id'er, ingen busy, version,
+ * koordinater, arkiv eller sekvenser) og data, som ddl-auto=update lavede det før migreringerne.
+ * Flyway baselines på V1, V2 bringer skemaet op, og Hibernate validerer derefter skemaet.
+ */
+@SpringBootTest
+class SchemaUpgradeTest {
+
+    private static final String URL = "jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) {
+        JdbcTemplate legacy = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+        legacy.execute("drop all objects");
+        legacy.execute("create table station (id bigint generated by default as identity, "
+                + "latitude float(53) not null, longitude float(53) not null, primary key (id))");
+        legacy.execute("create table pizza (id bigint generated by default as identity, "
+                + "price integer not null, title varchar(255), primary key (id))");
+        legacy.execute("create table drone (id bigint generated by default as identity, serial_number uuid not null unique, "
+                + "status enum ('I_DRIFT','UDE_AF_DRIFT','UDFASET'), station_id bigint references station, primary key (id))");
+        legacy.execute("create table delivery (id bigint generated by default as identity, address varchar(255), "
+                + "actual_delivery_time timestamp(6), expected_delivery_time timestamp(6), "
+                + "drone_id bigint references drone, pizza_id bigint references pizza, primary key (id))");
+        for (int i = 0; i < 3; i++) {
+            legacy.update("insert into station (latitude, longitude) values (55.68, 12.57)");
+            legacy.update("insert into pizza (price, title) values (70, 'Gammel')");
+        }
+        for (int i = 0; i < 60; i++) {
+            legacy.update("insert into drone (serial_number, status, station_id) values (random_uuid(), 'I_DRIFT', 1)");
+        }
+        // Drone 1 har en åben levering, drone 2 en afsluttet
+        legacy.update("insert into delivery (address, expected_delivery_time, drone_id, pizza_id) "
+                + "values ('Nørrebrogade 1', current_timestamp, 1, 1)");
+        legacy.update("insert into delivery (address, expected_delivery_time, actual_delivery_time, drone_id, pizza_id) "
+                + "values ('Nørrebrogade 2', current_timestamp, current_timestamp, 2, 1)");
+        registry.add("spring.datasource.url", () -> URL);
+    }
+
+    @Test
+    void upgrade_shouldAddMissingColumnsAndMarkDronesWithOpenDeliveriesBusy() {
+        assertEquals(3, stationRepository.count()); // DataInitializer springer over, da der er data
+        assertTrue(droneRepository.findById(1L).orElseThrow().isBusy());
+        assertFalse(droneRepository.findById(2L).orElseThrow().isBusy());
+        assertEquals(0, deliveryRepository.findById(1L).orElseThrow().getVersion());
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from delivery_archive", Long.class));
+    }
+
+    @Test
+    void upgrade_shouldHandOutIdsPastTheExistingRows() {
+        Station station = stationRepository.save(new Station(55.7, 12.6));
+        Pizza pizza = pizzaRepository.save(new Pizza("Ny", 80));
+        Drone drone = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, station));
+        Delivery delivery = deliveryRepository.save(new Delivery("Nørrebrogade 3", LocalDateTime.now(), pizza));
+
+        assertTrue(station.getId() > 3);
+        assertTrue(pizza.getId() > 3);
+        assertTrue(drone.getId() > 60);
+        assertTrue(delivery.getId() > 2);
+        // V1 er kun baselinet; de nyere migreringer er kørt
+        assertEquals(List.of("BASELINE", "SQL", "SQL", "SQL"), jdbcTemplate.queryForList(
+                "select \"type\" from \"flyway_schema_history\" where \"version\" is not null order by \"installed_rank\"", String.class));
+    }
+}
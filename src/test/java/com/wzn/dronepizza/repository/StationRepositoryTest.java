@@ -0,0 +1,49 @@
+package com.wzn.dronepizza.repository;
+
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.entity.Station;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+public class StationRepositoryTest {
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Test
+    public void testFindAllWithDroneCount() {
+        // Arrange: én station med to droner og én uden droner
+        Station busy = stationRepository.save(new Station(55.12, 12.34));
+        Station empty = stationRepository.save(new Station(55.13, 12.35));
+        droneRepository.saveAll(List.of(
+                new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, busy),
+                new Drone(UUID.randomUUID(), DroneStatus.UDFASET, busy)));
+
+        // Act
+        List<StationLoad> loads = stationRepository.findAllWithDroneCount();
+
+        // Assert
+        assertEquals(stationRepository.count(), loads.size());
+        assertEquals(2, countFor(loads, busy));
+        assertEquals(0, countFor(loads, empty));
+    }
+
+    private static long countFor(List<StationLoad> loads, Station station) {
+        return loads.stream()
+                .filter(load -> load.getStation().getId().equals(station.getId()))
+                .findFirst()
+                .orElseThrow()
+                .getDroneCount();
+    }
+}
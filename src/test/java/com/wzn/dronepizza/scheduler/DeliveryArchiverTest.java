@@ -0,0 +1,70 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.service.DeliveryArchiveService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryArchiverTest {
+
+    @Mock
+    private DeliveryArchiveService archiveService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DeliveryArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        archiver = new DeliveryArchiver(archiveService, meterRegistry, Duration.ofDays(30), 100, 3);
+    }
+
+    @Test
+    void archive_movesChunksUntilNothingIsLeft() {
+        // given: to fulde chunks, derefter en halv
+        given(archiveService.archiveChunk(any(), eq(100))).willReturn(100, 100, 40);
+
+        // when
+        archiver.archive();
+
+        // then: cutoff er max-age før nu
+        LocalDateTime expectedCutoff = LocalDateTime.now().minusDays(30);
+        verify(archiveService, times(3)).archiveChunk(
+                argThat(cutoff -> Duration.between(cutoff, expectedCutoff).abs().toSeconds() < 5), eq(100));
+        assertEquals(240.0, meterRegistry.get("dronepizza.archive.archived").counter().count());
+    }
+
+    @Test
+    void archive_stopsAtMaxChunksPerRun() {
+        given(archiveService.archiveChunk(any(), eq(100))).willReturn(100);
+
+        archiver.archive();
+
+        verify(archiveService, times(3)).archiveChunk(any(), eq(100));
+    }
+
+    @Test
+    void archive_keepsCountOfChunksBeforeFailure() {
+        // given: anden chunk fejler; den første er allerede committed
+        given(archiveService.archiveChunk(any(), eq(100)))
+                .willReturn(100)
+                .willThrow(new IllegalStateException("fejl"));
+
+        archiver.archive();
+
+        assertEquals(100.0, meterRegistry.get("dronepizza.archive.archived").counter().count());
+    }
+}
@@ -0,0 +1,61 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.metrics.DeliveryMetrics;
+import com.wzn.dronepizza.service.DeliveryService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeliveryDispatcherTest {
+
+    @Mock
+    private DeliveryService deliveryService;
+
+    @Mock
+    private DeliveryMetrics deliveryMetrics;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DeliveryDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new DeliveryDispatcher(deliveryService, deliveryMetrics, meterRegistry, 10, 3);
+    }
+
+    @Test
+    void dispatch_drainsFullBatchesUntilQueueIsShort() {
+        // given: to fulde batches, derefter en halv
+        given(deliveryService.dispatchPendingDeliveries(10)).willReturn(10, 10, 4);
+        given(deliveryService.countDeliveriesWithoutDrone()).willReturn(0L);
+
+        // when
+        dispatcher.dispatch();
+
+        // then
+        verify(deliveryService, times(3)).dispatchPendingDeliveries(10);
+        assertEquals(24.0, meterRegistry.get("dronepizza.dispatch.assigned").counter().count());
+        verify(deliveryMetrics).recordQueued(0L);
+    }
+
+    @Test
+    void dispatch_stopsAtMaxBatchesPerTick() {
+        // given: køen er længere end hvad der når at blive tømt i én runde
+        given(deliveryService.dispatchPendingDeliveries(10)).willReturn(10);
+        given(deliveryService.countDeliveriesWithoutDrone()).willReturn(500L);
+
+        // when
+        dispatcher.dispatch();
+
+        // then
+        verify(deliveryService, times(3)).dispatchPendingDeliveries(10);
+        verify(deliveryMetrics).recordQueued(500L);
+    }
+}
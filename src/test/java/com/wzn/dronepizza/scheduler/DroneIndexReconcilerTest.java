@@ -0,0 +1,53 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.service.DroneAvailabilityIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DroneIndexReconcilerTest {
+
+    @Mock
+    private DroneAvailabilityIndex droneAvailabilityIndex;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DroneIndexReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciler = new DroneIndexReconciler(droneAvailabilityIndex, meterRegistry);
+    }
+
+    @Test
+    void reconcile_shouldDelegateToIndexAndExposeIdleAndBusyGauges() {
+        // given
+        given(droneAvailabilityIndex.size()).willReturn(4);
+        given(droneAvailabilityIndex.busyCount()).willReturn(2);
+
+        // when
+        reconciler.reconcile();
+
+        // then
+        verify(droneAvailabilityIndex).reconcile();
+        assertEquals(4.0, meterRegistry.get("dronepizza.drones.idle").gauge().value());
+        assertEquals(2.0, meterRegistry.get("dronepizza.drones.busy").gauge().value());
+    }
+
+    @Test
+    void reconcile_whenIndexFails_shouldNotPropagate() {
+        // given
+        given(droneAvailabilityIndex.reconcile()).willThrow(new IllegalStateException("db nede"));
+
+        // when + then
+        assertDoesNotThrow(() -> reconciler.reconcile());
+    }
+}
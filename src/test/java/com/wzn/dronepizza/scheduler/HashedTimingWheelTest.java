@@ -0,0 +1,80 @@
+package com.wzn.dronepizza.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    // Tick på 100 ms og 8 spande, dvs. én omgang er 800 ms
+    private final HashedTimingWheel<String> wheel = new HashedTimingWheel<>(100, 8, 0);
+
+    @Test
+    void advance_expiresOnlyTimersWhoseDeadlineHasPassed() {
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 400);
+
+        assertEquals(List.of(), wheel.advance(200));
+        // "a" rundes op til tick 3, så den aldrig udløber før sin deadline
+        assertEquals(List.of(), wheel.advance(299));
+        assertEquals(List.of("a"), wheel.advance(300));
+        assertEquals(List.of("b"), wheel.advance(450));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_keepsTimersForLaterRoundsInTheSameSlot() {
+        // Tick 2 og tick 10 deler spand, men kun den første udløber i første omgang
+        wheel.schedule("near", 200);
+        wheel.schedule("far", 1000);
+
+        assertEquals(List.of("near"), wheel.advance(500));
+        assertTrue(wheel.contains("far"));
+        assertEquals(List.of("far"), wheel.advance(1000));
+    }
+
+    @Test
+    void advance_overMoreThanOneRoundExpiresEverythingDue() {
+        wheel.schedule("a", 100);
+        wheel.schedule("b", 700);
+        wheel.schedule("c", 1500);
+        wheel.schedule("d", 5000);
+
+        List<String> expired = wheel.advance(3000);
+
+        assertEquals(3, expired.size());
+        assertTrue(expired.containsAll(List.of("a", "b", "c")));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void cancelAndReschedule_shouldReplaceTheTimer() {
+        wheel.schedule("a", 200);
+        wheel.schedule("b", 200);
+        wheel.schedule("c", 200);
+
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+        wheel.schedule("c", 600);
+
+        assertEquals(List.of("a"), wheel.advance(300));
+        assertEquals(List.of("c"), wheel.advance(600));
+    }
+
+    @Test
+    void schedule_withPassedDeadlineExpiresOnNextTick() {
+        wheel.advance(1000);
+        wheel.schedule("late", 100);
+
+        assertEquals(List.of(), wheel.advance(1050));
+        assertEquals(List.of("late"), wheel.advance(1100));
+    }
+
+    @Test
+    void constructor_shouldRejectWheelSizeThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<String>(100, 6, 0));
+        assertThrows(IllegalArgumentException.class, () -> new HashedTimingWheel<String>(0, 8, 0));
+    }
+}
@@ -0,0 +1,54 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OpenDeliveryReconcilerTest {
+
+    @Mock
+    private OpenDeliveryReadModel openDeliveries;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OpenDeliveryReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reconciler = new OpenDeliveryReconciler(openDeliveries, meterRegistry);
+    }
+
+    @Test
+    void reconcile_shouldDelegateToReadModelAndCountDeviations() {
+        // given
+        given(openDeliveries.reconcile()).willReturn(3, 0);
+        given(openDeliveries.size()).willReturn(12);
+
+        // when
+        reconciler.reconcile();
+        reconciler.reconcile();
+
+        // then
+        verify(openDeliveries, times(2)).reconcile();
+        assertEquals(3.0, meterRegistry.get("dronepizza.read-model.deviations").counter().count());
+        assertEquals(12.0, meterRegistry.get("dronepizza.read-model.open").gauge().value());
+    }
+
+    @Test
+    void reconcile_whenReadModelFails_shouldNotPropagate() {
+        // given
+        given(openDeliveries.reconcile()).willThrow(new IllegalStateException("db nede"));
+
+        // when + then
+        assertDoesNotThrow(() -> reconciler.reconcile());
+    }
+}
@@ -0,0 +1,133 @@
+package com.wzn.dronepizza.scheduler;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.DeliveryDeadline;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.service.OpenDeliveryReadModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OverdueDeliveryDetectorTest {
+
+    @Mock
+    private DeliveryRepository deliveryRepository;
+
+    @Mock
+    private OpenDeliveryReadModel openDeliveries;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OverdueDeliveryDetector detector;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        detector = new OverdueDeliveryDetector(deliveryRepository, openDeliveries, eventPublisher, meterRegistry, 1000, 64);
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    void advanceTo_publishesOverdueOnceDeadlinePasses() {
+        // given: en levering, der forventes om 10 sekunder
+        DeliveryView delivery = view(1L, now.plusSeconds(10));
+        detector.onStateChange(StateChangeEvent.deliveryCreated(delivery));
+        given(openDeliveries.find(1L)).willReturn(Optional.of(delivery));
+
+        // when/then: intet før deadline, én melding efter
+        assertEquals(0, detector.advanceTo(millis(now.plusSeconds(5))));
+        assertEquals(1, detector.advanceTo(millis(now.plusSeconds(12))));
+        assertEquals(0, detector.advanceTo(millis(now.plusSeconds(20))));
+
+        then(eventPublisher).should().publishEvent(StateChangeEvent.deliveryOverdue(delivery));
+        assertEquals(1.0, meterRegistry.get("dronepizza.deliveries.overdue").counter().count());
+        assertEquals(0.0, meterRegistry.get("dronepizza.deliveries.deadlines").gauge().value());
+    }
+
+    @Test
+    void onStateChange_finishedDeliveryIsNeverReported() {
+        DeliveryView delivery = view(1L, now.plusSeconds(10));
+        detector.onStateChange(StateChangeEvent.deliveryCreated(delivery));
+        detector.onStateChange(StateChangeEvent.deliveryFinished(delivery));
+
+        assertEquals(0, detector.advanceTo(millis(now.plusSeconds(12))));
+        assertEquals(0, detector.pending());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void advanceTo_skipsDeliveryNoLongerOpenInReadModel() {
+        // given: afslutningen er endnu ikke nået frem til detektoren, men læsemodellen er opdateret
+        detector.onStateChange(StateChangeEvent.deliveryCreated(view(1L, now.plusSeconds(10))));
+        given(openDeliveries.find(1L)).willReturn(Optional.empty());
+
+        assertEquals(0, detector.advanceTo(millis(now.plusSeconds(12))));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void warmUp_registersOpenDeliveriesFromDatabase() {
+        // given: én levering, der allerede er forsinket, og én der ikke er
+        given(deliveryRepository.findOpenDeadlines()).willReturn(List.of(
+                deadline(1L, now.minusMinutes(5)), deadline(2L, now.plusMinutes(5))));
+        given(openDeliveries.find(1L)).willReturn(Optional.of(view(1L, now.minusMinutes(5))));
+
+        // when
+        detector.warmUp();
+
+        // then
+        assertEquals(2, detector.pending());
+        assertEquals(1, detector.advanceTo(millis(now.plusSeconds(2))));
+        assertEquals(1, detector.pending());
+    }
+
+    @Test
+    void onStateChange_batchCreationLoadsDeadlinesInOneQuery() {
+        given(deliveryRepository.findOpenDeadlinesByIdIn(List.of(1L, 2L))).willReturn(List.of(
+                deadline(1L, now.plusMinutes(1)), deadline(2L, now.plusMinutes(2))));
+
+        detector.onStateChange(StateChangeEvent.deliveriesCreated(List.of(1L, 2L)));
+
+        assertEquals(2, detector.pending());
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static DeliveryView view(Long id, LocalDateTime expected) {
+        return new DeliveryView(id, "Testvej 1", null, null, expected, null, 1L, "Margherita", null,
+                expected.minusMinutes(30));
+    }
+
+    private static DeliveryDeadline deadline(Long id, LocalDateTime expected) {
+        return new DeliveryDeadline() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getExpectedDeliveryTime() {
+                return expected;
+            }
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.entity.ArchivedDelivery;
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.repository.ArchivedDeliveryRepository;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeliveryArchiveServiceImplTest {
+
+    // Langt før alle andre tests' leveringer, så kun dette tests leveringer arkiveres
+    private static final LocalDateTime OLD = LocalDateTime.of(2000, 1, 1, 12, 0);
+
+    @Autowired
+    private DeliveryArchiveService archiveService;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private ArchivedDeliveryRepository archivedDeliveryRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    private final List<Long> oldIds = new ArrayList<>();
+    private Delivery recent;
+    private Delivery open;
+
+    @BeforeEach
+    void setUp() {
+        Pizza pizza = pizzaRepository.save(new Pizza("Arkiv", 70));
+        for (int i = 0; i < 5; i++) {
+            oldIds.add(deliveryRepository.save(
+                    new Delivery("Gammelvej " + i, OLD.plusMinutes(i), OLD.plusMinutes(i), null, pizza)).getId());
+        }
+        recent = deliveryRepository.save(
+                new Delivery("Nyvej 1", OLD.plusYears(2), OLD.plusYears(2), null, pizza));
+        open = deliveryRepository.save(new Delivery("Åbenvej 1", OLD, pizza));
+    }
+
+    @AfterEach
+    void tearDown() {
+        archivedDeliveryRepository.deleteAllById(oldIds);
+        deliveryRepository.deleteAllById(List.of(recent.getId(), open.getId()));
+    }
+
+    @Test
+    void archiveChunk_movesOnlyFinishedDeliveriesOlderThanCutoffInChunks() {
+        // when: chunks af 2 flytter de 5 gamle leveringer i 3 omgange
+        LocalDateTime cutoff = OLD.plusYears(1);
+        assertEquals(2, archiveService.archiveChunk(cutoff, 2));
+        assertEquals(2, archiveService.archiveChunk(cutoff, 2));
+        assertEquals(1, archiveService.archiveChunk(cutoff, 2));
+        assertEquals(0, archiveService.archiveChunk(cutoff, 2));
+
+        // then: de gamle ligger kun i arkivet, med samme id og data
+        assertTrue(deliveryRepository.findAllById(oldIds).isEmpty());
+        List<ArchivedDelivery> archived = archivedDeliveryRepository.findAllById(oldIds);
+        assertEquals(5, archived.size());
+        ArchivedDelivery first = archived.stream().filter(a -> a.getId().equals(oldIds.get(0))).findFirst().orElseThrow();
+        assertEquals("Gammelvej 0", first.getAddress());
+        assertEquals(OLD, first.getActualDeliveryTime());
+        assertNotNull(first.getArchivedTime());
+
+        // Nyere og åbne leveringer bliver i delivery-tabellen
+        assertTrue(deliveryRepository.existsById(recent.getId()));
+        assertTrue(deliveryRepository.existsById(open.getId()));
+    }
+
+    @Test
+    void getDelivery_findsDeliveryInEitherTable() {
+        archiveService.archiveChunk(OLD.plusYears(1), 10);
+
+        DeliveryView archived = deliveryService.getDelivery(oldIds.get(1));
+        assertEquals("Gammelvej 1", archived.address());
+        assertEquals("Arkiv", archived.pizzaTitle());
+        assertEquals("Nyvej 1", deliveryService.getDelivery(recent.getId()).address());
+        assertThrows(IllegalArgumentException.class, () -> deliveryService.getDelivery(-1L));
+    }
+}
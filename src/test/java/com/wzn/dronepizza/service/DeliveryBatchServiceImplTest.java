@@ -0,0 +1,126 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.dto.DeliveryOrder;
+import com.wzn.dronepizza.dto.DeliveryOrderResult;
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@RecordApplicationEvents
+class DeliveryBatchServiceImplTest {
+
+    private static final int ORDERS = 1200;
+
+    @Autowired
+    private DeliveryBatchService deliveryBatchService;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    private Statistics statistics;
+    private Pizza margherita;
+    private Pizza pepperoni;
+
+    @BeforeEach
+    void setUp() {
+        margherita = pizzaRepository.save(new Pizza("Batch Margherita", 70));
+        pepperoni = pizzaRepository.save(new Pizza("Batch Pepperoni", 80));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Statistik er slået til i application.properties (hibernate.generate_statistics)
+        statistics.clear();
+    }
+
+    @Test
+    void createDeliveries_shouldInsertValidOrdersInJdbcBatches() {
+        // given: 1.200 gyldige bestillinger fordelt på to pizzaer
+        List<DeliveryOrder> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Long pizzaId = i % 2 == 0 ? margherita.getId() : pepperoni.getId();
+            orders.add(new DeliveryOrder(pizzaId, "Nørrebrogade " + (i % 100 + 1)));
+        }
+        long before = deliveryRepository.count();
+
+        // when
+        List<DeliveryOrderResult> results = deliveryBatchService.createDeliveries(orders);
+
+        // then
+        assertEquals(ORDERS, results.size());
+        assertTrue(results.stream().allMatch(DeliveryOrderResult::success));
+        assertEquals(ORDERS, results.stream().map(DeliveryOrderResult::deliveryId).distinct().count());
+        assertEquals(ORDERS, statistics.getEntityInsertCount());
+        // Én pizza-forespørgsel, sekvenskald for hver 50 id'er og én INSERT pr. batch på 50 – ikke én pr. levering
+        assertTrue(statistics.getPrepareStatementCount() < 100,
+                () -> "Forventede batchede inserts, men " + statistics.getPrepareStatementCount() + " statements blev forberedt");
+        assertEquals(before + ORDERS, deliveryRepository.count());
+
+        Delivery first = deliveryRepository.findById(results.get(0).deliveryId()).orElseThrow();
+        assertEquals(margherita.getId(), first.getPizza().getId());
+        assertNotNull(first.getLatitude()); // adressen blev geokodet
+
+        // Ét samlet event for hele ordren, ikke ét pr. levering
+        List<StateChangeEvent> events = applicationEvents.stream(StateChangeEvent.class).toList();
+        assertEquals(1, events.size());
+        assertEquals(StateChangeEvent.DELIVERIES_CREATED, events.get(0).type());
+        assertEquals(ORDERS, ((List<?>) events.get(0).data()).size());
+    }
+
+    @Test
+    void createDeliveries_shouldRejectInvalidOrdersIndividually() {
+        // given
+        List<DeliveryOrder> orders = new ArrayList<>();
+        orders.add(new DeliveryOrder(margherita.getId(), "Østerbrogade 20"));
+        orders.add(new DeliveryOrder(-1L, "Østerbrogade 22"));
+        orders.add(new DeliveryOrder(null, "Østerbrogade 24"));
+        orders.add(new DeliveryOrder(pepperoni.getId(), " "));
+        orders.add(null);
+
+        // when
+        List<DeliveryOrderResult> results = deliveryBatchService.createDeliveries(orders);
+
+        // then
+        assertTrue(results.get(0).success());
+        assertNotNull(results.get(0).deliveryId());
+        assertEquals("Ingen pizza med id -1", results.get(1).message());
+        assertEquals("pizzaId mangler.", results.get(2).message());
+        assertEquals("Adresse mangler.", results.get(3).message());
+        assertEquals("pizzaId mangler.", results.get(4).message());
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(DeliveryOrderResult::index).toList());
+    }
+
+    @Test
+    void createDeliveries_whenOrderIsEmptyOrTooLarge_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> deliveryBatchService.createDeliveries(List.of()));
+        List<DeliveryOrder> tooMany = new ArrayList<>();
+        for (int i = 0; i <= 10_000; i++) {
+            tooMany.add(new DeliveryOrder(1L, "Vej " + i));
+        }
+        assertThrows(IllegalArgumentException.class, () -> deliveryBatchService.createDeliveries(tooMany));
+    }
+}
@@ -0,0 +1,108 @@
+package com.wzn.dronepizza.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.ArchivedDeliveryRepository;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DeliveryExportServiceImplTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+    @Autowired
+    private DeliveryExportService deliveryExportService;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private ArchivedDeliveryRepository archivedDeliveryRepository;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        deliveryRepository.deleteAll();
+        archivedDeliveryRepository.deleteAll();
+
+        Station station = stationRepository.save(new Station(55.68, 12.57));
+        Drone drone = droneRepository.save(new Drone(UUID.randomUUID(), DroneStatus.I_DRIFT, station));
+        Pizza pizza = pizzaRepository.save(new Pizza("Export", 70));
+
+        // 2.500 leveringer, én pr. minut, så eksporten krydser flere clear-intervaller
+        List<Delivery> deliveries = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Delivery delivery = new Delivery("Vej " + i, BASE.plusMinutes(i), pizza);
+            delivery.setDrone(drone);
+            deliveries.add(delivery);
+        }
+        deliveryRepository.saveAll(deliveries);
+    }
+
+    @Test
+    void exportDeliveries_shouldWriteOneJsonObjectPerLineWithAssociations() throws Exception {
+        // when
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = deliveryExportService.exportDeliveries(null, null, out);
+
+        // then
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2500, count);
+        assertEquals(2500, lines.length);
+
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("Vej 0", first.get("address").asText());
+        assertEquals("Export", first.get("pizza").get("title").asText());
+        assertEquals(55.68, first.get("drone").get("station").get("latitude").asDouble());
+        assertEquals("Vej 2499", objectMapper.readTree(lines[2499]).get("address").asText());
+    }
+
+    @Test
+    void exportDeliveries_shouldApplyTimeRange() throws Exception {
+        // when: fra minut 100 (inkl.) til minut 110 (ekskl.)
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = deliveryExportService.exportDeliveries(BASE.plusMinutes(100), BASE.plusMinutes(110), out);
+
+        // then
+        assertEquals(10, count);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("{"));
+    }
+
+    @Test
+    void exportDeliveries_whenFromIsNotBeforeTo_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> deliveryExportService.exportDeliveries(BASE, BASE, new ByteArrayOutputStream()));
+    }
+}
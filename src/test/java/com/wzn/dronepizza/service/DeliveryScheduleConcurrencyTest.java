@@ -0,0 +1,208 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.entity.Delivery;
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.PizzaRepository;
+import com.wzn.dronepizza.repository.StationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stresstest af scheduleDelivery og dispatch: mange tråde tildeler de samme leveringer samtidig.
+ */
+@SpringBootTest
+class DeliveryScheduleConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int DELIVERIES = 60;
+    private static final int CALLS_PER_DELIVERY = 8;
+    private static final int DISPATCHERS = 4;
+
+    @Autowired
+    private DeliveryService deliveryService;
+
+    @Autowired
+    private DroneService droneService;
+
+    @Autowired
+    private DroneAvailabilityIndex droneAvailabilityIndex;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private DroneRepository droneRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private PizzaRepository pizzaRepository;
+
+    private final List<Long> deliveryIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        deliveryRepository.deleteAll();
+        stationRepository.save(new Station(55.70, 12.55));
+        droneService.createDrones(DELIVERIES + 20);
+        droneAvailabilityIndex.rebuild();
+
+        Pizza pizza = pizzaRepository.save(new Pizza("Stress", 80));
+        for (int i = 0; i < DELIVERIES; i++) {
+            Delivery delivery = deliveryRepository.save(new Delivery("Stressvej " + i, LocalDateTime.now(), pizza));
+            deliveryIds.add(delivery.getId());
+        }
+    }
+
+    @Test
+    void scheduleDelivery_underHighConcurrency_neverDoubleAssigns() throws Exception {
+        // given: hver levering forsøges tildelt af flere tråde på samme tid
+        List<Long> calls = new ArrayList<>();
+        for (Long id : deliveryIds) {
+            for (int i = 0; i < CALLS_PER_DELIVERY; i++) {
+                calls.add(id);
+            }
+        }
+        Collections.shuffle(calls);
+
+        AtomicInteger successes = new AtomicInteger();
+        Map<Long, Long> droneByDelivery = new ConcurrentHashMap<>();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (Long deliveryId : calls) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    Delivery scheduled = deliveryService.scheduleDelivery(deliveryId);
+                    successes.incrementAndGet();
+                    droneByDelivery.merge(deliveryId, scheduled.getDrone().getId(), (a, b) -> -1L);
+                } catch (IllegalStateException expected) {
+                    // "allerede en drone" / "ingen tilgengelige droner" er forventede afvisninger
+                } catch (Throwable t) {
+                    unexpected.add(t);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then: ingen uventede fejl, og hver levering blev tildelt højst én gang
+        assertTrue(unexpected.isEmpty(), () -> "Uventede fejl: " + unexpected);
+        assertFalse(droneByDelivery.containsValue(-1L), "En levering blev tildelt mere end én gang");
+        assertEquals(droneByDelivery.size(), successes.get());
+        assertEquals(DELIVERIES, successes.get(), "Der var droner nok til alle leveringer");
+
+        // og ingen drone har mere end én åben levering, og alle tildelte droner er markeret optaget
+        Map<Long, Long> assigned = assertOneOpenDeliveryPerBusyDrone();
+        assertEquals(droneByDelivery, assigned);
+    }
+
+    @Test
+    void dispatchAndSchedule_concurrently_neverDoubleAssign() throws Exception {
+        // given: dispatch-tråde tømmer køen i små batches, mens andre tråde tildeler de samme leveringer enkeltvis
+        List<Long> calls = new ArrayList<>(deliveryIds);
+        Collections.shuffle(calls);
+
+        AtomicInteger scheduled = new AtomicInteger();
+        AtomicInteger dispatched = new AtomicInteger();
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        // when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < DISPATCHERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    int assigned;
+                    do {
+                        assigned = deliveryService.dispatchPendingDeliveries(5);
+                        dispatched.addAndGet(assigned);
+                    } while (assigned > 0);
+                } catch (Throwable t) {
+                    unexpected.add(t);
+                }
+                return null;
+            }));
+        }
+        for (Long deliveryId : calls) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    deliveryService.scheduleDelivery(deliveryId);
+                    scheduled.incrementAndGet();
+                } catch (IllegalStateException expected) {
+                    // Dispatch nåede først
+                } catch (Throwable t) {
+                    unexpected.add(t);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // then: hver levering er tildelt præcis én gang, enten af dispatch eller enkeltvis
+        assertTrue(unexpected.isEmpty(), () -> "Uventede fejl: " + unexpected);
+        assertEquals(DELIVERIES, scheduled.get() + dispatched.get());
+        assertEquals(DELIVERIES, assertOneOpenDeliveryPerBusyDrone().size());
+    }
+
+    /**
+     * Tjekker, at alle leveringerne har en drone, at ingen drone har mere end én af dem,
+     * og at dronerne er i drift og markeret optaget.
+     * @return Dronens id pr. leverings-id.
+     */
+    private Map<Long, Long> assertOneOpenDeliveryPerBusyDrone() {
+        Map<Long, Long> droneByDelivery = new HashMap<>();
+        Map<Long, Integer> openPerDrone = new HashMap<>();
+        for (Delivery delivery : deliveryRepository.findAllById(deliveryIds)) {
+            assertNotNull(delivery.getDrone());
+            droneByDelivery.put(delivery.getId(), delivery.getDrone().getId());
+            openPerDrone.merge(delivery.getDrone().getId(), 1, Integer::sum);
+        }
+        assertTrue(openPerDrone.values().stream().allMatch(count -> count == 1),
+                () -> "Droner med flere åbne leveringer: " + openPerDrone);
+        for (Long droneId : openPerDrone.keySet()) {
+            Drone drone = droneRepository.findById(droneId).orElseThrow();
+            assertEquals(DroneStatus.I_DRIFT, drone.getStatus());
+            assertTrue(drone.isBusy());
+        }
+        return droneByDelivery;
+    }
+}
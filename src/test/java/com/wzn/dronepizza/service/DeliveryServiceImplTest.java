@@ -1,9 +1,12 @@
 package com.wzn.dronepizza.service;
 
+import com.wzn.dronepizza.dto.DeliveryView;
 import com.wzn.dronepizza.entity.Delivery;
 import com.wzn.dronepizza.entity.Drone;
 import com.wzn.dronepizza.entity.DroneStatus;
 import com.wzn.dronepizza.entity.Pizza;
+import com.wzn.dronepizza.event.StateChangeEvent;
+import com.wzn.dronepizza.repository.ArchivedDeliveryRepository;
 import com.wzn.dronepizza.repository.DeliveryRepository;
 import com.wzn.dronepizza.repository.DroneRepository;
 import com.wzn.dronepizza.repository.PizzaRepository;
@@ -11,8 +14,11 @@ import com.wzn.dronepizza.service.impl.DeliveryServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.context.ApplicationEventPublisher;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -26,12 +32,30 @@ class DeliveryServiceImplTest {
     @Mock
     private DeliveryRepository deliveryRepository;
 
+    @Mock
+    private ArchivedDeliveryRepository archivedDeliveryRepository;
+
     @Mock
     private PizzaRepository pizzaRepository;
 
     @Mock
     private DroneRepository droneRepository;
 
+    @Mock
+    private DroneAvailabilityIndex droneAvailabilityIndex;
+
+    @Mock
+    private OpenDeliveryReadModel openDeliveries;
+
+    @Mock
+    private StationLocator stationLocator;
+
+    @Mock
+    private Geocoder geocoder;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private DeliveryServiceImpl deliveryService; // den vi tester
 
@@ -64,33 +88,24 @@ class DeliveryServiceImplTest {
     }
 
     @Test
-    void getAllNonFinishedDeleveries_shouldReturnOnlyDeliveriesWithNullActualDeliveryTime() {
+    void getNonFinishedDeliveries_shouldReadPageFromReadModel() {
         // given
-        Delivery notFinished1 = new Delivery();
-        notFinished1.setId(1L);
-        notFinished1.setActualDeliveryTime(null);
-
-        Delivery notFinished2 = new Delivery();
-        notFinished2.setId(2L);
-        notFinished2.setActualDeliveryTime(null);
-
-        Delivery finished = new Delivery();
-        finished.setId(3L);
-        finished.setActualDeliveryTime(LocalDateTime.now()); // done
-
-        List<Delivery> all = List.of(notFinished1, notFinished2, finished);
-
-        given(deliveryRepository.findAll()).willReturn(all);
+        DeliveryView d = new DeliveryView(51L, "Vej 1", null, null, null, null, 100L, "Margherita", null, null);
+        given(openDeliveries.page(50L, 25)).willReturn(List.of(d));
 
         // when
-        List<Delivery> result = deliveryService.getAllNonFinishedDeleveries();
+        List<DeliveryView> result = deliveryService.getNonFinishedDeliveries(50L, 25);
 
         // then
-        assertEquals(2, result.size());
-        assertTrue(result.contains(notFinished1));
-        assertTrue(result.contains(notFinished2));
-        assertFalse(result.contains(finished));
-        verify(deliveryRepository, times(1)).findAll();
+        assertEquals(List.of(d), result);
+        verifyNoInteractions(deliveryRepository); // ingen SQL
+    }
+
+    @Test
+    void getNonFinishedDeliveries_whenLimitOutOfRange_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> deliveryService.getNonFinishedDeliveries(0L, 0));
+        assertThrows(IllegalArgumentException.class, () -> deliveryService.getNonFinishedDeliveries(0L, 1001));
+        verifyNoInteractions(deliveryRepository, openDeliveries);
     }
 
     @Test
@@ -123,6 +138,40 @@ class DeliveryServiceImplTest {
         // verify
         verify(pizzaRepository).findById(pizzaId);
         verify(deliveryRepository).save(any(Delivery.class));
+        verify(eventPublisher).publishEvent(StateChangeEvent.deliveryCreated(DeliveryView.from(created)));
+        verify(openDeliveries).upsert(DeliveryView.from(created)); // uden transaktion med det samme
+    }
+
+    @Test
+    void createDelivery_whenAddressIsKnown_storesCoordinates() {
+        // given
+        Pizza foundPizza = new Pizza();
+        foundPizza.setId(100L);
+        given(pizzaRepository.findById(100L)).willReturn(Optional.of(foundPizza));
+        given(geocoder.geocode("Nørrebrogade 10, 2200 København N")).willReturn(Optional.of(new GeoPoint(55.69, 12.56)));
+        given(deliveryRepository.save(any(Delivery.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        Delivery created = deliveryService.createDelivery(100L, "Nørrebrogade 10, 2200 København N");
+
+        // then
+        assertEquals(55.69, created.getLatitude());
+        assertEquals(12.56, created.getLongitude());
+    }
+
+    @Test
+    void createDelivery_whenAddressIsUnknown_createsDeliveryWithoutCoordinates() {
+        // given
+        given(pizzaRepository.findById(100L)).willReturn(Optional.of(pizza));
+        given(geocoder.geocode("Ukendt vej 1")).willReturn(Optional.empty());
+        given(deliveryRepository.save(any(Delivery.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        Delivery created = deliveryService.createDelivery(100L, "Ukendt vej 1");
+
+        // then
+        assertNull(created.getLatitude());
+        assertNull(created.getLongitude());
     }
 
     @Test
@@ -142,25 +191,20 @@ class DeliveryServiceImplTest {
     @Test
     void getAllDeliveriesWithoutDrone_shouldReturnDeliveriesWhereDroneIsNull() {
         // given
-        Delivery d1 = new Delivery();
-        d1.setId(10L);
-        d1.setDrone(null);
+        DeliveryView d1 = new DeliveryView(10L, "Vej 1", null, null, null, null, 100L, "Margherita", null, null);
+        DeliveryView d2 = new DeliveryView(20L, "Vej 2", null, null, null, null, 100L, "Margherita", null, null);
 
-        Delivery d2 = new Delivery();
-        d2.setId(20L);
-        d2.setDrone(null);
-
-        List<Delivery> mockList = Arrays.asList(d1, d2);
-        given(deliveryRepository.findByDroneIsNullAndActualDeliveryTimeIsNull()).willReturn(mockList);
+        List<DeliveryView> mockList = Arrays.asList(d1, d2);
+        given(openDeliveries.queue()).willReturn(mockList);
 
         // when
-        List<Delivery> result = deliveryService.getAllDeliveriesWithoutDrone();
+        List<DeliveryView> result = deliveryService.getAllDeliveriesWithoutDrone();
 
         // then
         assertEquals(2, result.size());
         assertTrue(result.contains(d1));
         assertTrue(result.contains(d2));
-        verify(deliveryRepository).findByDroneIsNullAndActualDeliveryTimeIsNull();
+        verifyNoInteractions(deliveryRepository);
     }
 
     @Test
@@ -170,13 +214,13 @@ class DeliveryServiceImplTest {
         delivery.setId(300L);
         delivery.setDrone(new Drone()); // Already assigned a drone
 
-        given(deliveryRepository.findById(300L)).willReturn(Optional.of(delivery));
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
 
         // when + then
         IllegalStateException exception = assertThrows(IllegalStateException.class,
                 () -> deliveryService.scheduleDelivery(300L));
         assertEquals("Levering har allerede en drone tilknyttet.", exception.getMessage());
-        verify(deliveryRepository).findById(300L);
+        verify(deliveryRepository).lockById(300L);
         verifyNoInteractions(droneRepository);
     }
 
@@ -187,13 +231,8 @@ class DeliveryServiceImplTest {
         delivery.setId(300L);
         delivery.setDrone(null);
 
-        List<Drone> allDrones = List.of(
-                new Drone(1L, DroneStatus.UDE_AF_DRIFT),
-                new Drone(2L, DroneStatus.UDE_AF_DRIFT)
-        ); // All drones are not in service
-
-        given(deliveryRepository.findById(300L)).willReturn(Optional.of(delivery));
-        given(droneRepository.findAll()).willReturn(allDrones);
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.empty()); // No drones in service
 
         // when + then
         IllegalStateException exception = assertThrows(IllegalStateException.class,
@@ -201,41 +240,224 @@ class DeliveryServiceImplTest {
         assertEquals("Ingen tilgengelige droner.", exception.getMessage());
 
         // Verify the repository interactions
-        verify(deliveryRepository).findById(300L); // Ensures findById was called
-        verify(droneRepository).findAll(); // Ensures the drones were fetched
+        verify(deliveryRepository).lockById(300L); // Ensures the delivery was locked
+        verify(droneAvailabilityIndex).pickAvailable(); // Ensures the index was queried
+        verifyNoInteractions(droneRepository); // No table scan
         verifyNoMoreInteractions(deliveryRepository); // Ensures no unexpected interactions
     }
 
+    @Test
+    void scheduleDelivery_whenClaimFails_marksDroneBusyAndPicksAnother() {
+        // given: drone 1 er optaget eller ude af drift i databasen, selvom indekset troede den var ledig
+        Delivery delivery = new Delivery();
+        delivery.setId(300L);
+        Drone inService = new Drone(2L, DroneStatus.I_DRIFT);
+
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
+        given(deliveryRepository.findById(300L)).willReturn(Optional.of(delivery));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.of(1L), Optional.of(2L));
+        given(droneRepository.claim(1L)).willReturn(0);
+        given(droneRepository.claim(2L)).willReturn(1);
+        given(droneRepository.getReferenceById(2L)).willReturn(inService);
+        given(deliveryRepository.assignDrone(300L, inService)).willReturn(1);
+
+        // when
+        deliveryService.scheduleDelivery(300L);
+
+        // then
+        verify(droneAvailabilityIndex).markBusy(1L);
+        verify(droneAvailabilityIndex).markBusy(2L);
+        verify(deliveryRepository).assignDrone(300L, inService);
+        verify(droneRepository, never()).findById(anyLong()); // ingen opslag før kravet
+    }
+
 
 
     @Test
-    void scheduleDelivery_whenAvailableDronesExist_assignsRandomDrone() {
+    void scheduleDelivery_whenAvailableDronesExist_claimsDroneAndDelivery() {
         // given
         Delivery delivery = new Delivery();
         delivery.setId(300L);
         delivery.setDrone(null);
 
         Drone drone1 = new Drone(1L, DroneStatus.I_DRIFT);
-        Drone drone2 = new Drone(2L, DroneStatus.I_DRIFT);
-        List<Drone> availableDrones = List.of(drone1, drone2);
+        Delivery scheduled = new Delivery();
+        scheduled.setId(300L);
+        scheduled.setDrone(drone1);
 
-        given(deliveryRepository.findById(300L)).willReturn(Optional.of(delivery));
-        given(droneRepository.findAll()).willReturn(availableDrones);
-        given(deliveryRepository.save(any(Delivery.class)))
-                .willAnswer(invocation -> invocation.getArgument(0)); // Simulate saving delivery
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
+        given(deliveryRepository.findById(300L)).willReturn(Optional.of(scheduled));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.of(1L));
+        given(droneRepository.claim(1L)).willReturn(1);
+        given(droneRepository.getReferenceById(1L)).willReturn(drone1);
+        given(deliveryRepository.assignDrone(300L, drone1)).willReturn(1);
 
         // when
         Delivery scheduledDelivery = deliveryService.scheduleDelivery(300L);
 
         // then
-        assertNotNull(scheduledDelivery.getDrone());
-        assertTrue(availableDrones.contains(scheduledDelivery.getDrone()),
-                "Assigned drone should be one of the available drones.");
-        verify(deliveryRepository).findById(300L);
-        verify(droneRepository).findAll();
-        verify(deliveryRepository).save(scheduledDelivery);
+        assertEquals(drone1, scheduledDelivery.getDrone());
+        verify(droneAvailabilityIndex).markBusy(1L); // dronen er ikke længere ledig
+        verify(droneAvailabilityIndex, never()).markIdle(anyLong());
+        verify(droneRepository, never()).findAll();
+        verify(deliveryRepository, never()).save(any(Delivery.class));
+        verify(openDeliveries).upsert(DeliveryView.from(scheduled)); // ude af køen i læsemodellen
     }
 
+    @Test
+    void scheduleDelivery_whenDroneClaimsKeepFailing_givesUpAfterBoundedAttempts() {
+        // given
+        Delivery delivery = new Delivery();
+        delivery.setId(300L);
+
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.of(1L));
+        given(droneRepository.claim(1L)).willReturn(0);
+
+        // when + then
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> deliveryService.scheduleDelivery(300L));
+        assertEquals("Ingen tilgengelige droner.", exception.getMessage());
+        verify(droneRepository, times(10)).claim(1L);
+        verify(deliveryRepository, never()).assignDrone(anyLong(), any(Drone.class));
+    }
+
+    @Test
+    void scheduleDelivery_whenDeliveryAssignedConcurrently_throwsException() {
+        // given
+        Delivery delivery = new Delivery();
+        delivery.setId(300L);
+        Drone drone1 = new Drone(1L, DroneStatus.I_DRIFT);
+
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.of(1L));
+        given(droneRepository.claim(1L)).willReturn(1);
+        given(droneRepository.getReferenceById(1L)).willReturn(drone1);
+        given(deliveryRepository.assignDrone(300L, drone1)).willReturn(0); // en anden nåede først
+
+        // when + then
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> deliveryService.scheduleDelivery(300L));
+        assertEquals("Levering har allerede en drone tilknyttet.", exception.getMessage());
+    }
+
+
+    @Test
+    void scheduleDelivery_whenCoordinatesKnown_prefersNearestStationWithFreeDrone() {
+        // given
+        Delivery delivery = new Delivery();
+        delivery.setId(300L);
+        delivery.setLatitude(55.68);
+        delivery.setLongitude(12.57);
+
+        Drone nearDrone = new Drone(5L, DroneStatus.I_DRIFT);
+
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
+        given(deliveryRepository.findById(300L)).willReturn(Optional.of(delivery));
+        given(stationLocator.findNearestStationIds(eq(55.68), eq(12.57), anyInt())).willReturn(List.of(1L, 2L));
+        given(droneAvailabilityIndex.pickAvailable(1L)).willReturn(Optional.empty()); // nærmeste station er tom
+        given(droneAvailabilityIndex.pickAvailable(2L)).willReturn(Optional.of(5L));
+        given(droneRepository.claim(5L)).willReturn(1);
+        given(droneRepository.getReferenceById(5L)).willReturn(nearDrone);
+        given(deliveryRepository.assignDrone(300L, nearDrone)).willReturn(1);
+
+        // when
+        deliveryService.scheduleDelivery(300L);
+
+        // then
+        verify(deliveryRepository).assignDrone(300L, nearDrone);
+        verify(droneAvailabilityIndex, never()).pickAvailable();
+    }
+
+    @Test
+    void scheduleDelivery_whenNoCoordinates_skipsStationLookup() {
+        // given
+        Delivery delivery = new Delivery();
+        delivery.setId(300L);
+        Drone drone1 = new Drone(1L, DroneStatus.I_DRIFT);
+
+        given(deliveryRepository.lockById(300L)).willReturn(Optional.of(delivery));
+        given(deliveryRepository.findById(300L)).willReturn(Optional.of(delivery));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.of(1L));
+        given(droneRepository.claim(1L)).willReturn(1);
+        given(droneRepository.getReferenceById(1L)).willReturn(drone1);
+        given(deliveryRepository.assignDrone(300L, drone1)).willReturn(1);
+
+        // when
+        deliveryService.scheduleDelivery(300L);
+
+        // then
+        verifyNoInteractions(stationLocator);
+    }
+
+    @Test
+    void dispatchPendingDeliveries_claimsAllDronesWithOneUpdate() {
+        // given
+        Delivery d1 = new Delivery();
+        d1.setId(1L);
+        Delivery d2 = new Delivery();
+        d2.setId(2L);
+        Drone drone1 = new Drone(10L, DroneStatus.I_DRIFT);
+        Drone drone2 = new Drone(11L, DroneStatus.I_DRIFT);
+
+        given(deliveryRepository.lockQueueForDispatch(any(Limit.class))).willReturn(List.of(d1, d2));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.of(10L), Optional.of(11L));
+        given(droneRepository.lockClaimable(anyCollection())).willReturn(List.of(10L, 11L));
+        given(droneRepository.getReferenceById(10L)).willReturn(drone1);
+        given(droneRepository.getReferenceById(11L)).willReturn(drone2);
+
+        // when
+        int assigned = deliveryService.dispatchPendingDeliveries(50);
+
+        // then
+        assertEquals(2, assigned);
+        assertSame(drone1, d1.getDrone());
+        assertSame(drone2, d2.getDrone());
+        verify(droneRepository).claimAll(List.of(10L, 11L));
+        verify(droneRepository, never()).claim(anyLong());
+        verify(deliveryRepository, never()).assignDrone(anyLong(), any(Drone.class));
+    }
+
+    @Test
+    void dispatchPendingDeliveries_whenDroneTakenElsewhere_picksAnotherInNextRound() {
+        // given: drone 10 er taget af en anden instans, så d1 får drone 12 i næste runde
+        Delivery d1 = new Delivery();
+        d1.setId(1L);
+        Drone drone12 = new Drone(12L, DroneStatus.I_DRIFT);
+
+        given(deliveryRepository.lockQueueForDispatch(any(Limit.class))).willReturn(List.of(d1));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.of(10L), Optional.of(12L));
+        given(droneRepository.lockClaimable(Set.of(10L))).willReturn(List.of());
+        given(droneRepository.lockClaimable(Set.of(12L))).willReturn(List.of(12L));
+        given(droneRepository.getReferenceById(12L)).willReturn(drone12);
+
+        // when
+        int assigned = deliveryService.dispatchPendingDeliveries(50);
+
+        // then
+        assertEquals(1, assigned);
+        assertSame(drone12, d1.getDrone());
+        verify(droneRepository).claimAll(List.of(12L));
+        verify(droneRepository, times(1)).claimAll(anyCollection());
+    }
+
+    @Test
+    void dispatchPendingDeliveries_whenNoDrones_stopsWithoutAssigning() {
+        // given
+        Delivery d1 = new Delivery();
+        d1.setId(1L);
+        given(deliveryRepository.lockQueueForDispatch(any(Limit.class))).willReturn(List.of(d1));
+        given(droneAvailabilityIndex.pickAvailable()).willReturn(Optional.empty());
+
+        // when
+        int assigned = deliveryService.dispatchPendingDeliveries(50);
+
+        // then
+        assertEquals(0, assigned);
+        assertNull(d1.getDrone());
+        verify(droneRepository, never()).lockClaimable(anyCollection());
+        verify(droneRepository, never()).claimAll(anyCollection());
+    }
 
     @Test
     void finishDelivery_whenDeliveryNotFound_throwsException() {
@@ -281,13 +503,15 @@ class DeliveryServiceImplTest {
     @Test
     void finishDelivery_successCase() {
         // given
+        Drone busyDrone = new Drone(200L, DroneStatus.I_DRIFT);
+        busyDrone.setBusy(true);
         Delivery d = new Delivery();
         d.setId(300L);
-        d.setDrone(new Drone());
+        d.setDrone(busyDrone);
         d.setActualDeliveryTime(null); // ikke afsluttet endnu
 
         given(deliveryRepository.findById(300L)).willReturn(Optional.of(d));
-        given(deliveryRepository.save(any(Delivery.class)))
+        given(deliveryRepository.saveAndFlush(any(Delivery.class)))
                 .willAnswer(invocation -> invocation.getArgument(0));
 
         // when
@@ -295,7 +519,30 @@ class DeliveryServiceImplTest {
 
         // then
         assertNotNull(result.getActualDeliveryTime());
-        verify(deliveryRepository).save(d);
+        assertFalse(result.getDrone().isBusy());
+        verify(deliveryRepository).saveAndFlush(d);
+        verify(droneRepository).release(200L);
+        verify(droneAvailabilityIndex).markIdle(200L); // dronen er ledig igen
+        verify(eventPublisher).publishEvent(StateChangeEvent.deliveryFinished(DeliveryView.from(result)));
+        verify(openDeliveries).remove(300L);
     }
-}
 
+    @Test
+    void finishDelivery_whenModifiedConcurrently_throwsException() {
+        // given
+        Delivery d = new Delivery();
+        d.setId(300L);
+        d.setDrone(new Drone(200L, DroneStatus.I_DRIFT));
+
+        given(deliveryRepository.findById(300L)).willReturn(Optional.of(d));
+        given(deliveryRepository.saveAndFlush(any(Delivery.class)))
+                .willThrow(new ObjectOptimisticLockingFailureException(Delivery.class, 300L));
+
+        // when + then
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> deliveryService.finishDelivery(300L));
+        assertTrue(ex.getMessage().contains("ændret samtidig"));
+        verify(droneRepository, never()).release(anyLong());
+        verifyNoInteractions(droneAvailabilityIndex, openDeliveries);
+    }
+}
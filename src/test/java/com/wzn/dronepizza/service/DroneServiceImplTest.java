@@ -1,15 +1,20 @@
 package com.wzn.dronepizza.service;
 
-
+import com.wzn.dronepizza.dto.DroneView;
 import com.wzn.dronepizza.entity.Drone;
 import com.wzn.dronepizza.entity.DroneStatus;
 import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.event.StateChangeEvent;
 import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.StationLoad;
 import com.wzn.dronepizza.repository.StationRepository;
 import com.wzn.dronepizza.service.impl.DroneServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.mockito.*;
 
 import static org.mockito.BDDMockito.*;
@@ -18,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @ExtendWith(org.mockito.junit.jupiter.MockitoExtension.class)
 class DroneServiceImplTest {
@@ -28,6 +34,12 @@ class DroneServiceImplTest {
     @Mock
     private StationRepository stationRepository;
 
+    @Mock
+    private DroneAvailabilityIndex droneAvailabilityIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private DroneServiceImpl droneService; // Den vi tester
 
@@ -46,25 +58,24 @@ class DroneServiceImplTest {
     @Test
     void getAllDrones_shouldReturnListOfDrones() {
         // given
-        Drone drone1 = new Drone();
-        Drone drone2 = new Drone();
-        List<Drone> mockDrones = List.of(drone1, drone2);
-        given(droneRepository.findAll()).willReturn(mockDrones);
+        DroneView drone1 = new DroneView(1L, UUID.randomUUID(), DroneStatus.I_DRIFT, 1L, false);
+        DroneView drone2 = new DroneView(2L, UUID.randomUUID(), DroneStatus.I_DRIFT, 2L, true);
+        given(droneRepository.findAllViews()).willReturn(List.of(drone1, drone2));
 
         // when
-        List<Drone> result = droneService.getAllDrones();
+        List<DroneView> result = droneService.getAllDrones();
 
         // then
         assertEquals(2, result.size());
-        verify(droneRepository, times(1)).findAll();
+        verify(droneRepository, times(1)).findAllViews();
+        verify(droneRepository, never()).findAll(); // stationerne indlæses ikke
     }
 
     @Test
     void createDrone_whenNoStations_thenThrowException() {
         // given
         Drone drone = new Drone();
-        // stationRepository.findAll() returns an empty list
-        given(stationRepository.findAll()).willReturn(new ArrayList<>());
+        given(stationRepository.findAllWithDroneCount()).willReturn(new ArrayList<>());
 
         // when + then
         IllegalStateException ex = assertThrows(
@@ -72,37 +83,71 @@ class DroneServiceImplTest {
                 () -> droneService.createDrone(drone)
         );
         assertTrue(ex.getMessage().contains("ingen stationer"));
-        verify(stationRepository, times(1)).findAll();
-        verify(droneRepository, never()).save(any());
+        verify(stationRepository, times(1)).findAllWithDroneCount();
+        verify(droneRepository, never()).saveAll(any());
     }
 
     @Test
     void createDrone_whenStationsExist_shouldAssignStationWithFewestDrones() {
-        // given
+        // given: stationA har 2 droner, stationB har 1
         Drone drone = new Drone();
-        stationA.setId(1L);
-        stationB.setId(2L);
-
-        // Stations
-        given(stationRepository.findAll()).willReturn(List.of(stationA, stationB));
-
-        // For stationA: 2 drones
-        // For stationB: 1 drone
-        given(droneRepository.countByStationId(1L)).willReturn(2L);
-        given(droneRepository.countByStationId(2L)).willReturn(1L);
-
-        // Stubs for saving
-        given(droneRepository.save(any(Drone.class))).willAnswer(invocation -> invocation.getArgument(0));
+        given(stationRepository.findAllWithDroneCount()).willReturn(List.of(load(stationA, 2), load(stationB, 1)));
+        given(droneRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
 
         // when
         Drone createdDrone = droneService.createDrone(drone);
 
         // then
         assertEquals(2L, createdDrone.getStation().getId());
-        verify(stationRepository).findAll();
-        verify(droneRepository).countByStationId(1L);
-        verify(droneRepository).countByStationId(2L);
-        verify(droneRepository).save(createdDrone);
+        assertEquals(DroneStatus.I_DRIFT, createdDrone.getStatus());
+        assertNotNull(createdDrone.getSerialNumber());
+        verify(droneRepository, never()).countByStationId(anyLong());
+        verify(droneAvailabilityIndex).sync(createdDrone);
+    }
+
+    @Test
+    void createDrone_inTransaction_shouldSyncIndexOnlyAfterCommit() {
+        // given
+        Drone drone = new Drone();
+        given(stationRepository.findAllWithDroneCount()).willReturn(List.of(load(stationA, 0)));
+        given(droneRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // when
+            droneService.createDrone(drone);
+
+            // then: intet i indekset før commit
+            verify(droneAvailabilityIndex, never()).sync(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(droneAvailabilityIndex).sync(drone);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void createDrones_shouldSpreadDronesEvenlyAcrossStations() {
+        // given: stationA har 3 droner, stationB har 0
+        given(stationRepository.findAllWithDroneCount()).willReturn(List.of(load(stationA, 3), load(stationB, 0)));
+        given(droneRepository.saveAll(anyList())).willAnswer(invocation -> invocation.getArgument(0));
+
+        // when
+        List<Drone> created = droneService.createDrones(5);
+
+        // then: de første 3 går til stationB, derefter skiftes der (lighed -> laveste id)
+        List<Long> stationIds = created.stream().map(d -> d.getStation().getId()).toList();
+        assertEquals(List.of(2L, 2L, 2L, 1L, 2L), stationIds);
+        verify(stationRepository, times(1)).findAllWithDroneCount();
+        verify(droneRepository, times(1)).saveAll(anyList());
+        verify(droneAvailabilityIndex, times(5)).sync(any(Drone.class));
+    }
+
+    @Test
+    void createDrones_whenCountOutOfRange_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> droneService.createDrones(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> droneService.createDrones(DroneServiceImpl.MAX_BULK_CREATE + 1));
+        verifyNoInteractions(stationRepository);
     }
 
 
@@ -125,6 +170,8 @@ class DroneServiceImplTest {
         assertEquals(DroneStatus.I_DRIFT, updated.getStatus());
         verify(droneRepository).findById(10L);
         verify(droneRepository).save(drone);
+        verify(droneAvailabilityIndex).sync(drone);
+        verify(eventPublisher).publishEvent(StateChangeEvent.droneEnabled(DroneView.from(drone)));
     }
 
     @Test
@@ -159,6 +206,30 @@ class DroneServiceImplTest {
         verify(droneRepository).save(drone);
     }
 
+    @Test
+    void disableDrone_inTransaction_shouldUpdateIndexOnlyAfterCommit() {
+        // given
+        Drone drone = new Drone();
+        drone.setId(5L);
+        drone.setStatus(DroneStatus.I_DRIFT);
+        given(droneRepository.findById(5L)).willReturn(Optional.of(drone));
+        given(droneRepository.save(drone)).willReturn(drone);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // when
+            droneService.disableDrone(5L);
+
+            // then: rulles transaktionen tilbage, er indekset urørt; først ved commit fjernes dronen
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+            verify(droneAvailabilityIndex, never()).sync(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(droneAvailabilityIndex).sync(drone);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     void retireDrone_shouldSetStatusUdFaset() {
         // given
@@ -176,6 +247,20 @@ class DroneServiceImplTest {
         assertEquals(DroneStatus.UDFASET, updated.getStatus());
         verify(droneRepository).findById(5L);
         verify(droneRepository).save(drone);
+        verify(droneAvailabilityIndex).sync(drone);
     }
-}
 
+    private static StationLoad load(Station station, long droneCount) {
+        return new StationLoad() {
+            @Override
+            public Station getStation() {
+                return station;
+            }
+
+            @Override
+            public long getDroneCount() {
+                return droneCount;
+            }
+        };
+    }
+}
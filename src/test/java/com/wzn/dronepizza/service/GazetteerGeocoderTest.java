@@ -0,0 +1,130 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.service.impl.GazetteerGeocoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GazetteerGeocoderTest {
+
+    private static final String GAZETTEER = """
+            # gade;husnummer;postnummer;breddegrad;længdegrad
+            Nørrebrogade;10;2200;55.6880;12.5620
+            Nørrebrogade;20;2200;55.6900;12.5580
+            Østerbrogade;20;2100;55.6950;12.5830
+            Vestergade;5;1456;55.6775;12.5720
+            Vestergade;5;5000;55.3950;10.3820
+            """;
+
+    private SimpleMeterRegistry meterRegistry;
+    private GazetteerGeocoder geocoder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        geocoder = new GazetteerGeocoder(meterRegistry, new ByteArrayResource(GAZETTEER.getBytes(StandardCharsets.UTF_8)), 2);
+    }
+
+    @Test
+    void geocode_shouldResolveStreetAndHouseNumber() {
+        // when
+        Optional<GeoPoint> point = geocoder.geocode("Nørrebrogade 10, 2200 København N");
+
+        // then
+        assertEquals(Optional.of(new GeoPoint(55.6880, 12.5620)), point);
+    }
+
+    @Test
+    void geocode_shouldIgnoreCaseAndUseNearestHouseNumber() {
+        // when
+        Optional<GeoPoint> point = geocoder.geocode("nørrebrogade  18B");
+
+        // then
+        assertEquals(Optional.of(new GeoPoint(55.6900, 12.5580)), point);
+    }
+
+    @Test
+    void geocode_shouldUsePostcodeToTellStreetsWithSameNameApart() {
+        assertEquals(Optional.of(new GeoPoint(55.6775, 12.5720)), geocoder.geocode("Vestergade 5, 1456 København K"));
+        assertEquals(Optional.of(new GeoPoint(55.3950, 10.3820)), geocoder.geocode("Vestergade 5, 5000 Odense C"));
+        // Uden postnummer er gaden tvetydig
+        assertTrue(geocoder.geocode("Vestergade 5").isEmpty());
+        // Gaden findes ikke i postnummeret
+        assertTrue(geocoder.geocode("Nørrebrogade 10, 2100 København Ø").isEmpty());
+    }
+
+    @Test
+    void geocode_whenHouseNumberOutsideKnownRange_shouldReturnEmpty() {
+        assertTrue(geocoder.geocode("Nørrebrogade 21, 2200 København N").isEmpty());
+        assertTrue(geocoder.geocode("Nørrebrogade 9, 2200 København N").isEmpty());
+        assertTrue(geocoder.geocode("Nørrebrogade 15, 2200 København N").isPresent());
+    }
+
+    @Test
+    void geocode_whenUnknownStreet_shouldReturnEmpty() {
+        assertTrue(geocoder.geocode("Ukendt Vej 1, 9999 Ingensteds").isEmpty());
+        assertTrue(geocoder.geocode("ingen husnummer").isEmpty());
+        assertTrue(geocoder.geocode(null).isEmpty());
+    }
+
+    @Test
+    void geocode_whenHouseNumberDoesNotFitAnInt_shouldReturnEmpty() {
+        // Husnummeret er for langt til Integer.parseInt; leveringen skal oprettes uden koordinater, ikke fejle
+        assertTrue(geocoder.geocode("Nørrebrogade 99999999999").isEmpty());
+        assertTrue(geocoder.geocode("Nørrebrogade 123456, 2200 København N").isEmpty());
+        assertTrue(geocoder.geocode("Nørrebrogade 99999").isEmpty());
+    }
+
+    @Test
+    void geocode_repeatedAddress_shouldBeServedFromCacheWithSameInstance() {
+        // given
+        String address = "Østerbrogade 20, 2100 København Ø";
+        Optional<GeoPoint> first = geocoder.geocode(address);
+
+        // when
+        Optional<GeoPoint> second = geocoder.geocode(address);
+
+        // then
+        assertSame(first, second);
+        assertEquals(1, cacheRequests("miss"));
+        assertEquals(1, cacheRequests("hit"));
+    }
+
+    @Test
+    void geocode_cacheShouldEvictLeastRecentlyUsed() {
+        // given: cachen har plads til 2 adresser
+        geocoder.geocode("Nørrebrogade 10");
+        geocoder.geocode("Nørrebrogade 20");
+        geocoder.geocode("Nørrebrogade 10"); // nu senest brugt
+
+        // when
+        geocoder.geocode("Østerbrogade 20"); // skubber "Nørrebrogade 20" ud
+        geocoder.geocode("Nørrebrogade 10");
+
+        // then
+        assertEquals(2.0, meterRegistry.get("dronepizza.geocoding.cache.size").gauge().value());
+        assertEquals(3, cacheRequests("miss"));
+        assertEquals(2, cacheRequests("hit"));
+    }
+
+    @Test
+    void bundledGazetteer_shouldContainInitialDataAddresses() {
+        // given
+        GazetteerGeocoder bundled = new GazetteerGeocoder(new SimpleMeterRegistry(), new ClassPathResource("gazetteer/copenhagen.csv"), 100);
+
+        // when + then
+        assertTrue(bundled.geocode("Nørrebrogade 10, 2200 København N").isPresent());
+        assertTrue(bundled.geocode("Østerbrogade 20, 2100 København Ø").isPresent());
+    }
+
+    private double cacheRequests(String result) {
+        return meterRegistry.get("dronepizza.geocoding.cache.requests").tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,114 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.StationRepository;
+import com.wzn.dronepizza.service.impl.GridStationLocator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class GridStationLocatorTest {
+
+    @Mock
+    private StationRepository stationRepository;
+
+    private GridStationLocator locator;
+
+    @BeforeEach
+    void setUp() {
+        locator = new GridStationLocator(stationRepository, 0.01);
+    }
+
+    @Test
+    void findNearestStationIds_shouldReturnClosestFirst() {
+        // given
+        locator.upsert(station(1L, 55.41, 12.34));
+        locator.upsert(station(2L, 55.42, 12.33));
+        locator.upsert(station(3L, 55.40, 12.36));
+
+        // when
+        List<Long> nearest = locator.findNearestStationIds(55.419, 12.331, 2);
+
+        // then
+        assertEquals(List.of(2L, 1L), nearest);
+    }
+
+    @Test
+    void upsertAndRemove_shouldUpdateIndexIncrementally() {
+        // given
+        Station moving = station(1L, 55.41, 12.34);
+        locator.upsert(moving);
+        locator.upsert(station(2L, 55.60, 12.60));
+
+        // when: station 1 flyttes langt væk, og station 2 nedlægges
+        moving.setLatitude(56.00);
+        moving.setLongitude(10.00);
+        locator.upsert(moving);
+        locator.remove(2L);
+
+        // then
+        assertEquals(1, locator.size());
+        assertEquals(List.of(1L), locator.findNearestStationIds(55.60, 12.60, 5));
+    }
+
+    @Test
+    void findNearestStationIds_whenQueryIsOutsideGrid_shouldStillFindStations() {
+        // given
+        locator.upsert(station(1L, 55.41, 12.34));
+
+        // when + then
+        assertEquals(List.of(1L), locator.findNearestStationIds(0.0, 0.0, 3));
+    }
+
+    @Test
+    void findNearestStationIds_shouldMatchBruteForceOnManyStations() {
+        // given: 20.000 stationer spredt over København
+        Random random = new Random(42);
+        List<Station> all = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id++) {
+            all.add(station(id, 55.60 + random.nextDouble() * 0.15, 12.45 + random.nextDouble() * 0.25));
+        }
+        given(stationRepository.findAll()).willReturn(all);
+        locator.rebuild();
+
+        for (int i = 0; i < 200; i++) {
+            double lat = 55.58 + random.nextDouble() * 0.2;
+            double lon = 12.40 + random.nextDouble() * 0.3;
+            double lonScale = Math.cos(Math.toRadians(lat));
+
+            // when
+            List<Long> nearest = locator.findNearestStationIds(lat, lon, 5);
+
+            // then
+            List<Long> expected = all.stream()
+                    .sorted(Comparator.comparingDouble(s -> distanceSquared(s, lat, lon, lonScale)))
+                    .limit(5)
+                    .map(Station::getId)
+                    .toList();
+            assertEquals(expected, nearest);
+        }
+    }
+
+    private static double distanceSquared(Station s, double lat, double lon, double lonScale) {
+        double dLat = s.getLatitude() - lat;
+        double dLon = (s.getLongitude() - lon) * lonScale;
+        return dLat * dLat + dLon * dLon;
+    }
+
+    private static Station station(Long id, double latitude, double longitude) {
+        Station station = new Station(latitude, longitude);
+        station.setId(id);
+        return station;
+    }
+}
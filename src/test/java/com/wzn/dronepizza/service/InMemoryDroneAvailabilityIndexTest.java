@@ -0,0 +1,198 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.entity.Drone;
+import com.wzn.dronepizza.entity.DroneStatus;
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.DroneRepository;
+import com.wzn.dronepizza.repository.DroneStationRef;
+import com.wzn.dronepizza.service.impl.InMemoryDroneAvailabilityIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryDroneAvailabilityIndexTest {
+
+    @Mock
+    private DroneRepository droneRepository;
+
+    @InjectMocks
+    private InMemoryDroneAvailabilityIndex index;
+
+    @Test
+    void rebuild_shouldLoadDronesInServiceFromDatabase() {
+        // given
+        given(droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT))
+                .willReturn(List.of(ref(1L, 10L), ref(2L, 10L), ref(3L, 20L)));
+
+        // when
+        index.rebuild();
+
+        // then
+        assertEquals(3, index.size());
+        assertTrue(List.of(1L, 2L, 3L).contains(index.pickAvailable().orElseThrow()));
+        assertEquals(Optional.of(3L), index.pickAvailable(20L));
+        assertTrue(index.pickAvailable(30L).isEmpty());
+    }
+
+    @Test
+    void sync_whenDroneMovesStation_shouldOnlyBePickableFromNewStation() {
+        // given
+        Drone drone = new Drone(7L, DroneStatus.I_DRIFT);
+        drone.setStation(station(10L));
+        index.sync(drone);
+
+        // when
+        drone.setStation(station(20L));
+        index.sync(drone);
+
+        // then
+        assertEquals(1, index.size());
+        assertTrue(index.pickAvailable(10L).isEmpty());
+        assertEquals(Optional.of(7L), index.pickAvailable(20L));
+    }
+
+    @Test
+    void sync_shouldAddAndRemoveDependingOnStatus() {
+        // given
+        Drone drone = new Drone(7L, DroneStatus.I_DRIFT);
+
+        // when + then
+        index.sync(drone);
+        assertEquals(Optional.of(7L), index.pickAvailable());
+
+        drone.setStatus(DroneStatus.UDE_AF_DRIFT);
+        index.sync(drone);
+        assertEquals(0, index.size());
+        assertTrue(index.pickAvailable().isEmpty());
+    }
+
+    @Test
+    void remove_shouldKeepRemainingDronesPickable() {
+        // given
+        index.sync(new Drone(1L, DroneStatus.I_DRIFT));
+        index.sync(new Drone(2L, DroneStatus.I_DRIFT));
+        index.sync(new Drone(3L, DroneStatus.I_DRIFT));
+
+        // when
+        index.remove(1L);
+        index.remove(99L); // ukendt id ignoreres
+
+        // then
+        assertEquals(2, index.size());
+        for (int i = 0; i < 20; i++) {
+            assertNotEquals(1L, index.pickAvailable().orElseThrow());
+        }
+    }
+
+    @Test
+    void reconcile_shouldFixDeviationsFromDatabase() {
+        // given: indekset kender 1 og 2, men databasen siger 2 og 3
+        index.sync(new Drone(1L, DroneStatus.I_DRIFT));
+        index.sync(new Drone(2L, DroneStatus.I_DRIFT));
+        given(droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT))
+                .willReturn(List.of(ref(2L, null), ref(3L, null)));
+
+        // when
+        int deviations = index.reconcile();
+
+        // then
+        assertEquals(2, deviations);
+        assertEquals(2, index.size());
+        assertEquals(0, index.reconcile());
+    }
+
+    @Test
+    void markBusyAndIdle_shouldMoveDroneOutOfAndBackIntoStationFreeList() {
+        // given
+        Drone drone = new Drone(7L, DroneStatus.I_DRIFT);
+        drone.setStation(station(10L));
+        index.sync(drone);
+
+        // when + then
+        index.markBusy(7L);
+        assertEquals(0, index.size());
+        assertEquals(1, index.busyCount());
+        assertTrue(index.pickAvailable(10L).isEmpty());
+
+        index.markIdle(7L);
+        assertEquals(1, index.size());
+        assertEquals(0, index.busyCount());
+        assertEquals(Optional.of(7L), index.pickAvailable(10L));
+
+        index.markIdle(99L); // ukendt eller ikke i drift ignoreres
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void rebuildAndReconcile_shouldRespectBusyFlagFromDatabase() {
+        // given: drone 2 er optaget
+        given(droneRepository.findStationRefsByStatus(DroneStatus.I_DRIFT))
+                .willReturn(List.of(ref(1L, 10L), ref(2L, 10L, true)));
+        index.rebuild();
+        assertEquals(1, index.size());
+        assertEquals(1, index.busyCount());
+
+        // when: indekset tror fejlagtigt, at drone 2 er ledig, og at drone 1 er optaget
+        index.markIdle(2L);
+        index.markBusy(1L);
+        int deviations = index.reconcile();
+
+        // then
+        assertEquals(2, deviations);
+        assertEquals(Optional.of(1L), index.pickAvailable(10L));
+        assertEquals(1, index.busyCount());
+    }
+
+    @Test
+    void sync_whenDroneIsBusy_shouldKeepItOutOfFreeList() {
+        // given
+        Drone drone = new Drone(7L, DroneStatus.I_DRIFT);
+        drone.setBusy(true);
+
+        // when
+        index.sync(drone);
+
+        // then
+        assertEquals(0, index.size());
+        assertEquals(1, index.busyCount());
+        assertTrue(index.pickAvailable().isEmpty());
+    }
+
+    private static Station station(Long id) {
+        Station station = new Station();
+        station.setId(id);
+        return station;
+    }
+
+    private static DroneStationRef ref(Long id, Long stationId) {
+        return ref(id, stationId, false);
+    }
+
+    private static DroneStationRef ref(Long id, Long stationId, boolean busy) {
+        return new DroneStationRef() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getStationId() {
+                return stationId;
+            }
+
+            @Override
+            public boolean isBusy() {
+                return busy;
+            }
+        };
+    }
+}
@@ -0,0 +1,168 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.dto.DeliveryView;
+import com.wzn.dronepizza.repository.DeliveryRepository;
+import com.wzn.dronepizza.service.impl.InMemoryOpenDeliveryReadModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryOpenDeliveryReadModelTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Mock
+    private DeliveryRepository deliveryRepository;
+
+    @InjectMocks
+    private InMemoryOpenDeliveryReadModel readModel;
+
+    @Test
+    void page_shouldReturnOpenDeliveriesAfterIdInIdOrder() {
+        // given
+        readModel.upsert(view(3L, 30, null));
+        readModel.upsert(view(1L, 10, null));
+        readModel.upsert(view(2L, 20, 7L));
+        readModel.upsert(view(4L, 40, null));
+
+        // when + then
+        assertEquals(List.of(1L, 2L), ids(readModel.page(0L, 2)));
+        assertEquals(List.of(3L, 4L), ids(readModel.page(2L, 2)));
+        assertTrue(readModel.page(4L, 2).isEmpty());
+    }
+
+    @Test
+    void queue_shouldContainDeliveriesWithoutDroneByExpectedTime() {
+        // given: id 1 forventes senere end id 2
+        readModel.upsert(view(1L, 50, null));
+        readModel.upsert(view(2L, 10, null));
+        readModel.upsert(view(3L, 20, 7L));
+
+        // when + then
+        assertEquals(List.of(2L, 1L), ids(readModel.queue()));
+        assertEquals(3, readModel.size());
+        assertEquals(2, readModel.queueSize());
+    }
+
+    @Test
+    void upsert_whenScheduledAndFinished_shouldLeaveQueueAndThenModel() {
+        // given
+        readModel.upsert(view(1L, 10, null));
+
+        // when: tildelt en drone
+        readModel.upsert(view(1L, 10, 7L));
+
+        // then
+        assertTrue(readModel.queue().isEmpty());
+        assertEquals(7L, readModel.page(0L, 10).get(0).droneId());
+
+        // when: afsluttet
+        DeliveryView scheduled = view(1L, 10, 7L);
+        readModel.upsert(new DeliveryView(scheduled.id(), scheduled.address(), null, null,
+                scheduled.expectedDeliveryTime(), NOW, scheduled.pizzaId(), scheduled.pizzaTitle(), 7L, null));
+
+        // then
+        assertEquals(0, readModel.size());
+    }
+
+    @Test
+    void remove_shouldDropDeliveryFromPageAndQueue() {
+        // given
+        readModel.upsert(view(1L, 10, null));
+        readModel.upsert(view(2L, 20, null));
+
+        // when
+        readModel.remove(1L);
+        readModel.remove(99L); // ukendt id ignoreres
+
+        // then
+        assertEquals(List.of(2L), ids(readModel.page(0L, 10)));
+        assertEquals(List.of(2L), ids(readModel.queue()));
+    }
+
+    @Test
+    void rebuild_shouldReplaceContentWithOpenDeliveriesFromDatabase() {
+        // given
+        readModel.upsert(view(9L, 10, null));
+        given(deliveryRepository.findOpenViews()).willReturn(List.of(view(1L, 10, null), view(2L, 20, 7L)));
+
+        // when
+        readModel.rebuild();
+
+        // then
+        assertEquals(List.of(1L, 2L), ids(readModel.page(0L, 10)));
+        assertEquals(List.of(1L), ids(readModel.queue()));
+    }
+
+    @Test
+    void rebuild_shouldKeepChangesCommittedWhileDatabaseWasRead() {
+        // given: en levering oprettes og en anden afsluttes, mens databasen læses (snapshot uden dem)
+        readModel.upsert(view(2L, 20, 7L));
+        given(deliveryRepository.findOpenViews()).willAnswer(invocation -> {
+            readModel.upsert(view(3L, 30, null));
+            readModel.remove(2L);
+            return List.of(view(1L, 10, null), view(2L, 20, 7L));
+        });
+
+        // when
+        readModel.rebuild();
+
+        // then
+        assertEquals(List.of(1L, 3L), ids(readModel.page(0L, 10)));
+    }
+
+    @Test
+    void reconcile_shouldFixAndCountDeviationsFromWritesOutsideTheService() {
+        // given: i databasen er 1 tildelt en drone, 2 afsluttet og 3 oprettet, alt uden om service-laget
+        readModel.upsert(view(1L, 10, null));
+        readModel.upsert(view(2L, 20, 7L));
+        readModel.upsert(view(4L, 40, null));
+        given(deliveryRepository.findOpenViews())
+                .willReturn(List.of(view(1L, 10, 8L), view(3L, 30, null), view(4L, 40, null)));
+
+        // when
+        int deviations = readModel.reconcile();
+
+        // then: 4 er uændret og tælles ikke med
+        assertEquals(3, deviations);
+        assertEquals(List.of(1L, 3L, 4L), ids(readModel.page(0L, 10)));
+        assertEquals(List.of(3L, 4L), ids(readModel.queue()));
+        assertEquals(0, readModel.reconcile());
+    }
+
+    @Test
+    void reconcile_shouldIgnoreSubMicrosecondDifferencesAndChangesDuringRead() {
+        // given: modellen har tidspunkter med nanosekunder, databasen med mikrosekunder
+        DeliveryView inModel = view(1L, 10, null);
+        DeliveryView withNanos = new DeliveryView(1L, inModel.address(), null, null,
+                inModel.expectedDeliveryTime().plusNanos(400), null, 100L, "Margherita", null, NOW.plusNanos(999));
+        readModel.upsert(withNanos);
+        given(deliveryRepository.findOpenViews()).willAnswer(invocation -> {
+            readModel.upsert(view(2L, 20, null)); // oprettet, mens databasen læses
+            return List.of(inModel);
+        });
+
+        // when + then: intet afveg, og leveringen fra imens er der stadig
+        assertEquals(0, readModel.reconcile());
+        assertSame(withNanos, readModel.find(1L).orElseThrow());
+        assertEquals(List.of(1L, 2L), ids(readModel.page(0L, 10)));
+    }
+
+    private static DeliveryView view(Long id, int minutes, Long droneId) {
+        return new DeliveryView(id, "Vej " + id, null, null, NOW.plusMinutes(minutes), null,
+                100L, "Margherita", droneId, NOW);
+    }
+
+    private static List<Long> ids(List<DeliveryView> views) {
+        return views.stream().map(DeliveryView::id).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.wzn.dronepizza.service;
+
+import com.wzn.dronepizza.entity.Station;
+import com.wzn.dronepizza.repository.StationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StationLocatorSyncTest {
+
+    @Autowired
+    private StationLocator stationLocator;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void savingStation_shouldReachLocatorOnlyAfterCommit() {
+        // given
+        int sizeBefore = stationLocator.size();
+
+        // when: oprettelsen rulles tilbage
+        Station rolledBack = transactionTemplate.execute(status -> {
+            Station station = stationRepository.save(new Station(10.0, 10.0));
+            stationRepository.flush();
+            assertEquals(sizeBefore, stationLocator.size()); // ikke før commit
+            status.setRollbackOnly();
+            return station;
+        });
+
+        // then
+        assertEquals(sizeBefore, stationLocator.size());
+        assertFalse(stationLocator.findNearestStationIds(10.0, 10.0, 1).contains(rolledBack.getId()));
+
+        // when: oprettelsen committes
+        Station committed = transactionTemplate.execute(status -> stationRepository.save(new Station(10.0, 10.0)));
+
+        // then
+        assertEquals(sizeBefore + 1, stationLocator.size());
+        assertEquals(committed.getId(), stationLocator.findNearestStationIds(10.0, 10.0, 1).get(0));
+
+        // og sletningen fjerner den igen efter commit
+        stationRepository.delete(committed);
+        assertEquals(sizeBefore, stationLocator.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.wzn.dronepizza.support;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tæller SQL-statements via Hibernate statistics, så tests kan sætte et loft (budget)
+ * for, hvor mange statements et endpoint eller en service-metode må bruge.
+ * Fanger N+1: et budget, der holder for 10 rækker, sprænges, når hver række koster en ekstra query.
+ */
+public class QueryCounter {
+
+    private final Statistics statistics;
+    private boolean enabledBefore;
+
+    public QueryCounter(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Nulstiller tællerne og slår statistik til.
+     */
+    public void start() {
+        enabledBefore = statistics.isStatisticsEnabled();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    /**
+     * Sætter statistik tilbage, som den var før start() (den er slået til i drift for metrikkerne).
+     */
+    public void stop() {
+        statistics.setStatisticsEnabled(enabledBefore);
+    }
+
+    /**
+     * Antal JDBC-statements siden start(): queries, inserts, updates og sekvenskald.
+     */
+    public long statementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Fejler, hvis der er brugt flere statements end budgettet, med de udførte queries i beskeden.
+     */
+    public void assertAtMost(long budget, String what) {
+        long count = statementCount();
+        if (count > budget) {
+            fail(what + " brugte " + count + " SQL-statements (budget " + budget + "); "
+                    + statistics.getEntityFetchCount() + " ekstra entity-fetches, "
+                    + statistics.getEntityLoadCount() + " entities indlæst. Queries: "
+                    + Arrays.toString(statistics.getQueries()));
+        }
+    }
+
+    /**
+     * Kører action med en frisk tæller og tjekker budgettet bagefter.
+     */
+    public void assertAtMost(long budget, String what, CountedAction action) throws Exception {
+        start();
+        try {
+            action.run();
+            assertAtMost(budget, what);
+        } finally {
+            stop();
+        }
+    }
+
+    @FunctionalInterface
+    public interface CountedAction {
+        void run() throws Exception;
+    }
+}
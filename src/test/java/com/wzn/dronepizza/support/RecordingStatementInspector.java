@@ -0,0 +1,36 @@
+package com.wzn.dronepizza.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Husker den SQL, Hibernate sender, så tests kan køre EXPLAIN på de præcise statements, repositories genererer.
+ * Slås til med spring.jpa.properties.hibernate.session_factory.statement_inspector=<denne klasse>;
+ * Hibernate opretter selv instansen, så optagelsen er statisk.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+    private static final List<String> recorded = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (recorded) {
+            recorded.add(sql);
+        }
+        return sql;
+    }
+
+    public static void clear() {
+        synchronized (recorded) {
+            recorded.clear();
+        }
+    }
+
+    public static List<String> recorded() {
+        synchronized (recorded) {
+            return List.copyOf(recorded);
+        }
+    }
+}